@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * The Apache License v2.0 is available at
+ * http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.benchmarks;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.test.fakecluster.FakeClusterManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event bus benchmarks between two clustered Vert.x instances of the same JVM joined with the
+ * {@link FakeClusterManager}, the messages go through the cluster connection over the loopback interface.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ClusteredEventBusBenchmark extends EventBusBenchmarkBase {
+
+  private Vertx node1;
+  private Vertx node2;
+  private EventBus eb;
+  private Sender sender;
+
+  @Setup
+  public void setUp() throws Exception {
+    setUpPayload();
+    node1 = startNode();
+    node2 = startNode();
+    eb = node1.eventBus();
+    sender = deploySender(node1, null, null);
+    deployConsumer(node2, "remote", this::received);
+    deployConsumer(node2, "echo", EventBusBenchmarkBase::echo);
+    // Open the connection between the nodes before measuring
+    request(sender, "echo");
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    close(node1);
+    close(node2);
+    FakeClusterManager.reset();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void send() throws Exception {
+    sendBatch(sender, BATCH, body -> eb.send("remote", body));
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public Object requestReply() throws Exception {
+    return request(sender, "echo");
+  }
+
+  private static Vertx startNode() throws Exception {
+    VertxOptions options = new VertxOptions().setClustered(true).setClusterHost("localhost").setClusterPort(0)
+      .setClusterManager(new FakeClusterManager());
+    return registerCodec(EventBusBenchmarkBase.<Vertx>await(handler -> Vertx.vertxAsync(options, handler)));
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * The Apache License v2.0 is available at
+ * http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.benchmarks;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Common state of the event bus benchmarks.
+ * <p>
+ * Messages are sent from the event loop of a {@link Sender} verticle, the benchmark thread only waits for them to
+ * be delivered. Throughput benchmarks send {@link #BATCH} messages per invocation and wait until all have been
+ * received, request/reply benchmarks wait for each reply which gives the latency percentiles in sample time mode.
+ * <p>
+ * Run them like the other benchmarks of this project, e.g. with
+ * {@code java -jar target/benchmarks.jar LocalEventBus -prof gc} to also report the allocation rate.
+ */
+@State(Scope.Benchmark)
+public abstract class EventBusBenchmarkBase {
+
+  public static final int BATCH = 1000;
+
+  /**
+   * The type of the body, a {@link Pojo} is encoded by the default codec of its class.
+   */
+  @Param({"String", "Buffer", "JsonObject", "Pojo"})
+  public String codec;
+
+  protected Object payload;
+  protected volatile CountDownLatch latch;
+
+  protected void setUpPayload() {
+    payload = payload(codec);
+  }
+
+  /**
+   * Send {@link #BATCH} messages from the context of {@code sender} with {@code send} and wait until {@code expected}
+   * deliveries have been counted by the consumers.
+   */
+  protected void sendBatch(Sender sender, int expected, Consumer<Object> send) throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(expected);
+    this.latch = latch;
+    sender.runOnContext(v -> {
+      for (int i = 0; i < BATCH; i++) {
+        send.accept(payload);
+      }
+    });
+    if (!latch.await(30, TimeUnit.SECONDS)) {
+      throw new IllegalStateException("Timed out waiting for " + latch.getCount() + " messages");
+    }
+  }
+
+  /**
+   * Send a request from the context of {@code sender} and wait for the reply body.
+   */
+  protected Object request(Sender sender, String address) throws Exception {
+    CompletableFuture<Object> reply = new CompletableFuture<>();
+    sender.runOnContext(v -> sender.getVertx().eventBus().send(address, payload, (AsyncResult<Message<Object>> ar) -> {
+      if (ar.succeeded()) {
+        reply.complete(ar.result().body());
+      } else {
+        reply.completeExceptionally(ar.cause());
+      }
+    }));
+    return reply.get(30, TimeUnit.SECONDS);
+  }
+
+  protected void received(Message<Object> msg) {
+    latch.countDown();
+  }
+
+  protected static void echo(Message<Object> msg) {
+    msg.reply(msg.body());
+  }
+
+  static Object payload(String codec) {
+    switch (codec) {
+      case "String":
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 256; i++) {
+          sb.append((char) ('a' + i % 26));
+        }
+        return sb.toString();
+      case "Buffer":
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++) {
+          bytes[i] = (byte) i;
+        }
+        return Buffer.buffer(bytes);
+      case "JsonObject":
+        return new JsonObject().put("id", 12345).put("name", "vert.x").put("enabled", true).put("ratio", 0.75)
+          .put("tags", new JsonArray().add("event").add("bus").add("benchmark"))
+          .put("nested", new JsonObject().put("host", "localhost").put("port", 8080));
+      case "Pojo":
+        return new Pojo();
+      default:
+        throw new IllegalArgumentException("Unknown codec " + codec);
+    }
+  }
+
+  static Vertx registerCodec(Vertx vertx) {
+    vertx.eventBus().registerDefaultCodec(Pojo.class, new PojoCodec());
+    return vertx;
+  }
+
+  static <T> T await(Consumer<Handler<AsyncResult<T>>> op) throws Exception {
+    CompletableFuture<T> fut = new CompletableFuture<>();
+    op.accept(ar -> {
+      if (ar.succeeded()) {
+        fut.complete(ar.result());
+      } else {
+        fut.completeExceptionally(ar.cause());
+      }
+    });
+    return fut.get(30, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Deploy a sender, with a consumer of {@code address} on the same event loop when the address is not null.
+   */
+  static Sender deploySender(Vertx vertx, String address, Handler<Message<Object>> handler) throws Exception {
+    Sender sender = new Sender(address, handler);
+    EventBusBenchmarkBase.<String>await(h -> vertx.deployVerticle(sender, h));
+    return sender;
+  }
+
+  static void deployConsumer(Vertx vertx, String address, Handler<Message<Object>> handler) throws Exception {
+    EventBusBenchmarkBase.<String>await(h -> vertx.deployVerticle(new Receiver(address, handler), h));
+  }
+
+  static void close(Vertx vertx) throws Exception {
+    if (vertx != null) {
+      EventBusBenchmarkBase.<Void>await(vertx::close);
+    }
+  }
+
+  static class Pojo {
+  }
+
+  static class PojoCodec implements MessageCodec<Pojo, Pojo> {
+
+    @Override
+    public void encodeToWire(Buffer buffer, Pojo pojo) {
+    }
+
+    @Override
+    public Pojo decodeFromWire(int pos, Buffer buffer) {
+      return new Pojo();
+    }
+
+    @Override
+    public Pojo transform(Pojo pojo) {
+      return pojo;
+    }
+
+    @Override
+    public String name() {
+      return "pojo";
+    }
+
+    @Override
+    public byte systemCodecID() {
+      return -1;
+    }
+  }
+
+  /**
+   * Gives its event loop to the senders.
+   */
+  static class Sender extends Receiver {
+
+    Sender(String address, Handler<Message<Object>> handler) {
+      super(address, handler);
+    }
+  }
+
+  /**
+   * Registers a consumer on its own event loop.
+   */
+  static class Receiver extends AbstractVerticle {
+
+    private final String address;
+    private final Handler<Message<Object>> handler;
+
+    Receiver(String address, Handler<Message<Object>> handler) {
+      this.address = address;
+      this.handler = handler;
+    }
+
+    @Override
+    public void start(Future<Void> startFuture) throws Exception {
+      if (address == null) {
+        startFuture.complete();
+        return;
+      }
+      vertx.eventBus().consumer(address, handler).completionHandler(ar -> {
+        if (ar.succeeded()) {
+          startFuture.complete();
+        } else {
+          startFuture.fail(ar.cause());
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * The Apache License v2.0 is available at
+ * http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.benchmarks;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.Future;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageProducer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Event bus benchmarks within a single Vert.x instance.
+ * <p>
+ * <ul>
+ *   <li>{@link #send()}: point to point to a consumer on the event loop of the sender</li>
+ *   <li>{@link #sendCrossEventLoop()}: point to point to a consumer on another event loop</li>
+ *   <li>{@link #publish()}: publish to {@link #consumers} consumers, each on its own verticle</li>
+ *   <li>{@link #producer()} and {@link #publisher()}: like {@link #send()} and {@link #publish()} with a long-lived
+ *   {@link MessageProducer} which resolves the codec and the handlers once</li>
+ *   <li>the churn variants register and unregister a consumer on another address while sending, which must not
+ *   invalidate the producers</li>
+ *   <li>{@link #requestReply()}: round trip to a consumer on another event loop replying with the body</li>
+ *   <li>{@link #requestReplyBatch()}: a batch of requests to the same consumer, waiting for all the replies</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LocalEventBusBenchmark extends EventBusBenchmarkBase {
+
+  @Param({"4"})
+  public int consumers;
+
+  static final int CHURN_INTERVAL = 100;
+
+  private Vertx vertx;
+  private EventBus eb;
+  private Sender sender;
+  private MessageProducer<Object> producer;
+  private MessageProducer<Object> publisher;
+
+  @Setup
+  public void setUp() throws Exception {
+    setUpPayload();
+    vertx = registerCodec(Vertx.vertx());
+    eb = vertx.eventBus();
+    sender = deploySender(vertx, "local", this::received);
+    deployConsumer(vertx, "remote", this::received);
+    for (int i = 0; i < consumers; i++) {
+      deployConsumer(vertx, "fanout", this::received);
+    }
+    deployConsumer(vertx, "echo", EventBusBenchmarkBase::echo);
+    EventBusBenchmarkBase.<Void>await(handler -> sender.runOnContext(v -> {
+      // The producers are created on the sending context, else their credits are handled by another event loop
+      // The credits of the producer never limit a batch
+      producer = eb.sender("local").setWriteQueueMaxSize(BATCH * 2);
+      publisher = eb.publisher("fanout");
+      handler.handle(Future.completedFuture());
+    }));
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    close(vertx);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void send() throws Exception {
+    sendBatch(sender, BATCH, body -> eb.send("local", body));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void sendCrossEventLoop() throws Exception {
+    sendBatch(sender, BATCH, body -> eb.send("remote", body));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void publish() throws Exception {
+    sendBatch(sender, BATCH * consumers, body -> eb.publish("fanout", body));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void producer() throws Exception {
+    sendBatch(sender, BATCH, producer::write);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void publisher() throws Exception {
+    sendBatch(sender, BATCH * consumers, publisher::write);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void sendChurn() throws Exception {
+    sendBatch(sender, BATCH, churn(body -> eb.send("local", body)));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void producerChurn() throws Exception {
+    sendBatch(sender, BATCH, churn(producer::write));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void publishChurn() throws Exception {
+    sendBatch(sender, BATCH * consumers, churn(body -> eb.publish("fanout", body)));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void publisherChurn() throws Exception {
+    sendBatch(sender, BATCH * consumers, churn(publisher::write));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void requestReplyBatch() throws Exception {
+    sendBatch(sender, BATCH, body -> eb.send("echo", body, reply -> latch.countDown()));
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public Object requestReply() throws Exception {
+    return request(sender, "echo");
+  }
+
+  // Registers and unregisters a consumer on another address every CHURN_INTERVAL messages
+  private Consumer<Object> churn(Consumer<Object> send) {
+    int[] sent = new int[1];
+    return body -> {
+      if (sent[0]++ % CHURN_INTERVAL == 0) {
+        eb.consumer("churn", msg -> {}).unregister();
+      }
+      send.accept(body);
+    };
+  }
+}
@@ -17,6 +17,8 @@
 package io.vertx.core;
 
 import io.vertx.codegen.annotations.Options;
+import io.vertx.core.eventbus.OverflowPolicy;
+import io.vertx.core.eventbus.RoutingPolicy;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.spi.cluster.ClusterManager;
 
@@ -34,6 +36,14 @@ public class VertxOptions {
   public static final int DEFAULT_CLUSTER_PORT = 0;
   public static final long DEFAULT_CLUSTER_PING_INTERVAL = 20000;
   public static final long DEFAULT_CLUSTER_PING_REPLY_INTERVAL = 20000;
+  public static final int DEFAULT_CLUSTER_CONNECTIONS_PER_NODE = 1;
+  public static final RoutingPolicy DEFAULT_CLUSTER_ROUTING_POLICY = RoutingPolicy.ROUND_ROBIN;
+  public static final boolean DEFAULT_CLUSTER_BINARY_JSON = false;
+  public static final int DEFAULT_CLUSTER_PENDING_MAX_SIZE = 10000;
+  public static final OverflowPolicy DEFAULT_CLUSTER_OVERFLOW_POLICY = OverflowPolicy.FAIL;
+  public static final int DEFAULT_CLUSTER_RECONNECT_ATTEMPTS = 3;
+  public static final long DEFAULT_CLUSTER_RECONNECT_INTERVAL = 100;
+  public static final boolean DEFAULT_CLUSTER_SHARED_MEMORY = false;
   public static final long DEFAULT_BLOCKED_THREAD_CHECK_PERIOD = 1000;
   public static final long DEFAULT_MAX_EVENT_LOOP_EXECUTE_TIME = 2000l * 1000000;
   public static final long DEFAULT_MAX_WORKER_EXECUTE_TIME = 1l * 60 * 1000 * 1000000;
@@ -49,6 +59,14 @@ public class VertxOptions {
   private int clusterPort = DEFAULT_CLUSTER_PORT;
   private long clusterPingInterval = DEFAULT_CLUSTER_PING_INTERVAL;
   private long clusterPingReplyInterval = DEFAULT_CLUSTER_PING_REPLY_INTERVAL;
+  private int clusterConnectionsPerNode = DEFAULT_CLUSTER_CONNECTIONS_PER_NODE;
+  private RoutingPolicy clusterRoutingPolicy = DEFAULT_CLUSTER_ROUTING_POLICY;
+  private boolean clusterBinaryJson = DEFAULT_CLUSTER_BINARY_JSON;
+  private int clusterPendingMaxSize = DEFAULT_CLUSTER_PENDING_MAX_SIZE;
+  private OverflowPolicy clusterOverflowPolicy = DEFAULT_CLUSTER_OVERFLOW_POLICY;
+  private int clusterReconnectAttempts = DEFAULT_CLUSTER_RECONNECT_ATTEMPTS;
+  private long clusterReconnectInterval = DEFAULT_CLUSTER_RECONNECT_INTERVAL;
+  private boolean clusterSharedMemory = DEFAULT_CLUSTER_SHARED_MEMORY;
   private long blockedThreadCheckPeriod = DEFAULT_BLOCKED_THREAD_CHECK_PERIOD;
   private long maxEventLoopExecuteTime = DEFAULT_MAX_EVENT_LOOP_EXECUTE_TIME;
   private long maxWorkerExecuteTime = DEFAULT_MAX_WORKER_EXECUTE_TIME;
@@ -71,6 +89,14 @@ public class VertxOptions {
     this.clusterPort = other.getClusterPort();
     this.clusterPingInterval = other.getClusterPingInterval();
     this.clusterPingReplyInterval = other.getClusterPingReplyInterval();
+    this.clusterConnectionsPerNode = other.getClusterConnectionsPerNode();
+    this.clusterRoutingPolicy = other.getClusterRoutingPolicy();
+    this.clusterBinaryJson = other.isClusterBinaryJson();
+    this.clusterPendingMaxSize = other.getClusterPendingMaxSize();
+    this.clusterOverflowPolicy = other.getClusterOverflowPolicy();
+    this.clusterReconnectAttempts = other.getClusterReconnectAttempts();
+    this.clusterReconnectInterval = other.getClusterReconnectInterval();
+    this.clusterSharedMemory = other.isClusterSharedMemory();
     this.blockedThreadCheckPeriod = other.getBlockedThreadCheckPeriod();
     this.maxEventLoopExecuteTime = other.getMaxEventLoopExecuteTime();
     this.maxWorkerExecuteTime = other.getMaxWorkerExecuteTime();
@@ -92,6 +118,14 @@ public class VertxOptions {
     this.clusterPort = json.getInteger("clusterPort", DEFAULT_CLUSTER_PORT);
     this.clusterPingInterval = json.getLong("clusterPingInterval", DEFAULT_CLUSTER_PING_INTERVAL);
     this.clusterPingReplyInterval = json.getLong("clusterPingReplyInterval", DEFAULT_CLUSTER_PING_REPLY_INTERVAL);
+    this.clusterConnectionsPerNode = json.getInteger("clusterConnectionsPerNode", DEFAULT_CLUSTER_CONNECTIONS_PER_NODE);
+    this.clusterRoutingPolicy = RoutingPolicy.valueOf(json.getString("clusterRoutingPolicy", DEFAULT_CLUSTER_ROUTING_POLICY.name()));
+    this.clusterBinaryJson = json.getBoolean("clusterBinaryJson", DEFAULT_CLUSTER_BINARY_JSON);
+    this.clusterPendingMaxSize = json.getInteger("clusterPendingMaxSize", DEFAULT_CLUSTER_PENDING_MAX_SIZE);
+    this.clusterOverflowPolicy = OverflowPolicy.valueOf(json.getString("clusterOverflowPolicy", DEFAULT_CLUSTER_OVERFLOW_POLICY.name()));
+    this.clusterReconnectAttempts = json.getInteger("clusterReconnectAttempts", DEFAULT_CLUSTER_RECONNECT_ATTEMPTS);
+    this.clusterReconnectInterval = json.getLong("clusterReconnectInterval", DEFAULT_CLUSTER_RECONNECT_INTERVAL);
+    this.clusterSharedMemory = json.getBoolean("clusterSharedMemory", DEFAULT_CLUSTER_SHARED_MEMORY);
     this.internalBlockingPoolSize = json.getInteger("internalBlockingPoolSize", DEFAULT_INTERNAL_BLOCKING_POOL_SIZE);
     this.blockedThreadCheckPeriod = json.getLong("blockedThreadCheckPeriod", DEFAULT_BLOCKED_THREAD_CHECK_PERIOD);
     this.maxEventLoopExecuteTime = json.getLong("maxEventLoopExecuteTime", DEFAULT_MAX_EVENT_LOOP_EXECUTE_TIME);
@@ -182,6 +216,96 @@ public class VertxOptions {
     return this;
   }
 
+  public int getClusterConnectionsPerNode() {
+    return clusterConnectionsPerNode;
+  }
+
+  public VertxOptions setClusterConnectionsPerNode(int clusterConnectionsPerNode) {
+    if (clusterConnectionsPerNode < 1) {
+      throw new IllegalArgumentException("clusterConnectionsPerNode must be > 0");
+    }
+    this.clusterConnectionsPerNode = clusterConnectionsPerNode;
+    return this;
+  }
+
+  public RoutingPolicy getClusterRoutingPolicy() {
+    return clusterRoutingPolicy;
+  }
+
+  public VertxOptions setClusterRoutingPolicy(RoutingPolicy clusterRoutingPolicy) {
+    if (clusterRoutingPolicy == null) {
+      throw new IllegalArgumentException("clusterRoutingPolicy must not be null");
+    }
+    this.clusterRoutingPolicy = clusterRoutingPolicy;
+    return this;
+  }
+
+  public boolean isClusterBinaryJson() {
+    return clusterBinaryJson;
+  }
+
+  public VertxOptions setClusterBinaryJson(boolean clusterBinaryJson) {
+    this.clusterBinaryJson = clusterBinaryJson;
+    return this;
+  }
+
+  public int getClusterPendingMaxSize() {
+    return clusterPendingMaxSize;
+  }
+
+  public VertxOptions setClusterPendingMaxSize(int clusterPendingMaxSize) {
+    if (clusterPendingMaxSize < 1) {
+      throw new IllegalArgumentException("clusterPendingMaxSize must be > 0");
+    }
+    this.clusterPendingMaxSize = clusterPendingMaxSize;
+    return this;
+  }
+
+  public OverflowPolicy getClusterOverflowPolicy() {
+    return clusterOverflowPolicy;
+  }
+
+  public VertxOptions setClusterOverflowPolicy(OverflowPolicy clusterOverflowPolicy) {
+    if (clusterOverflowPolicy == null) {
+      throw new IllegalArgumentException("clusterOverflowPolicy must not be null");
+    }
+    this.clusterOverflowPolicy = clusterOverflowPolicy;
+    return this;
+  }
+
+  public int getClusterReconnectAttempts() {
+    return clusterReconnectAttempts;
+  }
+
+  public VertxOptions setClusterReconnectAttempts(int clusterReconnectAttempts) {
+    if (clusterReconnectAttempts < 0) {
+      throw new IllegalArgumentException("clusterReconnectAttempts must be >= 0");
+    }
+    this.clusterReconnectAttempts = clusterReconnectAttempts;
+    return this;
+  }
+
+  public long getClusterReconnectInterval() {
+    return clusterReconnectInterval;
+  }
+
+  public VertxOptions setClusterReconnectInterval(long clusterReconnectInterval) {
+    if (clusterReconnectInterval < 1) {
+      throw new IllegalArgumentException("clusterReconnectInterval must be > 0");
+    }
+    this.clusterReconnectInterval = clusterReconnectInterval;
+    return this;
+  }
+
+  public boolean isClusterSharedMemory() {
+    return clusterSharedMemory;
+  }
+
+  public VertxOptions setClusterSharedMemory(boolean clusterSharedMemory) {
+    this.clusterSharedMemory = clusterSharedMemory;
+    return this;
+  }
+
   public long getBlockedThreadCheckPeriod() {
     return blockedThreadCheckPeriod;
   }
@@ -306,6 +430,14 @@ public class VertxOptions {
 
     if (blockedThreadCheckPeriod != that.blockedThreadCheckPeriod) return false;
     if (clusterPort != that.clusterPort) return false;
+    if (clusterConnectionsPerNode != that.clusterConnectionsPerNode) return false;
+    if (clusterRoutingPolicy != that.clusterRoutingPolicy) return false;
+    if (clusterBinaryJson != that.clusterBinaryJson) return false;
+    if (clusterPendingMaxSize != that.clusterPendingMaxSize) return false;
+    if (clusterOverflowPolicy != that.clusterOverflowPolicy) return false;
+    if (clusterReconnectAttempts != that.clusterReconnectAttempts) return false;
+    if (clusterReconnectInterval != that.clusterReconnectInterval) return false;
+    if (clusterSharedMemory != that.clusterSharedMemory) return false;
     if (clustered != that.clustered) return false;
     if (eventLoopPoolSize != that.eventLoopPoolSize) return false;
     if (haEnabled != that.haEnabled) return false;
@@ -330,6 +462,14 @@ public class VertxOptions {
     result = 31 * result + (clustered ? 1 : 0);
     result = 31 * result + (clusterHost != null ? clusterHost.hashCode() : 0);
     result = 31 * result + clusterPort;
+    result = 31 * result + clusterConnectionsPerNode;
+    result = 31 * result + clusterRoutingPolicy.hashCode();
+    result = 31 * result + (clusterBinaryJson ? 1 : 0);
+    result = 31 * result + clusterPendingMaxSize;
+    result = 31 * result + clusterOverflowPolicy.hashCode();
+    result = 31 * result + clusterReconnectAttempts;
+    result = 31 * result + (int) (clusterReconnectInterval ^ (clusterReconnectInterval >>> 32));
+    result = 31 * result + (clusterSharedMemory ? 1 : 0);
     result = 31 * result + (int) (blockedThreadCheckPeriod ^ (blockedThreadCheckPeriod >>> 32));
     result = 31 * result + (int) (maxEventLoopExecuteTime ^ (maxEventLoopExecuteTime >>> 32));
     result = 31 * result + (int) (maxWorkerExecuteTime ^ (maxWorkerExecuteTime >>> 32));
@@ -361,6 +361,19 @@ public interface Buffer extends ClusterSerializable {
    */
   Buffer slice(int start, int end);
 
+  /**
+   * Returns a read-only copy of this buffer, any attempt to modify it throws a
+   * {@link java.nio.ReadOnlyBufferException}. Changes made to this buffer afterwards are not seen by the copy.<p>
+   * A read-only buffer sent on the event bus is not copied when delivered locally, all the handlers receive
+   * the same instance.
+   */
+  Buffer asReadOnly();
+
+  /**
+   * @return true if this buffer is read-only
+   */
+  boolean isReadOnly();
+
   /**
    * Returns the Buffer as a Netty {@code ByteBuf}.<p>
    * This method is meant for internal use only.
@@ -32,6 +32,7 @@ import java.util.Objects;
 public class BufferImpl implements Buffer {
 
   private ByteBuf buffer;
+  private boolean readOnly;
 
   BufferImpl() {
     this(0);
@@ -57,6 +58,11 @@ public class BufferImpl implements Buffer {
     this.buffer = Unpooled.unreleasableBuffer(buffer);
   }
 
+  private BufferImpl(ByteBuf buffer, boolean readOnly) {
+    this(buffer);
+    this.readOnly = readOnly;
+  }
+
   public String toString() {
     return buffer.toString(Charset.forName("UTF-8"));
   }
@@ -261,11 +267,22 @@ public class BufferImpl implements Buffer {
   }
 
   public Buffer slice() {
-    return new BufferImpl(buffer.slice());
+    return new BufferImpl(buffer.slice(), readOnly);
   }
 
   public Buffer slice(int start, int end) {
-    return new BufferImpl(buffer.slice(start, end - start));
+    return new BufferImpl(buffer.slice(start, end - start), readOnly);
+  }
+
+  public Buffer asReadOnly() {
+    if (readOnly) {
+      return this;
+    }
+    return new BufferImpl(Unpooled.unmodifiableBuffer(buffer.copy()), true);
+  }
+
+  public boolean isReadOnly() {
+    return readOnly;
   }
 
   public ByteBuf getByteBuf() {
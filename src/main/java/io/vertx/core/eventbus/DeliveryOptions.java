@@ -31,11 +31,20 @@ import java.util.Objects;
 @Options
 public class DeliveryOptions {
 
+  /**
+   * The highest priority of a message, the priority of a message is between {@code 0} and {@code MAX_PRIORITY}
+   */
+  public static final int MAX_PRIORITY = 3;
+
   private static final long DEFAULT_TIMEOUT = 30 * 1000;
+  private static final int DEFAULT_PRIORITY = 0;
 
   private long timeout = DEFAULT_TIMEOUT;
   private String codecName;
   private MultiMap headers;
+  private int priority = DEFAULT_PRIORITY;
+  private RoutingPolicy routingPolicy;
+  private boolean localOnly;
 
   public DeliveryOptions() {
   }
@@ -44,11 +53,18 @@ public class DeliveryOptions {
     this.timeout = other.getSendTimeout();
     this.codecName = other.getCodecName();
     this.headers = other.getHeaders();
+    this.priority = other.getPriority();
+    this.routingPolicy = other.getRoutingPolicy();
+    this.localOnly = other.isLocalOnly();
   }
 
   public DeliveryOptions(JsonObject json) {
     this.timeout = json.getLong("timeout", DEFAULT_TIMEOUT);
     this.codecName = json.getString("codecName", null);
+    setPriority(json.getInteger("priority", DEFAULT_PRIORITY));
+    String policy = json.getString("routingPolicy", null);
+    this.routingPolicy = policy != null ? RoutingPolicy.valueOf(policy) : null;
+    this.localOnly = json.getBoolean("localOnly", false);
     JsonObject hdrs = json.getJsonObject("headers", null);
     if (hdrs != null) {
       headers = new CaseInsensitiveHeaders();
@@ -80,6 +96,55 @@ public class DeliveryOptions {
     return this;
   }
 
+  public int getPriority() {
+    return priority;
+  }
+
+  /**
+   * Set the priority of the message. When a consumer is paused or behind, the messages with a higher priority are
+   * handled before the others. The default priority is {@code 0}.
+   *
+   * @param priority the priority, between {@code 0} and {@link #MAX_PRIORITY}
+   * @return a reference to this, so the API can be used fluently
+   */
+  public DeliveryOptions setPriority(int priority) {
+    Arguments.requireInRange(priority, 0, MAX_PRIORITY, "priority must be between 0 and " + MAX_PRIORITY);
+    this.priority = priority;
+    return this;
+  }
+
+  public RoutingPolicy getRoutingPolicy() {
+    return routingPolicy;
+  }
+
+  /**
+   * Set how a clustered event bus chooses the node receiving the message when it is sent to an address with handlers
+   * on several nodes. The default, {@code null}, uses the policy of the Vert.x options.
+   *
+   * @param routingPolicy the policy or {@code null}
+   * @return a reference to this, so the API can be used fluently
+   */
+  public DeliveryOptions setRoutingPolicy(RoutingPolicy routingPolicy) {
+    this.routingPolicy = routingPolicy;
+    return this;
+  }
+
+  public boolean isLocalOnly() {
+    return localOnly;
+  }
+
+  /**
+   * Set whether the message is only delivered to the consumers of this node. A clustered event bus then skips the
+   * lookup of the consumers of the other nodes, see also {@link EventBus#addLocalAddress(String)}.
+   *
+   * @param localOnly true to deliver the message locally only
+   * @return a reference to this, so the API can be used fluently
+   */
+  public DeliveryOptions setLocalOnly(boolean localOnly) {
+    this.localOnly = localOnly;
+    return this;
+  }
+
   public DeliveryOptions addHeader(String key, String value) {
     checkHeaders();
     Objects.requireNonNull(key, "no null key accepted");
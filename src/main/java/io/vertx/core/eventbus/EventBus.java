@@ -24,6 +24,8 @@ import io.vertx.core.Handler;
 import io.vertx.core.metrics.Measured;
 import io.vertx.core.streams.WriteStream;
 
+import java.util.function.Function;
+
 /**
  * A distributed lightweight event bus which can encompass multiple vert.x instances.
  * The event bus implements publish / subscribe, point to point messaging and request-response messaging.<p>
@@ -137,6 +139,58 @@ public interface EventBus extends Measured {
    */
   <T> MessageConsumer<T> localConsumer(String address, Handler<Message<T>> handler);
 
+  /**
+   * Create a sharded message consumer against the specified address. The messages are handled on the worker pool
+   * by a bounded number of lanes, the messages with the same value for the {@code keyHeader} header are always
+   * handled by the same lane in order while the lanes handle their messages in parallel. Messages without
+   * this header are handled by the first lane. The returned consumer is not yet registered at the address,
+   * registration will be effective when {@link MessageConsumer#handler(io.vertx.core.Handler)} is called.
+   *
+   * @param address The address to register it at
+   * @param keyHeader The name of the header carrying the shard key of the messages
+   * @param lanes The number of lanes, i.e the maximum number of messages handled concurrently
+   * @return the event bus message consumer
+   */
+  <T> MessageConsumer<T> shardedConsumer(String address, String keyHeader, int lanes);
+
+  /**
+   * Like {@link #shardedConsumer(String, String, int)} but the shard key of a message is computed by a function.
+   *
+   * @param address The address to register it at
+   * @param keyExtractor The function computing the shard key of a message, a null key is handled by the first lane
+   * @param lanes The number of lanes, i.e the maximum number of messages handled concurrently
+   * @return the event bus message consumer
+   */
+  @GenIgnore
+  <T> MessageConsumer<T> shardedConsumer(String address, Function<Message<T>, ?> keyExtractor, int lanes);
+
+  /**
+   * Create a local message consumer against the specified address pattern. The segments of an address are separated
+   * by {@code .}, in a pattern the {@code *} segment matches exactly one segment and a trailing {@code >} segment
+   * matches one or more segments, e.g {@code orders.*.created} or {@code metrics.>}.
+   * <p>
+   * A message published to an address is delivered to the consumers of this address and to the consumers of the
+   * patterns matching it. A message sent to an address is delivered to one of the consumers of this address or, when
+   * there is none, to one of the consumers of the patterns matching it.
+   * <p>
+   * Like a {@link #localConsumer(String) local consumer}, the handler info won't be propagated across the cluster. The
+   * returned consumer is not yet registered at the pattern, registration will be effective when
+   * {@link MessageConsumer#handler(io.vertx.core.Handler)} is called.
+   *
+   * @param pattern The address pattern to register it at
+   * @return the event bus message consumer
+   */
+  <T> MessageConsumer<T> patternConsumer(String pattern);
+
+  /**
+   * Register a local message consumer against the specified address pattern, see {@link #patternConsumer(String)}.
+   *
+   * @param pattern The address pattern to register it at
+   * @param handler The handler that will process the received messages
+   * @return the event bus message consumer
+   */
+  <T> MessageConsumer<T> patternConsumer(String pattern, Handler<Message<T>> handler);
+
   /**
    * Create a message sender against the specified address. The returned sender will invoke the {@link #send(String, Object)}
    * method when the stream {@link io.vertx.core.streams.WriteStream#write(Object)} method is called with the sender
@@ -177,6 +231,26 @@ public interface EventBus extends Measured {
    */
   <T> MessageProducer<T> publisher(String address, DeliveryOptions options);
 
+  /**
+   * Declare an address as served only by the consumers of this node. The messages sent or published from this node
+   * to this address are then delivered to the local consumers straight away, without looking up the consumers of
+   * the other nodes of the cluster, as if they were sent with {@link DeliveryOptions#setLocalOnly(boolean)}.
+   *
+   * @param address The address
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  EventBus addLocalAddress(String address);
+
+  /**
+   * Undo {@link #addLocalAddress(String)}, the messages to this address are delivered across the cluster again.
+   *
+   * @param address The address
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  EventBus removeLocalAddress(String address);
+
   @GenIgnore
   EventBus registerCodec(MessageCodec codec);
 
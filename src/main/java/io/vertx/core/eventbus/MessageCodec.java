@@ -34,6 +34,7 @@ public interface MessageCodec<S, R> {
 
   // Used when sending locally and no wire involved
   // Must, at least, make a copy of the message if it is not immutable
+  // Immutable bodies (e.g read-only views) can be returned as is, they are then shared by all the handlers
   R transform(S s);
 
   String name();
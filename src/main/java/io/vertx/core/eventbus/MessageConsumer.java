@@ -21,6 +21,8 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.streams.ReadStream;
 
+import java.util.List;
+
 /**
  * An event bus consumer object representing a stream of message to an {@link EventBus} address that can
  * be read from.<p>
@@ -43,6 +45,22 @@ public interface MessageConsumer<T> extends ReadStream<Message<T>> {
   @Override
   MessageConsumer<T> handler(Handler<Message<T>> handler);
 
+  /**
+   * Set a handler receiving the messages in batches instead of one at a time, this registers the consumer like
+   * {@link #handler(io.vertx.core.Handler)}.<p>
+   *
+   * The messages are collected until {@code maxSize} messages are received or until {@code maxDelay} milliseconds
+   * elapsed since the first message of the batch was received, then the batch is handed to the handler. No batch
+   * is handed while the consumer is paused, messages received while paused are buffered according to the
+   * {@link #setMaxBufferedMessages(int) max buffered messages}.
+   *
+   * @param maxSize the maximum number of messages of a batch
+   * @param maxDelay the maximum delay in milliseconds a message waits before its batch is handed
+   * @param handler the handler receiving the batches
+   * @return this consumer
+   */
+  MessageConsumer<T> batchHandler(int maxSize, long maxDelay, Handler<List<Message<T>>> handler);
+
   @Override
   MessageConsumer<T> pause();
 
@@ -24,11 +24,22 @@ import io.vertx.core.streams.WriteStream;
 /**
  * Represents a stream of message that can be written to<p>
  *
+ * A producer created with {@link EventBus#sender(String)} is flow controlled: each consumer grants a credit back
+ * to the producer when it has handled a message, the producer sends at most {@link #setWriteQueueMaxSize} messages
+ * without credits and queues the other ones, {@link #writeQueueFull()} and the drain handler reflect the outstanding
+ * credits. This works for local and clustered consumers. A producer created with {@link EventBus#publisher(String)}
+ * is not flow controlled.<p>
+ *
  * @author <a href="mailto:julien@julienviet.com">Julien Viet</a>
  */
 @VertxGen
 public interface MessageProducer<T> extends WriteStream<T> {
 
+  /**
+   * The default write queue max size = 1000
+   */
+  int DEFAULT_WRITE_QUEUE_MAX_SIZE = 1000;
+
   @Override
   MessageProducer<T> exceptionHandler(Handler<Throwable> handler);
 
@@ -50,4 +61,10 @@ public interface MessageProducer<T> extends WriteStream<T> {
   @Fluent
   MessageProducer<T> deliveryOptions(DeliveryOptions options);
 
+  /**
+   * Closes the producer, the messages waiting for credits are discarded. A producer which is not closed holds no
+   * resource once the consumers handled its messages.
+   */
+  void close();
+
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.eventbus;
+
+/**
+ * What a clustered event bus does with a message to a node when the messages waiting for the connection to that node
+ * reach the limit.
+ */
+public enum OverflowPolicy {
+
+  /**
+   * The message is dropped, the reply handler of a request fails with {@link ReplyFailure#OVERFLOW}, the default
+   */
+  FAIL,
+
+  /**
+   * The oldest waiting message is dropped to make room for the message, the reply handler of a dropped request fails
+   * with {@link ReplyFailure#OVERFLOW}
+   */
+  DROP_OLDEST
+}
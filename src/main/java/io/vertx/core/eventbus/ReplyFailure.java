@@ -17,13 +17,15 @@
 package io.vertx.core.eventbus;
 
 public enum ReplyFailure {
-  TIMEOUT, NO_HANDLERS, RECIPIENT_FAILURE;
+  TIMEOUT, NO_HANDLERS, RECIPIENT_FAILURE, EXPIRED, OVERFLOW;
 
   public static ReplyFailure fromInt(int i) {
     switch (i) {
       case 0: return TIMEOUT;
       case 1: return NO_HANDLERS;
       case 2: return RECIPIENT_FAILURE;
+      case 3: return EXPIRED;
+      case 4: return OVERFLOW;
       default: throw new IllegalStateException("Invalid index " + i);
     }
   }
@@ -33,6 +35,8 @@ public enum ReplyFailure {
       case TIMEOUT: return 0;
       case NO_HANDLERS: return 1;
       case RECIPIENT_FAILURE: return 2;
+      case EXPIRED: return 3;
+      case OVERFLOW: return 4;
       default: throw new IllegalStateException("How did we get here?");
     }
   }
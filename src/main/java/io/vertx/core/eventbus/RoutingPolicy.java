@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.eventbus;
+
+/**
+ * How a clustered event bus chooses the node which receives a message sent (not published) to an address with
+ * handlers on several nodes.
+ */
+public enum RoutingPolicy {
+
+  /**
+   * The nodes take turns, the default
+   */
+  ROUND_ROBIN,
+
+  /**
+   * The message is handled by this node when it has a handler for the address, otherwise the nodes take turns
+   */
+  LOCAL_FIRST,
+
+  /**
+   * The nodes on the same host as this node take turns, when there are none the other nodes take turns
+   */
+  SAME_HOST_FIRST,
+
+  /**
+   * The node with the fewest requests waiting for a reply from this node, the nodes take turns when they are even
+   */
+  LEAST_OUTSTANDING,
+
+  /**
+   * The least loaded of two nodes picked at random, the load of a node is its requests waiting for a reply weighted
+   * by its average reply latency. A node which slows down gets less messages without all the nodes rushing to the
+   * fastest one
+   */
+  POWER_OF_TWO_CHOICES
+}
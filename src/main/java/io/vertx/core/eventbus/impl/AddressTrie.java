@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.eventbus.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * A trie of address patterns indexed by segments, the segments of an address are separated by {@code .}. In a pattern
+ * the {@code *} segment matches exactly one segment and a trailing {@code >} segment matches one or more segments.
+ * <p>
+ * Matching an address walks the trie segment by segment so its cost depends on the address depth and not on the
+ * number of patterns. The matches are cached per address, the cache is replaced when a pattern is added or removed.
+ * <p>
+ * Lookups are lock-free, updates are synchronized.
+ */
+class AddressTrie<H> {
+
+  static final String ONE = "*";
+  static final String MANY = ">";
+
+  private static final int MAX_CACHED_MATCHES = 1024;
+
+  private final Node<H> root = new Node<>();
+  private volatile int size;
+  private volatile ConcurrentMap<String, List<H>> cache = new ConcurrentHashMap<>();
+
+  /**
+   * @throws IllegalArgumentException if the pattern is not valid
+   */
+  static void checkPattern(String pattern) {
+    String[] segments = pattern.split("\\.", -1);
+    for (int i = 0; i < segments.length; i++) {
+      if (segments[i].isEmpty()) {
+        throw new IllegalArgumentException("Empty segment in address pattern " + pattern);
+      }
+      if (segments[i].equals(MANY) && i != segments.length - 1) {
+        throw new IllegalArgumentException(MANY + " must be the last segment of address pattern " + pattern);
+      }
+    }
+  }
+
+  synchronized void add(String pattern, H value) {
+    Node<H> node = root;
+    for (String segment : pattern.split("\\.", -1)) {
+      node = node.children.computeIfAbsent(segment, s -> new Node<>());
+    }
+    List<H> values = new ArrayList<>(node.values);
+    values.add(value);
+    node.values = values;
+    size++;
+    // The trie is updated before the cache is replaced so a match computed before can only be added to the old cache
+    cache = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Remove the first value of a pattern matching a predicate.
+   *
+   * @return the removed value or null
+   */
+  synchronized H remove(String pattern, Predicate<H> predicate) {
+    String[] segments = pattern.split("\\.", -1);
+    List<Node<H>> path = new ArrayList<>(segments.length + 1);
+    Node<H> node = root;
+    path.add(node);
+    for (String segment : segments) {
+      node = node.children.get(segment);
+      if (node == null) {
+        return null;
+      }
+      path.add(node);
+    }
+    H removed = null;
+    List<H> values = new ArrayList<>(node.values.size());
+    for (H value : node.values) {
+      if (removed == null && predicate.test(value)) {
+        removed = value;
+      } else {
+        values.add(value);
+      }
+    }
+    if (removed != null) {
+      node.values = values.isEmpty() ? Collections.emptyList() : values;
+      // Prune the nodes which are not used anymore
+      for (int i = segments.length; i > 0; i--) {
+        Node<H> n = path.get(i);
+        if (!n.values.isEmpty() || !n.children.isEmpty()) {
+          break;
+        }
+        path.get(i - 1).children.remove(segments[i - 1]);
+      }
+      size--;
+      cache = new ConcurrentHashMap<>();
+    }
+    return removed;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return the values of the patterns matching the address, the returned list must not be modified
+   */
+  List<H> match(String address) {
+    if (size == 0) {
+      return Collections.emptyList();
+    }
+    ConcurrentMap<String, List<H>> matches = cache;
+    List<H> values = matches.get(address);
+    if (values == null) {
+      List<H> collected = new ArrayList<>();
+      collect(root, address, 0, collected);
+      values = collected.isEmpty() ? Collections.emptyList() : collected;
+      if (matches.size() >= MAX_CACHED_MATCHES) {
+        matches.clear();
+      }
+      matches.put(address, values);
+    }
+    return values;
+  }
+
+  private void collect(Node<H> node, String address, int from, List<H> values) {
+    int to = address.indexOf('.', from);
+    if (to == -1) {
+      to = address.length();
+    }
+    Node<H> child = node.children.get(MANY);
+    if (child != null) {
+      values.addAll(child.values);
+    }
+    child = node.children.get(address.substring(from, to));
+    if (child != null) {
+      collectChild(child, address, to, values);
+    }
+    child = node.children.get(ONE);
+    if (child != null) {
+      collectChild(child, address, to, values);
+    }
+  }
+
+  private void collectChild(Node<H> child, String address, int to, List<H> values) {
+    if (to == address.length()) {
+      values.addAll(child.values);
+    } else {
+      collect(child, address, to + 1, values);
+    }
+  }
+
+  private static final class Node<H> {
+    final ConcurrentMap<String, Node<H>> children = new ConcurrentHashMap<>();
+    volatile List<H> values = Collections.emptyList();
+  }
+}
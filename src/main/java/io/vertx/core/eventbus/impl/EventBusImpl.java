@@ -16,10 +16,13 @@
 
 package io.vertx.core.eventbus.impl;
 
+import io.netty.channel.EventLoop;
+import io.netty.util.internal.PlatformDependent;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.MultiMap;
+import io.vertx.core.VertxOptions;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.EventBus;
@@ -27,8 +30,10 @@ import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageCodec;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.eventbus.MessageProducer;
+import io.vertx.core.eventbus.OverflowPolicy;
 import io.vertx.core.eventbus.ReplyException;
 import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.eventbus.RoutingPolicy;
 import io.vertx.core.eventbus.impl.codecs.BooleanMessageCodec;
 import io.vertx.core.eventbus.impl.codecs.BufferMessageCodec;
 import io.vertx.core.eventbus.impl.codecs.ByteArrayMessageCodec;
@@ -37,7 +42,9 @@ import io.vertx.core.eventbus.impl.codecs.CharMessageCodec;
 import io.vertx.core.eventbus.impl.codecs.DoubleMessageCodec;
 import io.vertx.core.eventbus.impl.codecs.FloatMessageCodec;
 import io.vertx.core.eventbus.impl.codecs.IntMessageCodec;
+import io.vertx.core.eventbus.impl.codecs.JsonArrayBinaryMessageCodec;
 import io.vertx.core.eventbus.impl.codecs.JsonArrayMessageCodec;
+import io.vertx.core.eventbus.impl.codecs.JsonObjectBinaryMessageCodec;
 import io.vertx.core.eventbus.impl.codecs.JsonObjectMessageCodec;
 import io.vertx.core.eventbus.impl.codecs.LongMessageCodec;
 import io.vertx.core.eventbus.impl.codecs.NullMessageCodec;
@@ -45,6 +52,7 @@ import io.vertx.core.eventbus.impl.codecs.PingMessageCodec;
 import io.vertx.core.eventbus.impl.codecs.ReplyExceptionMessageCodec;
 import io.vertx.core.eventbus.impl.codecs.ShortMessageCodec;
 import io.vertx.core.eventbus.impl.codecs.StringMessageCodec;
+import io.vertx.core.http.CaseInsensitiveHeaders;
 import io.vertx.core.impl.Arguments;
 import io.vertx.core.impl.Closeable;
 import io.vertx.core.impl.ContextImpl;
@@ -59,24 +67,31 @@ import io.vertx.core.net.NetClientOptions;
 import io.vertx.core.net.NetServer;
 import io.vertx.core.net.NetSocket;
 import io.vertx.core.net.impl.ServerID;
-import io.vertx.core.parsetools.RecordParser;
 import io.vertx.core.spi.cluster.AsyncMultiMap;
 import io.vertx.core.spi.cluster.ChoosableIterable;
 import io.vertx.core.spi.cluster.ClusterManager;
 import io.vertx.core.streams.ReadStream;
 
+import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
-import java.util.UUID;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -88,6 +103,10 @@ public class EventBusImpl implements EventBus {
 
   private static final Logger log = LoggerFactory.getLogger(EventBusImpl.class);
 
+  // A batch of messages to a cluster connection is written when it reaches this size
+  static final int MAX_BATCH_BYTES = 64 * 1024;
+  static final long MAX_RECONNECT_DELAY = 30 * 1000;
+
   // The standard message codecs
   private static final MessageCodec<String, String> PING_MESSAGE_CODEC = new PingMessageCodec();
   private static final MessageCodec<String, String> NULL_MESSAGE_CODEC = new NullMessageCodec();
@@ -105,25 +124,67 @@ public class EventBusImpl implements EventBus {
   private static final MessageCodec<Character, Character> CHAR_MESSAGE_CODEC = new CharMessageCodec();
   private static final MessageCodec<Byte, Byte> BYTE_MESSAGE_CODEC = new ByteMessageCodec();
   private static final MessageCodec<ReplyException, ReplyException> REPLY_EXCEPTION_MESSAGE_CODEC = new ReplyExceptionMessageCodec();
+  private static final MessageCodec<JsonObject, JsonObject> JSON_OBJECT_BINARY_MESSAGE_CODEC = new JsonObjectBinaryMessageCodec();
+  private static final MessageCodec<JsonArray, JsonArray> JSON_ARRAY_BINARY_MESSAGE_CODEC = new JsonArrayBinaryMessageCodec();
 
   private static final Buffer PONG = Buffer.buffer(new byte[] { (byte)1 });
+  // A node answers a ping carrying this header with its wire protocol version instead of a pong
+  private static final String WIRE_VERSION_HEADER = "__vertx.wire.version";
+  private static final Buffer WIRE_VERSION = Buffer.buffer(new byte[] { MessageImpl.WIRE_PROTOCOL_VERSION });
+  // A node of the same host answers a ping carrying the path of a ring file with RING_ACK once it mapped the ring,
+  // a ping carrying RING_WAKE_HEADER tells it to read the ring
+  private static final String RING_FILE_HEADER = "__vertx.wire.ring";
+  private static final String RING_WAKE_HEADER = "__vertx.wire.ring.wake";
+  private static final byte RING_ACK = 2;
+  // The reader of a ring polls it that many times before it sleeps
+  private static final int RING_SPINS = 16;
+  private static final long RING_RETRY_DELAY_MICROS = 100;
   private static final String PING_ADDRESS = "__vertx_ping";
+  private static final int MAX_DELIVERY_BATCH_SIZE = 64;
 
   private final VertxInternal vertx;
   private final long pingInterval;
   private final long pingReplyInterval;
-  private final ConcurrentMap<ServerID, ConnectionHolder> connections = new ConcurrentHashMap<>();
+  // One map per stripe, the messages to an address always use the connection of the same stripe
+  private final ConcurrentMap<ServerID, ConnectionHolder>[] connections;
+  private final ConcurrentMap<ServerID, NodeStats> nodeStats = new ConcurrentHashMap<>();
+  private final RoutingPolicy routingPolicy;
+  // Whether the Json bodies are encoded in binary by default
+  private final boolean binaryJson;
+  // The messages waiting for a connection to a node, the connect attempts are spaced exponentially
+  private final int pendingMaxSize;
+  private final OverflowPolicy overflowPolicy;
+  private final int reconnectAttempts;
+  private final long reconnectInterval;
+  private final AtomicInteger pendingMessages = new AtomicInteger();
+  private final AtomicInteger sameHostPos = new AtomicInteger();
   private final ConcurrentMap<String, Handlers> handlerMap = new ConcurrentHashMap<>();
+  // The producers waiting for credits by credit address
+  private final ConcurrentMap<String, MessageProducerImpl<?>> producers = new ConcurrentHashMap<>();
+  // The addresses served by this node only, the messages to them never look up the subscriptions
+  private final Set<String> localAddresses = ConcurrentHashMap.newKeySet();
+  private final AddressTrie<HandlerHolder> patterns = new AddressTrie<>();
+  private final AtomicInteger patternPos = new AtomicInteger();
+  // Incremented after the pattern handlers or the codecs change, see Route
+  private final AtomicLong routeVersion = new AtomicLong();
   private final ConcurrentMap<String, MessageCodec> userCodecMap = new ConcurrentHashMap<>();
   private final ConcurrentMap<Class, MessageCodec> defaultCodecMap = new ConcurrentHashMap<>();
   private final ClusterManager clusterMgr;
-  private final AtomicLong replySequence = new AtomicLong(0);
+  private final ReplyTable replies;
   private final EventBusMetrics metrics;
   private final AsyncMultiMap<String, ServerID> subs;
+  private final SubsCache subsCache;
+  private final SubsBatcher subsBatcher;
   private final MessageCodec[] systemCodecs;
   private final ServerID serverID;
-  private final NetServer server;
+  private final Buffer pingFrame;
+  private final Buffer helloFrame;
+  private final Buffer ringWakeFrame;
+  // Whether the frames to the nodes of the same host go through shared memory rings
+  private final boolean sharedMemory;
+  private final EventBusNetServer server;
   private volatile boolean sendPong = true;
+  private volatile boolean compactWire = true;
 
   public EventBusImpl(VertxInternal vertx) {
     this.vertx = vertx;
@@ -132,24 +193,54 @@ public class EventBusImpl implements EventBus {
     // Just some dummy server ID
     this.serverID = new ServerID(-1, "localhost");
     this.server = null;
+    this.connections = connectionMaps(1);
+    this.routingPolicy = RoutingPolicy.ROUND_ROBIN;
+    this.binaryJson = false;
+    this.pendingMaxSize = VertxOptions.DEFAULT_CLUSTER_PENDING_MAX_SIZE;
+    this.overflowPolicy = VertxOptions.DEFAULT_CLUSTER_OVERFLOW_POLICY;
+    this.reconnectAttempts = VertxOptions.DEFAULT_CLUSTER_RECONNECT_ATTEMPTS;
+    this.reconnectInterval = VertxOptions.DEFAULT_CLUSTER_RECONNECT_INTERVAL;
+    this.pingFrame = null;
+    this.helloFrame = null;
+    this.ringWakeFrame = null;
+    this.sharedMemory = false;
     this.subs = null;
+    this.subsCache = null;
+    this.subsBatcher = null;
     this.clusterMgr = null;
     this.metrics = vertx.metricsSPI().createMetrics(this);
     this.systemCodecs = systemCodecs();
+    this.replies = new ReplyTable(false, vertx.getEventLoopGroup().next(), this::replyTimeout);
   }
 
-  public EventBusImpl(VertxInternal vertx, long pingInterval, long pingReplyInterval, ClusterManager clusterManager,
-                      AsyncMultiMap<String, ServerID> subs, ServerID serverID,
-                      EventBusNetServer server) {
+  public EventBusImpl(VertxInternal vertx, VertxOptions options, ClusterManager clusterManager,
+                      AsyncMultiMap<String, ServerID> subs, ServerID serverID, EventBusNetServer server) {
     this.vertx = vertx;
     this.clusterMgr = clusterManager;
     this.metrics = vertx.metricsSPI().createMetrics(this);
-    this.pingInterval = pingInterval;
-    this.pingReplyInterval = pingReplyInterval;
+    this.pingInterval = options.getClusterPingInterval();
+    this.pingReplyInterval = options.getClusterPingReplyInterval();
     this.subs = subs;
+    this.subsCache = new SubsCache(subs);
+    this.subsBatcher = new SubsBatcher(vertx, subs, serverID);
     this.systemCodecs = systemCodecs();
     this.serverID = serverID;
-    this.server = server.netServer;
+    this.server = server;
+    this.connections = connectionMaps(options.getClusterConnectionsPerNode());
+    this.routingPolicy = options.getClusterRoutingPolicy();
+    this.binaryJson = options.isClusterBinaryJson();
+    this.pendingMaxSize = options.getClusterPendingMaxSize();
+    this.overflowPolicy = options.getClusterOverflowPolicy();
+    this.reconnectAttempts = options.getClusterReconnectAttempts();
+    this.reconnectInterval = options.getClusterReconnectInterval();
+    this.pingFrame = new MessageImpl<>(serverID, PING_ADDRESS, null, null, null, PING_MESSAGE_CODEC, true).encodeToWire();
+    MultiMap hello = new CaseInsensitiveHeaders().add(WIRE_VERSION_HEADER, String.valueOf(MessageImpl.WIRE_PROTOCOL_VERSION));
+    this.helloFrame = new MessageImpl<>(serverID, PING_ADDRESS, null, hello, null, PING_MESSAGE_CODEC, true).encodeToWire();
+    MultiMap wake = new CaseInsensitiveHeaders().add(RING_WAKE_HEADER, "");
+    this.ringWakeFrame = new MessageImpl<>(serverID, PING_ADDRESS, null, wake, null, PING_MESSAGE_CODEC, true).encodeToWire();
+    this.sharedMemory = options.isClusterSharedMemory() && SharedMemoryRing.isAvailable();
+    // The reply addresses can't be guessed from the cluster
+    this.replies = new ReplyTable(true, vertx.getEventLoopGroup().next(), this::replyTimeout);
     setServerHandler(server);
   }
 
@@ -177,27 +268,27 @@ public class EventBusImpl implements EventBus {
   @Override
   public <T> MessageProducer<T> sender(String address) {
     Objects.requireNonNull(address, "address");
-    return new MessageProducerImpl<>(this, address, true, new DeliveryOptions());
+    return new MessageProducerImpl<>(vertx, address, true, new DeliveryOptions());
   }
 
   @Override
   public <T> MessageProducer<T> sender(String address, DeliveryOptions options) {
     Objects.requireNonNull(address, "address");
     Objects.requireNonNull(options, "options");
-    return new MessageProducerImpl<>(this, address, true, options);
+    return new MessageProducerImpl<>(vertx, address, true, options);
   }
 
   @Override
   public <T> MessageProducer<T> publisher(String address) {
     Objects.requireNonNull(address, "address");
-    return new MessageProducerImpl<>(this, address, false, new DeliveryOptions());
+    return new MessageProducerImpl<>(vertx, address, false, new DeliveryOptions());
   }
 
   @Override
   public <T> MessageProducer<T> publisher(String address, DeliveryOptions options) {
     Objects.requireNonNull(address, "address");
     Objects.requireNonNull(options, "options");
-    return new MessageProducerImpl<>(this, address, false, options);
+    return new MessageProducerImpl<>(vertx, address, false, options);
   }
 
   @Override
@@ -214,7 +305,7 @@ public class EventBusImpl implements EventBus {
   @Override
   public <T> MessageConsumer<T> consumer(String address) {
     Objects.requireNonNull(address, "address");
-    return new HandlerRegistration<>(address, false, false, -1);
+    return new HandlerRegistration<>(address, false);
   }
 
   @Override
@@ -228,7 +319,7 @@ public class EventBusImpl implements EventBus {
   @Override
   public <T> MessageConsumer<T> localConsumer(String address) {
     Objects.requireNonNull(address, "address");
-    return new HandlerRegistration<>(address, false, true, -1);
+    return new HandlerRegistration<>(address, true);
   }
 
   @Override
@@ -239,6 +330,49 @@ public class EventBusImpl implements EventBus {
     return consumer;
   }
 
+  @Override
+  public <T> MessageConsumer<T> shardedConsumer(String address, String keyHeader, int lanes) {
+    Objects.requireNonNull(keyHeader, "keyHeader");
+    return shardedConsumer(address, (Message<T> msg) -> ((MessageImpl) msg).getHeader(keyHeader), lanes);
+  }
+
+  @Override
+  public <T> MessageConsumer<T> shardedConsumer(String address, Function<Message<T>, ?> keyExtractor, int lanes) {
+    Objects.requireNonNull(address, "address");
+    Objects.requireNonNull(keyExtractor, "keyExtractor");
+    Arguments.require(lanes > 0, "lanes must be > 0");
+    return new HandlerRegistration<>(address, false, false, keyExtractor, lanes);
+  }
+
+  @Override
+  public <T> MessageConsumer<T> patternConsumer(String pattern) {
+    Objects.requireNonNull(pattern, "pattern");
+    AddressTrie.checkPattern(pattern);
+    return new HandlerRegistration<>(pattern, true, true, null, 0);
+  }
+
+  @Override
+  public <T> MessageConsumer<T> patternConsumer(String pattern, Handler<Message<T>> handler) {
+    Objects.requireNonNull(handler, "handler");
+    MessageConsumer<T> consumer = patternConsumer(pattern);
+    consumer.handler(handler);
+    return consumer;
+  }
+
+  @Override
+  public EventBus addLocalAddress(String address) {
+    Objects.requireNonNull(address, "address");
+    localAddresses.add(address);
+    return this;
+  }
+
+  @Override
+  public EventBus removeLocalAddress(String address) {
+    Objects.requireNonNull(address, "address");
+    localAddresses.remove(address);
+    return this;
+  }
+
   @Override
   public EventBus registerCodec(MessageCodec codec) {
     Objects.requireNonNull(codec, "codec");
@@ -248,6 +382,7 @@ public class EventBusImpl implements EventBus {
       throw new IllegalStateException("Already a codec registered with name " + codec.name());
     }
     userCodecMap.put(codec.name(), codec);
+    routeVersion.incrementAndGet();
     return this;
   }
 
@@ -255,6 +390,7 @@ public class EventBusImpl implements EventBus {
   public EventBus unregisterCodec(String name) {
     Objects.requireNonNull(name);
     userCodecMap.remove(name);
+    routeVersion.incrementAndGet();
     return this;
   }
 
@@ -272,6 +408,7 @@ public class EventBusImpl implements EventBus {
     }
     defaultCodecMap.put(clazz, codec);
     userCodecMap.put(codec.name(), codec);
+    routeVersion.incrementAndGet();
     return this;
   }
 
@@ -282,11 +419,16 @@ public class EventBusImpl implements EventBus {
     if (codec != null) {
       userCodecMap.remove(codec.name());
     }
+    routeVersion.incrementAndGet();
     return this;
   }
 
   @Override
   public void close(Handler<AsyncResult<Void>> completionHandler) {
+    replies.close();
+    if (subsCache != null) {
+      subsCache.close();
+    }
     if (server != null) {
       server.close(ar -> {
         if (ar.failed()) {
@@ -320,16 +462,57 @@ public class EventBusImpl implements EventBus {
     }
   }
 
+  void sendCredits(ServerID dest, String creditAddress, int credits) {
+    sendOrPub(dest, createMessage(true, creditAddress, null, credits, null), new DeliveryOptions(), null);
+  }
+
+  void addProducer(String creditAddress, MessageProducerImpl<?> producer) {
+    producers.put(creditAddress, producer);
+  }
+
+  void removeProducer(String creditAddress) {
+    producers.remove(creditAddress);
+  }
+
+  // A flow controlled message which is not handled gives its credit back, else its producer would wait for it forever
+  private void returnCredit(MessageImpl msg) {
+    returnCredit(msg.sender(), msg.creditAddress());
+  }
+
+  private void returnCredit(ServerID sender, String creditAddress) {
+    if (creditAddress != null) {
+      sendCredits(sender, creditAddress, 1);
+    }
+  }
+
   // Used in testing
   public void simulateUnresponsive() {
     sendPong = false;
   }
 
+  // Used in testing, the node behaves like a node which only knows the previous wire protocol versions
+  public void disableCompactWire() {
+    compactWire = false;
+  }
+
   MessageImpl createMessage(boolean send, String address, MultiMap headers, Object body, String codecName) {
     Objects.requireNonNull(address, "no null address accepted");
+    MessageCodec codec = lookupCodec(body, codecName);
+    @SuppressWarnings("unchecked")
+    MessageImpl msg = new MessageImpl(serverID, address, null, headers, body, codec, send);
+    return msg;
+  }
+
+  private MessageCodec lookupCodec(Object body, String codecName) {
     MessageCodec codec;
     if (codecName != null) {
-      codec = userCodecMap.get(codecName);
+      if (codecName.equals(JsonObjectBinaryMessageCodec.NAME)) {
+        codec = JSON_OBJECT_BINARY_MESSAGE_CODEC;
+      } else if (codecName.equals(JsonArrayBinaryMessageCodec.NAME)) {
+        codec = JSON_ARRAY_BINARY_MESSAGE_CODEC;
+      } else {
+        codec = userCodecMap.get(codecName);
+      }
       if (codec == null) {
         throw new IllegalArgumentException("No message codec for name: " + codecName);
       }
@@ -340,9 +523,9 @@ public class EventBusImpl implements EventBus {
     } else if (body instanceof Buffer) {
       codec = BUFFER_MESSAGE_CODEC;
     } else if (body instanceof JsonObject) {
-      codec = JSON_OBJECT_MESSAGE_CODEC;
+      codec = binaryJson ? JSON_OBJECT_BINARY_MESSAGE_CODEC : JSON_OBJECT_MESSAGE_CODEC;
     } else if (body instanceof JsonArray) {
-      codec = JSON_ARRAY_MESSAGE_CODEC;
+      codec = binaryJson ? JSON_ARRAY_BINARY_MESSAGE_CODEC : JSON_ARRAY_MESSAGE_CODEC;
     } else if (body instanceof byte[]) {
       codec = BYTE_ARRAY_MESSAGE_CODEC;
     } else if (body instanceof Integer) {
@@ -369,9 +552,54 @@ public class EventBusImpl implements EventBus {
         throw new IllegalArgumentException("No message codec for type: " + body.getClass());
       }
     }
+    return codec;
+  }
+
+  /**
+   * Fast path of the producers: the codec and the handlers are resolved once per route and reused until the
+   * handlers of the address are all removed or the pattern handlers or the codecs change, instead of being looked up
+   * for each message. Registering a consumer on another address does not invalidate the route.
+   */
+  void sendOrPub(Route route, boolean send, Object body, DeliveryOptions options) {
+    if (subs != null && !localOnly(route.address, options)) {
+      // The subscriptions of the other nodes are not versioned
+      MessageImpl message = createMessage(send, route.address, options.getHeaders(), body, options.getCodecName());
+      message.setCreditAddress(route.creditAddress);
+      sendOrPub(null, message, options, null);
+      return;
+    }
+    checkStarted();
+    Route.Resolution current = route.resolution;
+    Route.Resolution resolution = current;
+    long version = routeVersion.get();
+    if (resolution == null || resolution.version != version) {
+      // Read after the version so a concurrent change is seen by the next message at the latest
+      resolution = new Route.Resolution(version, handlerMap.get(route.address), patterns.match(route.address), null, null, null);
+    } else if (resolution.handlers == null || resolution.handlers.removed) {
+      // The handlers added to or removed from a live entry are seen through its list
+      Handlers handlers = handlerMap.get(route.address);
+      if (handlers != resolution.handlers) {
+        resolution = resolution.withHandlers(handlers);
+      }
+    }
+    String codecName = options.getCodecName();
+    Class<?> bodyClass = body != null ? body.getClass() : null;
+    if (resolution.codec == null || !Objects.equals(codecName, resolution.codecName) || (codecName == null && bodyClass != resolution.bodyClass)) {
+      resolution = resolution.withCodec(lookupCodec(body, codecName), codecName, bodyClass);
+    }
+    if (resolution != current) {
+      route.resolution = resolution;
+    }
     @SuppressWarnings("unchecked")
-    MessageImpl msg = new MessageImpl(serverID, address, null, headers, body, codec, send);
-    return msg;
+    MessageImpl message = new MessageImpl(serverID, route.address, null, options.getHeaders(), body, resolution.codec, send);
+    message.setPriority(options.getPriority());
+    message.setCreditAddress(route.creditAddress);
+    message.setBus(this);
+    metrics.messageSent(route.address, !send);
+    // Messages are never handled synchronously so the context of the current thread does not need to be restored
+    if (!deliver(message, resolution.handlers, resolution.matches)) {
+      returnCredit(message);
+    }
   }
 
   private void checkSystemCodec(MessageCodec codec) {
@@ -397,63 +625,207 @@ public class EventBusImpl implements EventBus {
 
   private void setServerHandler(EventBusNetServer server) {
     Handler<NetSocket> sockHandler = socket -> {
-      RecordParser parser = RecordParser.newFixed(4, null);
-      Handler<Buffer> handler = new Handler<Buffer>() {
-        int size = -1;
-        public void handle(Buffer buff) {
-          if (size == -1) {
-            size = buff.getInt(0);
-            parser.fixedSizeMode(size);
-          } else {
-            MessageImpl received = new MessageImpl();
-            received.readFromWire(socket, buff, userCodecMap, systemCodecs);
-            parser.fixedSizeMode(4);
-            size = -1;
-            if (received.codec() == PING_MESSAGE_CODEC) {
-              // Just send back pong directly on connection
-              if (sendPong) {
-                socket.write(PONG);
-              }
-            } else {
-              receiveMessage(received, -1, null, null);
+      WireDecoder decoder = new WireDecoder();
+      RingReader ringReader = new RingReader();
+      socket.closeHandler(v -> {
+        decoder.close();
+        ringReader.close();
+      });
+      Handler<Buffer> frameHandler = frame -> {
+        MessageImpl received = new MessageImpl();
+        received.readFromWire(socket, frame, userCodecMap, systemCodecs, decoder);
+        if (received.codec() == PING_MESSAGE_CODEC) {
+          String ringFile;
+          if (received.getHeader(RING_WAKE_HEADER) != null) {
+            ringReader.wakeUp();
+          } else if (sharedMemory && (ringFile = received.getHeader(RING_FILE_HEADER)) != null) {
+            if (ringReader.open(ringFile)) {
+              socket.write(Buffer.buffer(new byte[] { RING_ACK }));
             }
+          } else if (compactWire && received.getHeader(WIRE_VERSION_HEADER) != null) {
+            // The frames are read whatever their version, the other node only needs to know it can send compact ones
+            socket.write(WIRE_VERSION);
+          } else if (sendPong) {
+            // Just send back pong directly on connection
+            socket.write(PONG);
           }
+        } else {
+          receiveMessage(received, null);
         }
       };
-      parser.setOutput(handler);
-      socket.handler(parser);
+      // The ring has its own parser as its bytes are not interleaved with those of the socket
+      ringReader.parser = new FrameParser(frameHandler);
+      socket.handler(new FrameParser(frameHandler));
     };
     server.setHandler(sockHandler);
   }
 
-  private <T> void sendToSubs(ChoosableIterable<ServerID> subs, MessageImpl message,
-                              long timeoutID,
-                              Handler<AsyncResult<Message<T>>> asyncResultHandler,
-                              Handler<Message<T>> replyHandler) {
+  private void sendToSubs(ChoosableIterable<ServerID> subs, MessageImpl message, ReplyTable.Entry reply,
+                          RoutingPolicy policy) {
     if (message.send()) {
       // Choose one
-      ServerID sid = subs.choose();
+      ServerID sid = chooseServer(subs, message.address(), policy);
+      if (reply != null && usesNodeStats(policy)) {
+        NodeStats stats = nodeStats.computeIfAbsent(sid, id -> new NodeStats());
+        reply.sentTime = stats.requestSent();
+        reply.target = stats;
+      }
       if (!sid.equals(serverID)) {  //We don't send to this node
         sendRemote(sid, message);
       } else {
-        receiveMessage(message, timeoutID, asyncResultHandler, replyHandler);
+        receiveMessage(message, reply);
       }
     } else {
-      // Publish
+      // Publish, the message is encoded once for all the servers unless its priority needs the compact frames
+      boolean local = false;
+      Buffer frame = null;
       for (ServerID sid : subs) {
         if (!sid.equals(serverID)) {  //We don't send to this node
-          sendRemote(sid, message);
+          if (message.priority() != 0) {
+            connection(sid, message.address()).writeMessage(message);
+            continue;
+          }
+          if (frame == null) {
+            frame = message.encodeToWire();
+          }
+          connection(sid, message.address()).writeFrame(frame, message.address());
         } else {
-          receiveMessage(message, timeoutID, null, replyHandler);
+          local = true;
+          receiveMessage(message, null);
+        }
+      }
+      if (!local) {
+        // Pattern consumers are not propagated across the cluster
+        message.setBus(this);
+        for (HandlerHolder holder : patterns.match(message.address())) {
+          doReceive(message, holder);
         }
       }
     }
   }
 
+  private ServerID chooseServer(ChoosableIterable<ServerID> subs, String address, RoutingPolicy policy) {
+    switch (policy) {
+      case LOCAL_FIRST:
+        Handlers handlers = handlerMap.get(address);
+        if ((handlers != null && !handlers.list.isEmpty()) || !patterns.match(address).isEmpty()) {
+          return serverID;
+        }
+        break;
+      case SAME_HOST_FIRST:
+        int count = 0;
+        for (ServerID sid : subs) {
+          if (sid.host.equals(serverID.host)) {
+            count++;
+          }
+        }
+        if (count > 0) {
+          int pos = (sameHostPos.getAndIncrement() & Integer.MAX_VALUE) % count;
+          for (ServerID sid : subs) {
+            if (sid.host.equals(serverID.host) && pos-- == 0) {
+              return sid;
+            }
+          }
+        }
+        // None or the subscriptions changed meanwhile
+        break;
+      case LEAST_OUTSTANDING:
+        // Starting from the round robin choice spreads the messages over the nodes which are even
+        ServerID best = subs.choose();
+        int min = outstanding(best);
+        for (ServerID sid : subs) {
+          int outstanding = outstanding(sid);
+          if (outstanding < min) {
+            best = sid;
+            min = outstanding;
+          }
+        }
+        return best;
+      case POWER_OF_TWO_CHOICES:
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ServerID a = null, b = null;
+        if (subs instanceof SubsCache.Servers) {
+          SubsCache.Servers servers = (SubsCache.Servers) subs;
+          int size = servers.size();
+          if (size >= 2) {
+            int first = random.nextInt(size);
+            a = servers.get(first);
+            b = servers.get((first + 1 + random.nextInt(size - 1)) % size);
+          }
+        } else {
+          // Not cached, the two nodes are sampled in a single walk
+          int seen = 0;
+          for (ServerID sid : subs) {
+            seen++;
+            if (seen == 1) {
+              a = sid;
+            } else if (seen == 2) {
+              b = sid;
+            } else {
+              int pos = random.nextInt(seen);
+              if (pos == 0) {
+                a = sid;
+              } else if (pos == 1) {
+                b = sid;
+              }
+            }
+          }
+        }
+        if (a == null || b == null) {
+          break;
+        }
+        return lessLoaded(a, b);
+    }
+    return subs.choose();
+  }
+
+  // The other policies do not read the node stats, so they are not maintained for them
+  private static boolean usesNodeStats(RoutingPolicy policy) {
+    return policy == RoutingPolicy.LEAST_OUTSTANDING || policy == RoutingPolicy.POWER_OF_TWO_CHOICES;
+  }
+
+  private ServerID lessLoaded(ServerID a, ServerID b) {
+    NodeStats statsA = nodeStats.get(a);
+    NodeStats statsB = nodeStats.get(b);
+    long latencyA = statsA != null ? statsA.latency.get() : 0;
+    long latencyB = statsB != null ? statsB.latency.get() : 0;
+    // A node which never replied yet is assumed as fast as the other one and wins a tie so it gets probed
+    boolean probeB = latencyB == 0 && latencyA != 0;
+    if (latencyA == 0) {
+      latencyA = latencyB == 0 ? 1 : latencyB;
+    }
+    if (latencyB == 0) {
+      latencyB = latencyA;
+    }
+    long loadA = (outstanding(a) + 1) * latencyA;
+    long loadB = (outstanding(b) + 1) * latencyB;
+    return loadA < loadB || (loadA == loadB && !probeB) ? a : b;
+  }
+
+  private int outstanding(ServerID sid) {
+    NodeStats stats = nodeStats.get(sid);
+    return stats != null ? stats.outstanding.get() : 0;
+  }
+
+  /**
+   * @param elapsed true when the request got a reply or timed out, its latency is then recorded
+   */
+  private void requestDone(ReplyTable.Entry reply, boolean elapsed) {
+    NodeStats stats = reply.target;
+    if (stats != null) {
+      if (elapsed) {
+        stats.requestDone(reply.sentTime);
+      } else {
+        stats.requestDone();
+      }
+    }
+  }
+
   private MessageCodec[] systemCodecs() {
     return codecs(NULL_MESSAGE_CODEC, PING_MESSAGE_CODEC, STRING_MESSAGE_CODEC, BUFFER_MESSAGE_CODEC, JSON_OBJECT_MESSAGE_CODEC, JSON_ARRAY_MESSAGE_CODEC,
       BYTE_ARRAY_MESSAGE_CODEC, INT_MESSAGE_CODEC, LONG_MESSAGE_CODEC, FLOAT_MESSAGE_CODEC, DOUBLE_MESSAGE_CODEC,
-      BOOLEAN_MESSAGE_CODEC, SHORT_MESSAGE_CODEC, CHAR_MESSAGE_CODEC, BYTE_MESSAGE_CODEC, REPLY_EXCEPTION_MESSAGE_CODEC);
+      BOOLEAN_MESSAGE_CODEC, SHORT_MESSAGE_CODEC, CHAR_MESSAGE_CODEC, BYTE_MESSAGE_CODEC, REPLY_EXCEPTION_MESSAGE_CODEC,
+      JSON_OBJECT_BINARY_MESSAGE_CODEC, JSON_ARRAY_BINARY_MESSAGE_CODEC);
   }
 
   private MessageCodec[] codecs(MessageCodec... codecs) {
@@ -464,63 +836,48 @@ public class EventBusImpl implements EventBus {
     return arr;
   }
 
-  private String generateReplyAddress() {
-    if (clusterMgr != null) {
-      // The address is a cryptographically secure id that can't be guessed
-      return UUID.randomUUID().toString();
-    } else {
-      // Just use a sequence - it's faster
-      return Long.toString(replySequence.incrementAndGet());
-    }
-  }
-
   private <T> void sendOrPub(ServerID replyDest, MessageImpl message, DeliveryOptions options,
                              Handler<AsyncResult<Message<T>>> replyHandler) {
     checkStarted();
+    if (options != null) {
+      message.setPriority(options.getPriority());
+    }
     metrics.messageSent(message.address(), !message.send());
     ContextImpl context = vertx.getOrCreateContext();
-    Handler<Message<T>> simpleReplyHandler = null;
     try {
-      long timeoutID = -1;
+      ReplyTable.Entry reply = null;
       if (replyHandler != null) {
-        message.setReplyAddress(generateReplyAddress());
-        AtomicReference<MessageConsumer> refReg = new AtomicReference<>();
-        // Add a timeout to remove the reply handler to prevent leaks in case a reply never comes
-        timeoutID = vertx.setTimer(options.getSendTimeout(), timerID -> {
-          log.warn("Message reply handler timed out as no reply was received - it will be removed");
-          refReg.get().unregister();
-          metrics.replyFailure(message.address(), ReplyFailure.TIMEOUT);
-          replyHandler.handle(Future.completedFuture(new ReplyException(ReplyFailure.TIMEOUT, "Timed out waiting for reply")));
-        });
-        simpleReplyHandler = convertHandler(replyHandler);
-        MessageConsumer registration = registerHandler(message.replyAddress(), simpleReplyHandler, true, true, timeoutID);
-        refReg.set(registration);
+        // The reply table removes the reply handler when it times out to prevent leaks in case a reply never comes
+        reply = replies.add(message.address(), context, replyHandler, options.getSendTimeout());
+        message.setReplyAddress(reply.replyAddress);
+        // Nobody reads the reply after the timeout so the message is not worth handling anymore
+        message.setTimeToLive(options.getSendTimeout());
       }
       if (replyDest != null) {
         if (!replyDest.equals(this.serverID)) {
           sendRemote(replyDest, message);
         } else {
-          receiveMessage(message, timeoutID, replyHandler, simpleReplyHandler);
+          receiveMessage(message, reply);
         }
       } else {
-        if (subs != null) {
-          long fTimeoutID = timeoutID;
-          Handler<Message<T>> fSimpleReplyHandler = simpleReplyHandler;
-          subs.get(message.address(), asyncResult -> {
+        if (subs != null && !localOnly(message.address(), options)) {
+          ReplyTable.Entry fReply = reply;
+          RoutingPolicy policy = options != null && options.getRoutingPolicy() != null ? options.getRoutingPolicy() : routingPolicy;
+          subsCache.get(message.address(), asyncResult -> {
             if (asyncResult.succeeded()) {
               ChoosableIterable<ServerID> serverIDs = asyncResult.result();
               if (serverIDs != null && !serverIDs.isEmpty()) {
-                sendToSubs(serverIDs, message, fTimeoutID, replyHandler, fSimpleReplyHandler);
+                sendToSubs(serverIDs, message, fReply, policy);
               } else {
-                receiveMessage(message, fTimeoutID, replyHandler, fSimpleReplyHandler);
+                receiveMessage(message, fReply);
               }
             } else {
               log.error("Failed to send message", asyncResult.cause());
             }
           });
         } else {
-          // Not clustered
-          receiveMessage(message, timeoutID, replyHandler, simpleReplyHandler);
+          // Not clustered or local only
+          receiveMessage(message, reply);
         }
       }
     } finally {
@@ -532,30 +889,21 @@ public class EventBusImpl implements EventBus {
     }
   }
 
-  private <T> Handler<Message<T>> convertHandler(Handler<AsyncResult<Message<T>>> handler) {
-    return reply -> {
-      Future<Message<T>> result;
-      if (reply.body() instanceof ReplyException) {
-        // This is kind of clunky - but hey-ho
-        ReplyException exception = (ReplyException) reply.body();
-        metrics.replyFailure(reply.address(), exception.failureType());
-        result = Future.completedFuture(exception);
-      } else {
-        result = Future.completedFuture(reply);
-      }
-      handler.handle(result);
-    };
+  private boolean localOnly(String address, DeliveryOptions options) {
+    return (options != null && options.isLocalOnly()) || localAddresses.contains(address);
   }
 
-  private <T> MessageConsumer registerHandler(String address, Handler<Message<T>> handler,
-                                       boolean replyHandler, boolean localOnly, long timeoutID) {
-    HandlerRegistration<T> registration = new HandlerRegistration<>(address, replyHandler, localOnly, timeoutID);
-    registration.handler(handler);
-    return registration;
+  @SuppressWarnings("unchecked")
+  private void replyTimeout(ReplyTable.Entry reply) {
+    requestDone(reply, true);
+    reply.context.runOnContext(v -> {
+      log.warn("Message reply handler timed out as no reply was received - it will be removed");
+      metrics.replyFailure(reply.address, ReplyFailure.TIMEOUT);
+      reply.handler.handle(Future.completedFuture(new ReplyException(ReplyFailure.TIMEOUT, "Timed out waiting for reply")));
+    });
   }
 
-  private <T> void registerHandler(String address, HandlerRegistration<T> registration,
-                                   boolean replyHandler, boolean localOnly, long timeoutID) {
+  private <T> void registerHandler(String address, HandlerRegistration<T> registration, boolean localOnly) {
     checkStarted();
     Objects.requireNonNull(address, "address");
     Objects.requireNonNull(registration.handler, "handler");
@@ -565,26 +913,27 @@ public class EventBusImpl implements EventBus {
       // Embedded
       context = vertx.createEventLoopContext(null, new JsonObject(), Thread.currentThread().getContextClassLoader());
     }
-    HandlerHolder holder = new HandlerHolder<T>(registration, replyHandler, localOnly, context, timeoutID);
+    HandlerHolder<T> holder = new HandlerHolder<>(registration, localOnly, context, registration.shardKey, registration.lanes);
+    registration.holder = holder;
 
-    Handlers handlers = handlerMap.get(address);
-    if (handlers == null) {
-      handlers = new Handlers();
-      Handlers prevHandlers = handlerMap.putIfAbsent(address, handlers);
-      if (prevHandlers != null) {
-        handlers = prevHandlers;
-      }
-      if (subs != null && !replyHandler && !localOnly) {
-        // Propagate the information
-        subs.add(address, serverID, registration::setResult);
-      } else {
-        registration.setResult(Future.completedFuture());
-      }
+    boolean propagate;
+    if (registration.pattern) {
+      patterns.add(address, holder);
+      propagate = false;
     } else {
-      registration.setResult(Future.completedFuture());
+      propagate = addHandler(address, holder) && subs != null && !localOnly;
+    }
+    if (registration.pattern) {
+      routeVersion.incrementAndGet();
     }
 
-    handlers.list.add(holder);
+    // The handler is added before the registration completes so a message sent by the completion handler reaches it
+    if (propagate) {
+      // Propagate the information
+      subsBatcher.add(address, registration::setResult);
+    } else {
+      registration.setResult(Future.completedFuture());
+    }
 
     if (hasContext) {
       HandlerEntry entry = new HandlerEntry<T>(address, registration);
@@ -592,8 +941,43 @@ public class EventBusImpl implements EventBus {
     }
   }
 
+  /**
+   * @return true when the handler is the first one of the address
+   */
+  private boolean addHandler(String address, HandlerHolder holder) {
+    while (true) {
+      Handlers handlers = handlerMap.get(address);
+      boolean first = handlers == null;
+      if (first) {
+        handlers = new Handlers();
+        Handlers prevHandlers = handlerMap.putIfAbsent(address, handlers);
+        if (prevHandlers != null) {
+          handlers = prevHandlers;
+          first = false;
+        }
+      }
+      synchronized (handlers) {
+        // The last handler of this entry may just have been unregistered, the routes no longer look at it
+        if (!handlers.removed) {
+          handlers.list.add(holder);
+          return first;
+        }
+      }
+    }
+  }
+
   private <T> void unregisterHandler(String address, Handler<Message<T>> handler, Handler<AsyncResult<Void>> completionHandler) {
     checkStarted();
+    if (handler instanceof HandlerRegistration && ((HandlerRegistration) handler).pattern) {
+      HandlerHolder holder = patterns.remove(address, h -> h.handler == handler);
+      if (holder != null) {
+        routeVersion.incrementAndGet();
+        holder.setRemoved();
+        callCompletionHandlerAsync(completionHandler);
+        holder.context.removeCloseHook(new HandlerEntry<T>(address, handler));
+      }
+      return;
+    }
     Handlers handlers = handlerMap.get(address);
     if (handlers != null) {
       synchronized (handlers) {
@@ -603,15 +987,16 @@ public class EventBusImpl implements EventBus {
         for (int i = 0; i < size; i++) {
           HandlerHolder holder = handlers.list.get(i);
           if (holder.handler == handler) {
-            if (holder.timeoutID != -1) {
-              vertx.cancelTimer(holder.timeoutID);
-            }
             handlers.list.remove(i);
             holder.setRemoved();
-            if (handlers.list.isEmpty()) {
+            boolean last = handlers.list.isEmpty();
+            if (last) {
+              handlers.removed = true;
               handlerMap.remove(address);
+            }
+            if (last) {
               if (subs != null && !holder.localOnly) {
-                removeSub(address, serverID, completionHandler);
+                removeSub(address, completionHandler);
               } else {
                 callCompletionHandlerAsync(completionHandler);
               }
@@ -626,10 +1011,6 @@ public class EventBusImpl implements EventBus {
     }
   }
 
-  private <T> void unregisterHandler(String address, Handler<Message<T>> handler) {
-    unregisterHandler(address, handler, null);
-  }
-
   private void callCompletionHandlerAsync(Handler<AsyncResult<Void>> completionHandler) {
     if (completionHandler != null) {
       vertx.runOnContext(v -> {
@@ -647,17 +1028,31 @@ public class EventBusImpl implements EventBus {
 
 
   private void sendRemote(ServerID theServerID, MessageImpl message) {
+    connection(theServerID, message.address()).writeMessage(message);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ConcurrentMap<ServerID, ConnectionHolder>[] connectionMaps(int stripes) {
+    ConcurrentMap<ServerID, ConnectionHolder>[] maps = new ConcurrentMap[stripes];
+    for (int i = 0; i < stripes; i++) {
+      maps[i] = new ConcurrentHashMap<>();
+    }
+    return maps;
+  }
+
+  private ConnectionHolder connection(ServerID theServerID, String address) {
+    int stripe = connections.length == 1 ? 0 : (address.hashCode() & Integer.MAX_VALUE) % connections.length;
     // We need to deal with the fact that connecting can take some time and is async, and we cannot
     // block to wait for it. So we add any sends to a pending list if not connected yet.
     // Once we connect we send them.
     // This can also be invoked concurrently from different threads, so it gets a little
     // tricky
-    ConnectionHolder holder = connections.get(theServerID);
+    ConnectionHolder holder = connections[stripe].get(theServerID);
     if (holder == null) {
       // When process is creating a lot of connections this can take some time
       // so increase the timeout
-      holder = new ConnectionHolder(theServerID);
-      ConnectionHolder prevHolder = connections.putIfAbsent(theServerID, holder);
+      holder = new ConnectionHolder(theServerID, stripe);
+      ConnectionHolder prevHolder = connections[stripe].putIfAbsent(theServerID, holder);
       if (prevHolder != null) {
         // Another one sneaked in
         holder = prevHolder;
@@ -665,49 +1060,96 @@ public class EventBusImpl implements EventBus {
         holder.connect();
       }
     }
-    holder.writeMessage(message);
+    return holder;
   }
 
-  private void removeSub(String subName, ServerID theServerID, Handler<AsyncResult<Void>> completionHandler) {
-    subs.remove(subName, theServerID, ar -> {
+  private void removeSub(String subName, Handler<AsyncResult<Void>> completionHandler) {
+    subsBatcher.remove(subName, ar -> {
       if (!ar.succeeded()) {
         log.error("Couldn't find sub to remove");
-      } else {
+      } else if (completionHandler != null) {
         completionHandler.handle(Future.completedFuture());
       }
     });
   }
 
   // Called when a message is incoming
-  private <T> void receiveMessage(MessageImpl msg, long timeoutID, Handler<AsyncResult<Message<T>>> replyHandler,
-                                  Handler<Message<T>> simpleReplyHandler) {
+  @SuppressWarnings("unchecked")
+  private void receiveMessage(MessageImpl msg, ReplyTable.Entry reply) {
     msg.setBus(this);
-    Handlers handlers = handlerMap.get(msg.address());
-    if (handlers != null) {
-      if (msg.send()) {
-        //Choose one
-        HandlerHolder holder = handlers.choose();
-        if (holder != null) {
-          doReceive(msg, holder);
-        }
+    if (ReplyTable.isReplyAddress(msg.address())) {
+      // Replies are looked up in the reply table and not in the handler map
+      ReplyTable.Entry replied = replies.remove(msg.address());
+      if (replied != null) {
+        requestDone(replied, true);
+        doReceiveReply(msg, replied);
+        return;
+      }
+    } else if (MessageProducerImpl.isCreditAddress(msg.address())) {
+      // Credits go straight to their producer, a closed producer does not need them anymore
+      MessageProducerImpl<?> producer = producers.get(msg.address());
+      if (producer != null) {
+        producer.receiveCredit((Integer) msg.copyBeforeReceive().body());
+      }
+      return;
+    } else {
+      Handlers handlers = handlerMap.get(msg.address());
+      // Exact addresses are looked up first, the pattern trie is only walked when there are pattern consumers
+      List<HandlerHolder> matches = patterns.match(msg.address());
+      if (deliver(msg, handlers, matches)) {
+        return;
+      }
+    }
+    // no handlers
+    returnCredit(msg);
+    if (reply != null && replies.remove(reply)) {
+      requestDone(reply, false);
+      sendNoHandlersFailure(msg.address(), reply.handler);
+    }
+  }
+
+  /**
+   * @return false when there is no handler to deliver the message to
+   */
+  private boolean deliver(MessageImpl msg, Handlers handlers, List<HandlerHolder> matches) {
+    if (handlers == null && matches.isEmpty()) {
+      return false;
+    }
+    if (msg.send()) {
+      //Choose one
+      HandlerHolder holder = handlers != null ? handlers.choose() : null;
+      if (holder == null && !matches.isEmpty()) {
+        holder = matches.get((patternPos.getAndIncrement() & 0x7FFFFFFF) % matches.size());
+      }
+      if (holder != null) {
+        doReceive(msg, holder);
       } else {
-        // Publish
+        // The handlers were removed meanwhile
+        returnCredit(msg);
+      }
+    } else {
+      // Publish
+      if (handlers != null) {
         for (HandlerHolder holder: handlers.list) {
           doReceive(msg, holder);
         }
       }
-    } else {
-      // no handlers
-      if (replyHandler != null) {
-        sendNoHandlersFailure(msg.address(), replyHandler);
-        if (timeoutID != -1) {
-          vertx.cancelTimer(timeoutID);
-        }
-        if (simpleReplyHandler != null) {
-          unregisterHandler(msg.replyAddress(), simpleReplyHandler);
-        }
+      for (HandlerHolder holder: matches) {
+        doReceive(msg, holder);
       }
     }
+    return true;
+  }
+
+  private void failReply(String replyAddress, ReplyFailure failure, String message) {
+    ReplyTable.Entry reply = replies.remove(replyAddress);
+    if (reply != null) {
+      requestDone(reply, false);
+      reply.context.runOnContext(v -> {
+        metrics.replyFailure(reply.address, failure);
+        reply.handler.handle(Future.completedFuture(new ReplyException(failure, message)));
+      });
+    }
   }
 
   private <T> void sendNoHandlersFailure(String address, Handler<AsyncResult<Message<T>>> handler) {
@@ -722,22 +1164,47 @@ public class EventBusImpl implements EventBus {
 
 
   private <T> void doReceive(MessageImpl msg, HandlerHolder<T> holder) {
+    if (expired(msg)) {
+      returnCredit(msg);
+      return;
+    }
     // Each handler gets a fresh copy
     @SuppressWarnings("unchecked")
     Message<T> copied = msg.copyBeforeReceive();
+    holder.deliver(copied);
+  }
 
-    holder.context.runOnContext((v) -> {
-      // Need to check handler is still there - the handler might have been removed after the message were sent but
-      // before it was received
-      try {
-        if (!holder.isRemoved()) {
-          metrics.messageReceived(msg.address());
-          holder.handler.handle(copied);
-        }
-      } finally {
-        if (holder.replyHandler) {
-          unregisterHandler(msg.address(), holder.handler);
-        }
+  /**
+   * Drops a message when its deadline has passed, the sender is failed if it is still waiting for the reply.
+   */
+  private boolean expired(MessageImpl msg) {
+    if (!msg.expired()) {
+      return false;
+    }
+    metrics.messageExpired(msg.address());
+    if (msg.replyAddress() != null) {
+      sendReply(msg.sender(), createMessage(true, msg.replyAddress(), null,
+        new ReplyException(ReplyFailure.EXPIRED, "Message expired before delivery"), null), null, null);
+    }
+    return true;
+  }
+
+  private <T> void doReceiveReply(MessageImpl msg, ReplyTable.Entry reply) {
+    @SuppressWarnings("unchecked")
+    Message<T> copied = msg.copyBeforeReceive();
+    @SuppressWarnings("unchecked")
+    Handler<AsyncResult<Message<T>>> handler = reply.handler;
+
+    // The reply handler has been removed from the table so it can't time out anymore
+    reply.context.runOnContext((v) -> {
+      metrics.messageReceived(msg.address());
+      if (copied.body() instanceof ReplyException) {
+        // This is kind of clunky - but hey-ho
+        ReplyException exception = (ReplyException) copied.body();
+        metrics.replyFailure(copied.address(), exception.failureType());
+        handler.handle(Future.completedFuture(exception));
+      } else {
+        handler.handle(Future.completedFuture(copied));
       }
     });
   }
@@ -748,17 +1215,37 @@ public class EventBusImpl implements EventBus {
     }
   }
 
-  private static class HandlerHolder<T> {
+  /*
+   * Messages are added to the holder mailbox and a single drain task delivers them in batch on the context, so
+   * a flood of messages from another thread does not cost a task submission (and an event loop wake-up) per message.
+   *
+   * The messages of a sharded consumer are delivered on the worker context of the lane of their shard key instead.
+   */
+  private class HandlerHolder<T> implements Handler<Void> {
     final ContextImpl context;
     final Handler<Message<T>> handler;
-    final boolean replyHandler;
     final boolean localOnly;
-    final long timeoutID;
+    final PriorityQueues<MessageImpl> mailbox;
+    final AtomicBoolean scheduled;
+    final Function<Message<T>, ?> shardKey;
+    final ContextImpl[] lanes;
     boolean removed;
 
     // We use a synchronized block to protect removed as it can be unregistered from a different thread
-    synchronized void setRemoved() {
-      removed = true;
+    void setRemoved() {
+      synchronized (this) {
+        removed = true;
+      }
+      if (lanes != null) {
+        // The lanes belong to the consumer, the resources its handler registered on them are closed with it
+        for (ContextImpl lane : lanes) {
+          lane.runOnContext(v -> lane.runCloseHooks(ar -> {
+            if (ar.failed()) {
+              log.error("Failed to run close hook", ar.cause());
+            }
+          }));
+        }
+      }
     }
 
     // Because of biased locks the overhead of the synchronized lock should be very low as it's almost always
@@ -767,12 +1254,86 @@ public class EventBusImpl implements EventBus {
       return removed;
     }
 
-    HandlerHolder(Handler<Message<T>> handler, boolean replyHandler, boolean localOnly, ContextImpl context, long timeoutID) {
+    HandlerHolder(Handler<Message<T>> handler, boolean localOnly, ContextImpl context,
+                  Function<Message<T>, ?> shardKey, int lanes) {
       this.context = context;
       this.handler = handler;
-      this.replyHandler = replyHandler;
       this.localOnly = localOnly;
-      this.timeoutID = timeoutID;
+      this.shardKey = shardKey;
+      if (lanes > 0) {
+        // Each lane is an ordered executor on the worker pool
+        this.lanes = new ContextImpl[lanes];
+        for (int i = 0; i < lanes; i++) {
+          this.lanes[i] = vertx.createWorkerContext(false, context.deploymentID(), context.config(),
+            Thread.currentThread().getContextClassLoader());
+        }
+      } else {
+        this.lanes = null;
+      }
+      if (lanes > 0 || context.isMultiThreaded()) {
+        // Messages can be handled concurrently so they are delivered one by one
+        this.mailbox = null;
+        this.scheduled = null;
+      } else {
+        this.mailbox = new PriorityQueues<>(PlatformDependent::newMpscQueue);
+        this.scheduled = new AtomicBoolean();
+      }
+    }
+
+    // Can be called from any thread
+    void deliver(Message<T> message) {
+      if (lanes != null) {
+        laneOf(message).runOnContext(v -> receive(message));
+      } else if (mailbox == null) {
+        context.runOnContext(v -> receive(message));
+      } else {
+        mailbox.add((MessageImpl) message, ((MessageImpl) message).priority());
+        if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+          context.runOnContext(this);
+        }
+      }
+    }
+
+    // The lane the messages of the shard key of the message are handled on
+    ContextImpl laneOf(Message<T> message) {
+      Object key = shardKey.apply(message);
+      return lanes[key == null ? 0 : (key.hashCode() & 0x7FFFFFFF) % lanes.length];
+    }
+
+    // The drain task - a bounded batch is delivered per run so the other tasks of the context are not starved
+    @Override
+    public void handle(Void v) {
+      for (int i = 0; i < MAX_DELIVERY_BATCH_SIZE; i++) {
+        @SuppressWarnings("unchecked")
+        Message<T> message = mailbox.poll();
+        if (message == null) {
+          break;
+        }
+        try {
+          receive(message);
+        } catch (Throwable t) {
+          log.error("Unhandled exception", t);
+        }
+      }
+      if (mailbox.isEmpty()) {
+        scheduled.set(false);
+        // A message can have been added before the flag was cleared
+        if (mailbox.isEmpty() || !scheduled.compareAndSet(false, true)) {
+          return;
+        }
+      }
+      context.runOnContext(this);
+    }
+
+    private void receive(Message<T> message) {
+      // Need to check handler is still there - the handler might have been removed after the message were sent but
+      // before it was received
+      if (!isRemoved()) {
+        metrics.messageReceived(message.address());
+        handler.handle(message);
+      } else {
+        returnCredit((MessageImpl) message);
+      }
     }
 
     @Override
@@ -790,17 +1351,45 @@ public class EventBusImpl implements EventBus {
     }
   }
 
+  /*
+   * Messages written to a connected server are encoded in a batch buffer which is written and flushed by a task run
+   * on the context of the connection, so the messages sent during an event loop turn go out in a single write.
+   * A batch reaching MAX_BATCH_BYTES is written straight away. Frames already encoded, when a message is published to
+   * several servers, are copied in the batch or written as they are when they are large.
+   * When the server is on the same host the flushed buffers go through a shared memory ring once the server mapped it,
+   * the socket then only carries the pings and the wake ups of the server.
+   */
   private class ConnectionHolder {
     final NetClient client;
-    final Queue<MessageImpl> pending = new ArrayDeque<>();
+    final Queue<Pending> pending = new ArrayDeque<>();
+    // The buffers flushed out of the event loop of the connection, written in order on the event loop
+    final Queue<Buffer> ready = new ArrayDeque<>();
     final ServerID theServerID;
+    final int stripe;
     volatile NetSocket socket;
-    volatile boolean connected;
+    boolean connected;
+    // Until the other node answers the hello the messages stay pending, they are written once the protocol is known
+    boolean negotiating;
+    EventLoop eventLoop;
+    boolean flushScheduled;
+    // Set once the other node acknowledged the compact protocol
+    WireEncoder encoder;
+    Buffer batch;
+    int batched;
+    // Set once the other node mapped the ring file
+    SharedMemoryRing ring;
+    // The ring created until the other node maps it
+    SharedMemoryRing pendingRing;
+    // The bytes of the head of the ready queue already written to the ring
+    int ringOffset;
+    boolean ringRetryScheduled;
     long timeoutID = -1;
     long pingTimeoutID = -1;
+    int attempts;
 
-    private ConnectionHolder(ServerID serverID) {
+    private ConnectionHolder(ServerID serverID, int stripe) {
       this.theServerID = serverID;
+      this.stripe = stripe;
       client = vertx.createNetClient(new NetClientOptions().setConnectTimeout(60 * 1000));
     }
 
@@ -815,12 +1404,32 @@ public class EventBusImpl implements EventBus {
         client.close();
       } catch (Exception ignore) {
       }
+      synchronized (this) {
+        if (encoder != null) {
+          encoder.close();
+          encoder = null;
+        }
+        if (ring != null) {
+          ring.close();
+          ring = null;
+        }
+        if (pendingRing != null) {
+          pendingRing.close();
+          pendingRing = null;
+        }
+        // The messages waiting for the connection are lost
+        for (Pending message : pending) {
+          returnCredit(serverID, message.creditAddress);
+        }
+        clearPending();
+      }
 
       // The holder can be null or different if the target server is restarted with same serverid
       // before the cleanup for the previous one has been processed
       // So we only actually remove the entry if no new entry has been added
-      if (connections.remove(theServerID, this)) {
+      if (connections[stripe].remove(theServerID, this)) {
         log.debug("Cluster connection closed: " + theServerID + " holder " + this);
+        nodeStats.remove(theServerID);
         if (failed) {
           cleanSubsForServerID(theServerID);
         }
@@ -835,47 +1444,271 @@ public class EventBusImpl implements EventBus {
           log.warn("No pong from server " + serverID + " - will consider it dead");
           close(true);
         });
-        MessageImpl pingMessage = new MessageImpl<>(serverID, PING_ADDRESS, null, null, null, new PingMessageCodec(), true);
-        socket.write(pingMessage.encodeToWire());
+        socket.write(pingFrame);
       });
     }
 
-    void writeMessage(MessageImpl message) {
-      if (connected) {
-        socket.write(message.encodeToWire());
+    synchronized void writeMessage(MessageImpl message) {
+      if (encoder != null) {
+        message.encodeToWire(batch(), encoder);
+        batched();
+      } else if (connected && !negotiating) {
+        message.encodeToWire(batch());
+        batched();
+        // The frames of the first version of the protocol do not carry the credit address, the other node does not
+        // give credits back so the producer gets it now
+        returnCredit(serverID, message.creditAddress());
       } else {
-        synchronized (this) {
-          if (connected) {
-            socket.write(message.encodeToWire());
-          } else {
-            pending.add(message);
+        addPending(new Pending(message));
+      }
+    }
+
+    synchronized void writeFrame(Buffer frame, String address) {
+      if (!connected || negotiating) {
+        addPending(new Pending(frame, address));
+      } else if (frame.length() >= MAX_BATCH_BYTES) {
+        // Writing the frame shares it with the other connections instead of copying it
+        flush();
+        metrics.messagesFlushed(1, frame.length());
+        write(frame);
+      } else {
+        batch().appendBuffer(frame);
+        batched();
+      }
+    }
+
+    private void addPending(Pending message) {
+      Pending dropped = null;
+      if (pending.size() >= pendingMaxSize) {
+        if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+          dropped = pending.poll();
+          pendingMessages.decrementAndGet();
+        } else {
+          dropped = message;
+        }
+      }
+      if (dropped != message) {
+        pending.add(message);
+        metrics.messagesPending(pendingMessages.incrementAndGet());
+      }
+      if (dropped != null) {
+        metrics.messageOverflow(dropped.address);
+        if (dropped.replyAddress != null) {
+          failReply(dropped.replyAddress, ReplyFailure.OVERFLOW, "Too many messages waiting for a connection to " + theServerID);
+        }
+        // The producer of the dropped message gets its credit back, whichever message is dropped
+        returnCredit(serverID, dropped.creditAddress);
+      }
+    }
+
+    private void clearPending() {
+      if (!pending.isEmpty()) {
+        metrics.messagesPending(pendingMessages.addAndGet(-pending.size()));
+        pending.clear();
+      }
+    }
+
+    private Buffer batch() {
+      if (batch == null) {
+        batch = Buffer.buffer(1024);
+        scheduleFlush();
+      }
+      return batch;
+    }
+
+    private void batched() {
+      batched++;
+      if (batch.length() >= MAX_BATCH_BYTES) {
+        flush();
+      }
+    }
+
+    private void scheduleFlush() {
+      if (!flushScheduled) {
+        flushScheduled = true;
+        eventLoop.execute(() -> {
+          synchronized (this) {
+            flushScheduled = false;
+            flush();
+            writeReady();
+          }
+        });
+      }
+    }
+
+    synchronized void flush() {
+      if (batch != null) {
+        metrics.messagesFlushed(batched, batch.length());
+        Buffer flushed = batch;
+        batch = null;
+        batched = 0;
+        write(flushed);
+      }
+    }
+
+    // Netty writes right away on the event loop of the channel but queues the writes of the other threads, so writing
+    // from both would reorder the frames and break the dictionary of the compact protocol
+    private void write(Buffer buffer) {
+      if (ring == null && eventLoop.inEventLoop()) {
+        writeReady();
+        socket.write(buffer);
+      } else {
+        ready.add(buffer);
+        if (eventLoop.inEventLoop()) {
+          writeReady();
+        } else {
+          scheduleFlush();
+        }
+      }
+    }
+
+    private void writeReady() {
+      if (ring != null) {
+        writeRing();
+        return;
+      }
+      Buffer buffer;
+      while ((buffer = ready.poll()) != null) {
+        socket.write(buffer);
+      }
+    }
+
+    // A full ring keeps the rest of the buffers in the ready queue until the server read some bytes
+    private void writeRing() {
+      boolean written = false;
+      Buffer buffer;
+      while ((buffer = ready.peek()) != null) {
+        int len = ring.write(buffer, ringOffset);
+        written |= len > 0;
+        ringOffset += len;
+        if (ringOffset < buffer.length()) {
+          if (!ringRetryScheduled) {
+            ringRetryScheduled = true;
+            eventLoop.schedule(() -> {
+              synchronized (this) {
+                ringRetryScheduled = false;
+                writeReady();
+              }
+            }, RING_RETRY_DELAY_MICROS, TimeUnit.MICROSECONDS);
           }
+          break;
         }
+        ready.poll();
+        ringOffset = 0;
+      }
+      if (written && ring.wakeUpNeeded()) {
+        socket.write(ringWakeFrame);
       }
     }
 
     synchronized void connected(NetSocket socket) {
       this.socket = socket;
       connected = true;
+      eventLoop = vertx.getOrCreateContext().getEventLoop();
       socket.exceptionHandler(t -> close(true));
       socket.closeHandler(v -> close(false));
       socket.handler(data -> {
-        // Got a pong back
-        vertx.cancelTimer(timeoutID);
-        schedulePing();
+        boolean pong = false;
+        for (int i = 0; i < data.length(); i++) {
+          byte b = data.getByte(i);
+          if (b == MessageImpl.WIRE_PROTOCOL_VERSION) {
+            negotiated(true);
+          } else if (b == RING_ACK) {
+            ringMapped();
+          } else {
+            pong = true;
+            negotiated(false);
+          }
+        }
+        // A node which does not know the hello answers it with a pong nobody waits for
+        if (pong && timeoutID != -1) {
+          // Got a pong back
+          vertx.cancelTimer(timeoutID);
+          timeoutID = -1;
+          schedulePing();
+        }
       });
+      if (compactWire) {
+        socket.write(helloFrame);
+        negotiating = true;
+      }
+      if (sharedMemory && theServerID.host.equals(serverID.host)) {
+        createRing();
+      }
       // Start a pinger
       schedulePing();
-      for (MessageImpl message : pending) {
-        socket.write(message.encodeToWire());
+      if (!negotiating) {
+        writePending();
+      }
+    }
+
+    // A node which does not know the compact protocol answers the hello with a pong
+    synchronized void negotiated(boolean compact) {
+      if (compact && encoder == null) {
+        encoder = new WireEncoder();
+      }
+      if (negotiating) {
+        negotiating = false;
+        writePending();
+      }
+    }
+
+    private void writePending() {
+      Pending[] messages = pending.toArray(new Pending[pending.size()]);
+      clearPending();
+      for (Pending message : messages) {
+        if (message.message != null) {
+          writeMessage(message.message);
+        } else {
+          writeFrame(message.frame, message.address);
+        }
+      }
+    }
+
+    private void createRing() {
+      try {
+        pendingRing = SharedMemoryRing.create(SharedMemoryRing.DEFAULT_CAPACITY);
+      } catch (IOException e) {
+        log.warn("Failed to create shared memory ring for " + theServerID + ", will use TCP", e);
+        return;
+      }
+      // The ring is only used once the other node answers, a node of another host or without ring support does not
+      MultiMap headers = new CaseInsensitiveHeaders().add(RING_FILE_HEADER, pendingRing.path());
+      socket.write(new MessageImpl<>(serverID, PING_ADDRESS, null, headers, null, PING_MESSAGE_CODEC, true).encodeToWire());
+    }
+
+    // Called on the event loop of the connection, the buffers written so far go through the socket and the server
+    // only reads the ring after the wake up sent with the first write, so the frames stay in order
+    synchronized void ringMapped() {
+      if (pendingRing != null) {
+        flush();
+        writeReady();
+        ring = pendingRing;
+        pendingRing = null;
+        // The mapping outlives the file
+        ring.deleteFile();
       }
-      pending.clear();
     }
 
     void connect() {
+      if (connections.length == 1) {
+        doConnect();
+      } else {
+        // Each stripe gets its own event loop
+        vertx.createEventLoopContext(null, new JsonObject(), Thread.currentThread().getContextClassLoader())
+          .runOnContext(v -> doConnect());
+      }
+    }
+
+    private void doConnect() {
       client.connect(theServerID.port, theServerID.host, res -> {
         if (res.succeeded()) {
           connected(res.result());
+        } else if (attempts < reconnectAttempts) {
+          // The messages stay pending while the node is retried, each attempt waiting twice as long as the previous one
+          long delay = Math.min(reconnectInterval << attempts, MAX_RECONNECT_DELAY);
+          attempts++;
+          vertx.setTimer(delay, id -> doConnect());
         } else {
           close(true);
         }
@@ -883,10 +1716,141 @@ public class EventBusImpl implements EventBus {
     }
   }
 
+  /*
+   * The reading end of the ring of a connection from a node of the same host. The reader polls the ring on the event
+   * loop of the connection until it stays empty for a few turns, then sleeps until the other node wakes it up.
+   */
+  private class RingReader {
+    FrameParser parser;
+    SharedMemoryRing ring;
+    // The context of the connection, the ring is read and closed on it
+    ContextImpl context;
+    boolean polling;
+    int spins;
+
+    boolean open(String file) {
+      if (ring != null) {
+        return false;
+      }
+      try {
+        ring = SharedMemoryRing.open(file);
+        context = vertx.getOrCreateContext();
+        return true;
+      } catch (IOException e) {
+        log.warn("Failed to map shared memory ring " + file + ", will use TCP", e);
+        return false;
+      }
+    }
+
+    void wakeUp() {
+      if (ring != null && !polling) {
+        polling = true;
+        spins = 0;
+        poll();
+      }
+    }
+
+    private void poll() {
+      if (ring == null) {
+        return;
+      }
+      Buffer data = ring.read();
+      if (data != null) {
+        spins = 0;
+        parser.handle(data);
+      } else if (++spins >= RING_SPINS) {
+        spins = 0;
+        if (ring.sleep()) {
+          polling = false;
+          return;
+        }
+      }
+      // Polling again as a task lets the event loop handle its other channels
+      context.runOnContext(v -> poll());
+    }
+
+    void close() {
+      if (ring != null) {
+        ring.close();
+        ring = null;
+      }
+      polling = false;
+    }
+  }
+
+  // A message is encoded once the protocol of the connection is known, a frame is already encoded
+  private static final class Pending {
+    final MessageImpl message;
+    final Buffer frame;
+    final String address;
+    final String replyAddress;
+    final String creditAddress;
+
+    Pending(MessageImpl message) {
+      this.message = message;
+      this.frame = null;
+      this.address = message.address();
+      this.replyAddress = message.replyAddress();
+      this.creditAddress = message.creditAddress();
+    }
+
+    Pending(Buffer frame, String address) {
+      this.message = null;
+      this.frame = frame;
+      this.address = address;
+      this.replyAddress = null;
+      this.creditAddress = null;
+    }
+  }
+
+  /**
+   * What a producer resolves to send messages to an address, see {@link #sendOrPub(Route, boolean, Object, DeliveryOptions)}.
+   * The handlers of a route are valid until their entry is removed, the matches and the codec until the route version
+   * changes. The resolution is immutable and replaced as a whole, so a route can be used by several threads.
+   */
+  static final class Route {
+    final String address;
+    final String creditAddress;
+    volatile Resolution resolution;
+
+    Route(String address, String creditAddress) {
+      this.address = address;
+      this.creditAddress = creditAddress;
+    }
+
+    static final class Resolution {
+      final long version;
+      final Handlers handlers;
+      final List<HandlerHolder> matches;
+      final MessageCodec codec;
+      final String codecName;
+      final Class<?> bodyClass;
+
+      Resolution(long version, Handlers handlers, List<HandlerHolder> matches, MessageCodec codec, String codecName, Class<?> bodyClass) {
+        this.version = version;
+        this.handlers = handlers;
+        this.matches = matches;
+        this.codec = codec;
+        this.codecName = codecName;
+        this.bodyClass = bodyClass;
+      }
+
+      Resolution withHandlers(Handlers handlers) {
+        return new Resolution(version, handlers, matches, codec, codecName, bodyClass);
+      }
+
+      Resolution withCodec(MessageCodec codec, String codecName, Class<?> bodyClass) {
+        return new Resolution(version, handlers, matches, codec, codecName, bodyClass);
+      }
+    }
+  }
+
   private static class Handlers {
 
     final List<HandlerHolder> list = new CopyOnWriteArrayList<>();
     final AtomicInteger pos = new AtomicInteger(0);
+    // Set when the last handler is removed, this entry is then no longer in the handler map
+    volatile boolean removed;
     HandlerHolder choose() {
       while (true) {
         int size = list.size();
@@ -961,10 +1925,12 @@ public class EventBusImpl implements EventBus {
   public class HandlerRegistration<T> implements MessageConsumer<T>, Handler<Message<T>> {
 
     private final String address;
-    private final boolean replyHandler;
     private final boolean localOnly;
-    private final long timeoutID;
+    private final boolean pattern;
+    private final Function<Message<T>, ?> shardKey;
+    private final int lanes;
 
+    private HandlerHolder<T> holder;
     private boolean registered;
     private Handler<Message<T>> handler;
     private AsyncResult<Void> result;
@@ -973,21 +1939,33 @@ public class EventBusImpl implements EventBus {
     private Handler<Throwable> exceptionHandler;
     private Handler<Message<T>> discardHandler;
     private int maxBufferedMessages;
-    private final Queue<Message<T>> pending = new ArrayDeque<>(8);
-    private boolean paused;
+    private final PriorityQueues<Message<T>> pending = new PriorityQueues<>(() -> new ArrayDeque<>(8));
+    // Volatile so the batcher can check it without taking the registration lock
+    private volatile boolean paused;
+    private Batcher batcher;
+    // Set while a buffered message of a sharded consumer is handed to its lane
+    private boolean draining;
+    private Map<String, Credits> credits;
+    private Credits lastCredits;
+    private boolean creditsScheduled;
+
+    public HandlerRegistration(String address, boolean localOnly) {
+      this(address, localOnly, false, null, 0);
+    }
 
-    public HandlerRegistration(String address, boolean replyHandler, boolean localOnly, long timeoutID) {
+    public HandlerRegistration(String address, boolean localOnly, boolean pattern, Function<Message<T>, ?> shardKey, int lanes) {
       this.address = address;
-      this.replyHandler = replyHandler;
       this.localOnly = localOnly;
-      this.timeoutID = timeoutID;
+      this.pattern = pattern;
+      this.shardKey = shardKey;
+      this.lanes = lanes;
     }
 
     @Override
     public synchronized MessageConsumer<T> setMaxBufferedMessages(int maxBufferedMessages) {
       Arguments.require(maxBufferedMessages >= 0, "Max buffered messages cannot be negative");
       while (pending.size() > maxBufferedMessages) {
-        pending.poll();
+        grantCreditIfFlowControlled(pending.pollLowest());
       }
       this.maxBufferedMessages = maxBufferedMessages;
       return this;
@@ -1036,6 +2014,14 @@ public class EventBusImpl implements EventBus {
           }
         };
       }
+      if (batcher != null) {
+        batcher.flushLater();
+      }
+      // The buffered flow controlled messages won't be handled, their producers get the credits back
+      pending.removeIf(msg -> {
+        grantCreditIfFlowControlled(msg);
+        return creditAddress(msg) != null;
+      });
       if (registered) {
         registered = false;
         unregisterHandler(address, this, completionHandler);
@@ -1062,19 +2048,95 @@ public class EventBusImpl implements EventBus {
     }
 
     @Override
-    public synchronized void handle(Message<T> event) {
-      if (paused) {
-        if (pending.size() < maxBufferedMessages) {
-          pending.add(event);
-        } else {
-          if (discardHandler != null) {
-            discardHandler.handle(event);
+    public void handle(Message<T> event) {
+      if (expired((MessageImpl) event)) {
+        grantCreditIfFlowControlled(event);
+        return;
+      }
+      Handler<Message<T>> theHandler;
+      synchronized (this) {
+        if (paused) {
+          // Flow controlled messages are bounded by the producer credits so they are never discarded
+          int priority = ((MessageImpl) event).priority();
+          if (pending.size() < maxBufferedMessages || creditAddress(event) != null) {
+            pending.add(event, priority);
+          } else {
+            Message<T> discarded = event;
+            int lowest = pending.lowestPriority();
+            if (lowest != -1 && lowest < priority) {
+              // The message takes the place of the oldest buffered message with the lowest priority
+              discarded = pending.pollLowest();
+              pending.add(event, priority);
+              grantCreditIfFlowControlled(discarded);
+            }
+            if (discardHandler != null) {
+              discardHandler.handle(discarded);
+            }
           }
+          return;
+        } else if (!pending.isEmpty() || draining) {
+          // The buffered messages are being delivered, this one must be delivered after those of the same priority
+          pending.add(event, ((MessageImpl) event).priority());
+          return;
         }
-      } else {
         checkNextTick();
-        handler.handle(event);
+        theHandler = handler;
       }
+      deliver(theHandler, event);
+    }
+
+    // The handler is not called holding the lock since the lanes of a sharded consumer call it concurrently
+    private void deliver(Handler<Message<T>> theHandler, Message<T> event) {
+      String creditAddress = creditAddress(event);
+      try {
+        theHandler.handle(event);
+      } finally {
+        if (creditAddress != null) {
+          grantCredit(creditAddress, ((MessageImpl) event).sender());
+        }
+      }
+    }
+
+    private void grantCreditIfFlowControlled(Message<T> event) {
+      String creditAddress = creditAddress(event);
+      if (creditAddress != null) {
+        grantCredit(creditAddress, ((MessageImpl) event).sender());
+      }
+    }
+
+    private String creditAddress(Message<T> event) {
+      return ((MessageImpl) event).creditAddress();
+    }
+
+    // Credits are accumulated and sent back once the current batch of messages has been delivered
+    private synchronized void grantCredit(String creditAddress, ServerID sender) {
+      if (credits == null) {
+        credits = new HashMap<>();
+      }
+      // Consecutive messages usually come from the same producer
+      Credits c = lastCredits;
+      if (c == null || !c.address.equals(creditAddress)) {
+        c = credits.get(creditAddress);
+        if (c == null) {
+          c = new Credits(creditAddress, sender);
+          credits.put(creditAddress, c);
+        }
+        lastCredits = c;
+      }
+      c.count++;
+      if (!creditsScheduled) {
+        creditsScheduled = true;
+        vertx.runOnContext(v -> sendCredits());
+      }
+    }
+
+    private synchronized void sendCredits() {
+      creditsScheduled = false;
+      for (Map.Entry<String, Credits> entry : credits.entrySet()) {
+        EventBusImpl.this.sendCredits(entry.getValue().sender, entry.getKey(), entry.getValue().count);
+      }
+      credits.clear();
+      lastCredits = null;
     }
 
     /*
@@ -1084,12 +2146,25 @@ public class EventBusImpl implements EventBus {
       this.discardHandler = handler;
     }
 
+    @Override
+    public MessageConsumer<T> batchHandler(int maxSize, long maxDelay, Handler<List<Message<T>>> handler) {
+      Objects.requireNonNull(handler, "handler");
+      Arguments.require(maxSize > 0, "maxSize must be > 0");
+      Arguments.require(maxDelay > 0, "maxDelay must be > 0");
+      return handler(new Batcher(maxSize, maxDelay, handler));
+    }
+
     @Override
     public synchronized MessageConsumer<T> handler(Handler<Message<T>> handler) {
+      if (batcher != null && batcher != handler) {
+        // Hand the messages collected so far before the batcher is replaced
+        batcher.flushLater();
+      }
+      batcher = handler instanceof HandlerRegistration.Batcher ? (Batcher) handler : null;
       this.handler = handler;
       if (this.handler != null && !registered) {
         registered = true;
-        registerHandler(address, this, replyHandler, localOnly, timeoutID);
+        registerHandler(address, this, localOnly);
       } else if (this.handler == null && registered) {
         // This will set registered to false
         this.unregister();
@@ -1119,6 +2194,9 @@ public class EventBusImpl implements EventBus {
     public synchronized MessageConsumer<T> resume() {
       if (paused) {
         paused = false;
+        if (batcher != null) {
+          batcher.flushLater();
+        }
         checkNextTick();
       }
       return this;
@@ -1136,28 +2214,168 @@ public class EventBusImpl implements EventBus {
       return this;
     }
 
+    /*
+     * Collects the messages delivered to the registration and hands them in batches. Since it is the handler of the
+     * registration the messages are only collected while the registration is not paused.
+     */
+    private class Batcher implements Handler<Message<T>> {
+
+      private final Message<T>[] batch;
+      private final long maxDelay;
+      private final Handler<List<Message<T>>> handler;
+      private int size;
+      private long timerID = -1;
+      private ContextImpl context;
+
+      @SuppressWarnings("unchecked")
+      private Batcher(int maxSize, long maxDelay, Handler<List<Message<T>>> handler) {
+        this.batch = new Message[maxSize];
+        this.maxDelay = maxDelay;
+        this.handler = handler;
+      }
+
+      @Override
+      public void handle(Message<T> message) {
+        List<Message<T>> full = null;
+        synchronized (this) {
+          if (size == 0) {
+            context = vertx.getOrCreateContext();
+            timerID = vertx.setTimer(maxDelay, id -> {
+              synchronized (Batcher.this) {
+                timerID = -1;
+              }
+              flush();
+            });
+          }
+          batch[size++] = message;
+          if (size == batch.length) {
+            full = drain();
+          }
+        }
+        if (full != null) {
+          handler.handle(full);
+        }
+      }
+
+      private void flush() {
+        List<Message<T>> list;
+        synchronized (this) {
+          if (size == 0 || paused) {
+            // A paused registration is flushed when resumed
+            return;
+          }
+          list = drain();
+        }
+        handler.handle(list);
+      }
+
+      private synchronized void flushLater() {
+        if (size > 0) {
+          context.runOnContext(v -> flush());
+        }
+      }
+
+      private List<Message<T>> drain() {
+        if (timerID != -1) {
+          vertx.cancelTimer(timerID);
+          timerID = -1;
+        }
+        List<Message<T>> list = Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(batch, size)));
+        Arrays.fill(batch, 0, size, null);
+        size = 0;
+        return list;
+      }
+    }
+
     private void checkNextTick() {
+      if (lanes > 0) {
+        drainToLane();
+        return;
+      }
       // Check if there are more pending messages in the queue that can be processed next time around
       if (!pending.isEmpty()) {
-        vertx.runOnContext(v -> {
-          if (!paused) {
-            Message<T> message = pending.poll();
-            if (message != null) {
-              HandlerRegistration.this.handle(message);
+        // On the context of the consumer, resume can be called from any thread
+        ContextImpl context = holder != null ? holder.context : vertx.getOrCreateContext();
+        context.runOnContext(v -> {
+          Message<T> message;
+          Handler<Message<T>> theHandler;
+          synchronized (HandlerRegistration.this) {
+            if (paused || (message = pending.poll()) == null) {
+              return;
             }
+            checkNextTick();
+            theHandler = handler;
+          }
+          // The message may have waited long enough in the queue to expire
+          if (expired((MessageImpl) message)) {
+            grantCreditIfFlowControlled(message);
+          } else {
+            deliver(theHandler, message);
           }
         });
       }
     }
+
+    /*
+     * The buffered messages of a sharded consumer are handed one at a time to the lane of their shard key, the next
+     * one once the previous one has been handled. The messages received meanwhile wait behind them, so the messages of
+     * a key are still handled in order and never concurrently.
+     */
+    private void drainToLane() {
+      Message<T> message;
+      if (draining || (message = pending.poll()) == null) {
+        return;
+      }
+      draining = true;
+      holder.laneOf(message).runOnContext(v -> {
+        Handler<Message<T>> theHandler;
+        synchronized (HandlerRegistration.this) {
+          theHandler = handler;
+        }
+        try {
+          if (expired((MessageImpl) message)) {
+            grantCreditIfFlowControlled(message);
+          } else {
+            deliver(theHandler, message);
+          }
+        } finally {
+          synchronized (HandlerRegistration.this) {
+            draining = false;
+            if (!paused) {
+              drainToLane();
+            }
+          }
+        }
+      });
+    }
+  }
+
+  private static class Credits {
+    final String address;
+    final ServerID sender;
+    int count;
+
+    Credits(String address, ServerID sender) {
+      this.address = address;
+      this.sender = sender;
+    }
   }
 
   public static class EventBusNetServer {
 
-    private final NetServer netServer;
+    private final List<NetServer> netServers = new CopyOnWriteArrayList<>();
     private Handler<NetSocket> handler;
 
     public EventBusNetServer(NetServer netServer) {
-      this.netServer = netServer;
+      addServer(netServer);
+    }
+
+    /**
+     * Add a server listening on the same port from another event loop, the accepted connections are spread over the
+     * event loops of the servers.
+     */
+    public void addServer(NetServer netServer) {
+      netServers.add(netServer);
       netServer.connectHandler(conn -> {
         // The lock will almost always be obtained by the same thread so biased locking will mean there
         // is almost zero overhead to this synchronized block
@@ -1170,6 +2388,25 @@ public class EventBusImpl implements EventBus {
     public synchronized void setHandler(Handler<NetSocket> handler) {
       this.handler = handler;
     }
+
+    void close(Handler<AsyncResult<Void>> completionHandler) {
+      AtomicInteger remaining = new AtomicInteger(netServers.size());
+      AtomicReference<Throwable> failure = new AtomicReference<>();
+      for (NetServer netServer : netServers) {
+        netServer.close(ar -> {
+          if (ar.failed()) {
+            failure.set(ar.cause());
+          }
+          if (remaining.decrementAndGet() == 0) {
+            if (failure.get() == null) {
+              completionHandler.handle(Future.completedFuture());
+            } else {
+              completionHandler.handle(Future.completedFuture(failure.get()));
+            }
+          }
+        });
+      }
+    }
   }
 
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.eventbus.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Splits the data of a cluster connection into frames, each one prefixed with its length as an int. The frames
+ * contained in a received buffer are handed out as slices of that buffer, only a frame spread over several buffers is
+ * copied.
+ */
+class FrameParser implements Handler<Buffer> {
+
+  private final Handler<Buffer> output;
+  private Buffer partial;
+
+  FrameParser(Handler<Buffer> output) {
+    this.output = output;
+  }
+
+  @Override
+  public void handle(Buffer buffer) {
+    if (partial != null) {
+      partial.appendBuffer(buffer);
+      buffer = partial;
+      partial = null;
+    }
+    int length = buffer.length();
+    int pos = 0;
+    while (length - pos >= 4) {
+      int size = buffer.getInt(pos);
+      if (length - pos - 4 < size) {
+        break;
+      }
+      output.handle(buffer.slice(pos + 4, pos + 4 + size));
+      pos += 4 + size;
+    }
+    if (pos < length) {
+      // The slices handed out keep a reference to the buffer, the rest goes to a new one
+      int remaining = length - pos;
+      partial = Buffer.buffer(remaining >= 4 ? Math.max(remaining, buffer.getInt(pos) + 4) : 1024);
+      partial.appendBuffer(buffer, pos, remaining);
+    }
+  }
+}
@@ -34,6 +34,7 @@ import io.vertx.core.net.impl.ServerID;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author <a href="http://tfox.org">Tim Fox</a>
@@ -42,7 +43,20 @@ public class MessageImpl<U, V> implements Message<V> {
 
   private static final Logger log = LoggerFactory.getLogger(MessageImpl.class);
 
-  private static final byte WIRE_PROTOCOL_VERSION = 1;
+  // The compact protocol, a connection uses it once the other node acknowledged it supports it
+  static final byte WIRE_PROTOCOL_VERSION = 3;
+  // Still read, it is no longer written: the nodes which do not know the compact protocol may not know it either
+  private static final byte WIRE_PROTOCOL_VERSION_2 = 2;
+  // The frames of the connections which did not negotiate the compact protocol, they carry no priority
+  private static final byte WIRE_PROTOCOL_VERSION_1 = 1;
+
+  // The flags of a compact frame
+  private static final int SEND = 1;
+  private static final int PRIORITY = 2;
+  private static final int DEADLINE = 4;
+  private static final int HEADERS = 8;
+  private static final int COMPRESSED = 16;
+  private static final int CREDIT = 32;
 
   private NetSocket socket;
   private EventBusImpl bus;
@@ -57,6 +71,11 @@ public class MessageImpl<U, V> implements Message<V> {
   private Buffer wireBuffer;
   private int bodyPos;
   private int headersPos;
+  private int priority;
+  // System.nanoTime() based, it is never compared with the clock of another node
+  private long deadline;
+  private boolean expires;
+  private String creditAddress;
 
   public MessageImpl() {
   }
@@ -96,6 +115,10 @@ public class MessageImpl<U, V> implements Message<V> {
       this.headersPos = other.headersPos;
     }
     this.send = other.send;
+    this.priority = other.priority;
+    this.deadline = other.deadline;
+    this.expires = other.expires;
+    this.creditAddress = other.creditAddress;
   }
 
   NetSocket getSocket() {
@@ -126,6 +149,14 @@ public class MessageImpl<U, V> implements Message<V> {
     return headers;
   }
 
+  // Does not create the headers when the message has none
+  String getHeader(String name) {
+    if (headers == null && headersPos != 0) {
+      decodeHeaders();
+    }
+    return headers != null ? headers.get(name) : null;
+  }
+
   @Override
   public V body() {
     // Lazily decode the body
@@ -144,8 +175,22 @@ public class MessageImpl<U, V> implements Message<V> {
   public Buffer encodeToWire() {
     int length = 1024; // TODO make this configurable
     Buffer buffer = Buffer.buffer(length);
+    encodeToWire(buffer);
+//    if (buffer.length()> length) {
+//      log.warn("Overshot length " + length + " actual " + buffer.length());
+//    }
+    return buffer;
+  }
+
+  /**
+   * Append the frame of this message to the buffer, so several messages can be written at once. The frame uses the
+   * first version of the protocol that any node knows, the priority and the credit address only travel in compact
+   * frames.
+   */
+  public void encodeToWire(Buffer buffer) {
+    int start = buffer.length();
     buffer.appendInt(0);
-    buffer.appendByte(WIRE_PROTOCOL_VERSION);
+    buffer.appendByte(WIRE_PROTOCOL_VERSION_1);
     byte systemCodecID = messageCodec.systemCodecID();
     buffer.appendByte(systemCodecID);
     if (systemCodecID == -1) {
@@ -163,14 +208,62 @@ public class MessageImpl<U, V> implements Message<V> {
     writeString(buffer, sender.host);
     encodeHeaders(buffer);
     writeBody(buffer);
-    buffer.setInt(0, buffer.length() - 4);
-//    if (buffer.length()> length) {
-//      log.warn("Overshot length " + length + " actual " + buffer.length());
-//    }
-    return buffer;
+    buffer.setInt(start, buffer.length() - start - 4);
+  }
+
+  /**
+   * Append the frame of this message to the buffer with the compact protocol, the strings of the connection
+   * dictionary are only written once.
+   */
+  void encodeToWire(Buffer buffer, WireEncoder encoder) {
+    int start = buffer.length();
+    buffer.appendInt(0);
+    buffer.appendByte(WIRE_PROTOCOL_VERSION);
+    int flagsPos = buffer.length();
+    buffer.appendByte((byte) 0);
+    byte systemCodecID = messageCodec.systemCodecID();
+    buffer.appendByte(systemCodecID);
+    if (systemCodecID == -1) {
+      encoder.writeString(buffer, messageCodec.name(), true);
+    }
+    int flags = send ? SEND : 0;
+    if (priority != 0) {
+      flags |= PRIORITY;
+      buffer.appendByte((byte) priority);
+    }
+    if (expires) {
+      // The time left to live travels instead of the deadline, the clocks of the nodes are not in sync
+      flags |= DEADLINE;
+      WireEncoder.writeVarLong(buffer, timeToLive());
+    }
+    encoder.writeString(buffer, address, true);
+    encoder.writeString(buffer, replyAddress, false);
+    WireEncoder.writeVarInt(buffer, sender.port);
+    encoder.writeString(buffer, sender.host, true);
+    if (creditAddress != null) {
+      flags |= CREDIT;
+      encoder.writeString(buffer, creditAddress, true);
+    }
+    if (headers != null && !headers.isEmpty()) {
+      flags |= HEADERS;
+      WireEncoder.writeVarInt(buffer, headers.size());
+      for (Map.Entry<String, String> entry: headers.entries()) {
+        encoder.writeString(buffer, entry.getKey(), true);
+        encoder.writeString(buffer, entry.getValue(), false);
+      }
+    }
+    if (encoder.writeBody(buffer, messageCodec, sentBody)) {
+      flags |= COMPRESSED;
+    }
+    buffer.setByte(flagsPos, (byte) flags);
+    buffer.setInt(start, buffer.length() - start - 4);
   }
 
-  public void readFromWire(NetSocket socket, Buffer buffer, Map<String, MessageCodec> codecMap, MessageCodec[] systemCodecs) {
+  /**
+   * Read the fixed part of a frame, the headers and the body are decoded from the buffer when they are first used.
+   */
+  void readFromWire(NetSocket socket, Buffer buffer, Map<String, MessageCodec> codecMap, MessageCodec[] systemCodecs,
+                    WireDecoder decoder) {
     int pos = 0;
     // Overall Length already read when passed in here
     byte protocolVersion = buffer.getByte(pos);
@@ -178,15 +271,26 @@ public class MessageImpl<U, V> implements Message<V> {
       throw new IllegalStateException("Invalid wire protocol version " + protocolVersion +
                                       " should be <= " + WIRE_PROTOCOL_VERSION);
     }
+    if (protocolVersion == WIRE_PROTOCOL_VERSION) {
+      readCompact(buffer, codecMap, systemCodecs, decoder);
+      this.socket = socket;
+      return;
+    }
+    StringCache strings = decoder.strings;
     pos++;
+    if (protocolVersion > WIRE_PROTOCOL_VERSION_1) {
+      priority = wirePriority(buffer.getByte(pos));
+      pos++;
+      // The deadline of these frames is a wall clock time of the sender, it is ignored
+      pos += 8;
+    }
     byte systemCodecCode = buffer.getByte(pos);
     pos++;
     if (systemCodecCode == -1) {
       // User codec
       int length = buffer.getInt(pos);
       pos += 4;
-      byte[] bytes = buffer.getBytes(pos, pos + length);
-      String codecName = new String(bytes, CharsetUtil.UTF_8);
+      String codecName = strings.get(buffer, pos, length);
       messageCodec = codecMap.get(codecName);
       if (messageCodec == null) {
         throw new IllegalStateException("No message codec registered with name " + codecName);
@@ -200,22 +304,20 @@ public class MessageImpl<U, V> implements Message<V> {
     pos++;
     int length = buffer.getInt(pos);
     pos += 4;
-    byte[] bytes = buffer.getBytes(pos, pos + length);
-    address = new String(bytes, CharsetUtil.UTF_8);
+    address = strings.get(buffer, pos, length);
     pos += length;
     length = buffer.getInt(pos);
     pos += 4;
     if (length != 0) {
-      bytes = buffer.getBytes(pos, pos + length);
-      replyAddress = new String(bytes, CharsetUtil.UTF_8);
+      // Reply addresses are used once, caching them would only evict the others
+      replyAddress = new String(buffer.getBytes(pos, pos + length), CharsetUtil.UTF_8);
       pos += length;
     }
     int senderPort = buffer.getInt(pos);
     pos += 4;
     length = buffer.getInt(pos);
     pos += 4;
-    bytes = buffer.getBytes(pos, pos + length);
-    String senderHost = new String(bytes, CharsetUtil.UTF_8);
+    String senderHost = strings.get(buffer, pos, length);
     pos += length;
     headersPos = pos;
     int headersLength = buffer.getInt(pos);
@@ -226,6 +328,58 @@ public class MessageImpl<U, V> implements Message<V> {
     this.socket = socket;
   }
 
+  // The headers are decoded now since the strings they refer to can't be resolved later
+  private void readCompact(Buffer buffer, Map<String, MessageCodec> codecMap, MessageCodec[] systemCodecs,
+                           WireDecoder decoder) {
+    decoder.pos = 1;
+    int flags = decoder.readByte(buffer);
+    byte systemCodecCode = decoder.readByte(buffer);
+    if (systemCodecCode == -1) {
+      String codecName = decoder.readString(buffer, true);
+      messageCodec = codecMap.get(codecName);
+      if (messageCodec == null) {
+        throw new IllegalStateException("No message codec registered with name " + codecName);
+      }
+    } else {
+      messageCodec = systemCodecs[systemCodecCode];
+    }
+    send = (flags & SEND) != 0;
+    if ((flags & PRIORITY) != 0) {
+      priority = wirePriority(decoder.readByte(buffer));
+    }
+    if ((flags & DEADLINE) != 0) {
+      setTimeToLive(decoder.readVarLong(buffer));
+    }
+    address = decoder.readString(buffer, true);
+    replyAddress = decoder.readString(buffer, false);
+    int senderPort = decoder.readVarInt(buffer);
+    sender = new ServerID(senderPort, decoder.readString(buffer, true));
+    if ((flags & CREDIT) != 0) {
+      creditAddress = decoder.readString(buffer, true);
+    }
+    if ((flags & HEADERS) != 0) {
+      int numHeaders = decoder.readVarInt(buffer);
+      headers = new CaseInsensitiveHeaders();
+      for (int i = 0; i < numHeaders; i++) {
+        String key = decoder.readString(buffer, true);
+        headers.add(key, decoder.readString(buffer, false));
+      }
+      stripCreditHeader();
+    }
+    if ((flags & COMPRESSED) != 0) {
+      wireBuffer = decoder.inflateBody(buffer);
+      bodyPos = 1;
+    } else {
+      wireBuffer = buffer;
+      bodyPos = decoder.pos;
+    }
+  }
+
+  // The priority comes from another node, a value out of range is clamped instead of indexing past the mailbox levels
+  private static int wirePriority(byte priority) {
+    return Math.max(0, Math.min(DeliveryOptions.MAX_PRIORITY, priority));
+  }
+
   private void decodeBody() {
     receivedBody = messageCodec.decodeFromWire(bodyPos, wireBuffer);
     bodyPos = 0;
@@ -250,7 +404,8 @@ public class MessageImpl<U, V> implements Message<V> {
 
   private void decodeHeaders() {
     int length = wireBuffer.getInt(headersPos);
-    if (length != 0) {
+    // The length includes itself
+    if (length > 4) {
       headersPos += 4;
       int numHeaders = wireBuffer.getInt(headersPos);
       headersPos += 4;
@@ -268,10 +423,16 @@ public class MessageImpl<U, V> implements Message<V> {
         headersPos += valLength;
         headers.add(key, val);
       }
+      stripCreditHeader();
     }
     headersPos = 0;
   }
 
+  // The credit address only comes from the flag of a compact frame, a header of the same name is not trusted
+  private void stripCreditHeader() {
+    headers.remove(MessageProducerImpl.CREDIT_ADDRESS_HEADER_NAME);
+  }
+
   private void writeBody(Buffer buff) {
     messageCodec.encodeToWire(buff, sentBody);
   }
@@ -308,10 +469,53 @@ public class MessageImpl<U, V> implements Message<V> {
     sendReply(bus.createMessage(true, replyAddress, options.getHeaders(), message, options.getCodecName()), options, replyHandler);
   }
 
+  int priority() {
+    return priority;
+  }
+
+  void setPriority(int priority) {
+    this.priority = priority;
+  }
+
+  /**
+   * @return the address the credits of this message are sent back to or null when it is not flow controlled, the
+   * frames of the first version of the protocol do not carry it
+   */
+  String creditAddress() {
+    return creditAddress;
+  }
+
+  void setCreditAddress(String creditAddress) {
+    this.creditAddress = creditAddress;
+  }
+
+  /**
+   * @return {@code true} when the sender does not wait anymore for the reply
+   */
+  boolean expired() {
+    return expires && System.nanoTime() - deadline > 0;
+  }
+
+  /**
+   * @return the time in ms left before the sender does not wait anymore for the reply, {@code 0} once it has passed
+   */
+  long timeToLive() {
+    return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+  }
+
+  void setTimeToLive(long timeToLive) {
+    this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeToLive);
+    this.expires = true;
+  }
+
   protected void setReplyAddress(String replyAddress) {
     this.replyAddress = replyAddress;
   }
 
+  ServerID sender() {
+    return sender;
+  }
+
   protected boolean send() {
     return send;
   }
@@ -17,25 +17,63 @@
 package io.vertx.core.eventbus.impl;
 
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.DeliveryOptions;
-import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.eventbus.MessageProducer;
-import io.vertx.core.streams.WriteStream;
+import io.vertx.core.impl.ContextImpl;
+import io.vertx.core.impl.VertxInternal;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.UUID;
 
 /**
+ * A sender is flow controlled with credits: the messages carry the credit address of the producer, the consumers send
+ * back the credits to this address when the messages are handled or dropped. On the wire only the compact frames carry
+ * it, the credit of a message written with the first version of the protocol is given back once it is written, and the
+ * {@link #CREDIT_ADDRESS_HEADER_NAME} header is removed from the received messages. The bus hands the credits of an address to its producer as long as the
+ * producer waits for some, so an idle producer holds no resource and does not need to be closed.
+ * <p>
+ * The messages are sent through an {@link EventBusImpl.Route} so the codec and the handlers are not looked up for
+ * each message. A publisher is not flow controlled and writes without taking the lock of the producer.
+ *
  * @author <a href="mailto:julien@julienviet.com">Julien Viet</a>
  */
 public class MessageProducerImpl<T> implements MessageProducer<T> {
 
-  private final EventBus bus;
+  public static final String CREDIT_ADDRESS_HEADER_NAME = "__vertx.credit";
+  private static final String CREDIT_ADDRESS_PREFIX = "__vertx.credit.";
+
+  private final Vertx vertx;
+  private final EventBusImpl bus;
   private final boolean send;
   private final String address;
-  private DeliveryOptions options;
+  private final EventBusImpl.Route route;
+  private final Queue<T> pending = new ArrayDeque<>();
+  private final String creditAddress;
+  private final ContextImpl context;
+  private volatile DeliveryOptions options;
+  private int maxSize = DEFAULT_WRITE_QUEUE_MAX_SIZE;
+  private int credits = DEFAULT_WRITE_QUEUE_MAX_SIZE;
+  private boolean drainRequired;
+  // Whether the bus hands the credits to this producer
+  private boolean waitingCredits;
+  private Handler<Void> drainHandler;
 
-  public MessageProducerImpl(EventBus bus, String address, boolean send, DeliveryOptions options) {
-    this.bus = bus;
+  public MessageProducerImpl(Vertx vertx, String address, boolean send, DeliveryOptions options) {
+    this.vertx = vertx;
+    this.bus = (EventBusImpl) vertx.eventBus();
     this.address = address;
     this.send = send;
+    if (send) {
+      // Credits are sent directly to this node so the address does not need to be propagated in the cluster
+      creditAddress = CREDIT_ADDRESS_PREFIX + UUID.randomUUID();
+      context = ((VertxInternal) vertx).getOrCreateContext();
+    } else {
+      creditAddress = null;
+      context = null;
+    }
+    this.route = new EventBusImpl.Route(address, creditAddress);
     this.options = options;
   }
 
@@ -51,28 +89,91 @@ public class MessageProducerImpl<T> implements MessageProducer<T> {
   }
 
   @Override
-  public MessageProducer<T> setWriteQueueMaxSize(int maxSize) {
+  public synchronized MessageProducer<T> setWriteQueueMaxSize(int maxSize) {
+    credits += maxSize - this.maxSize;
+    this.maxSize = maxSize;
     return this;
   }
 
   @Override
-  public synchronized MessageProducer<T> write(T data) {
+  public MessageProducer<T> write(T data) {
     if (send) {
-      bus.send(address, data, options);
+      synchronized (this) {
+        if (!waitingCredits) {
+          waitingCredits = true;
+          bus.addProducer(creditAddress, this);
+        }
+        if (credits > 0) {
+          bus.sendOrPub(route, true, data, options);
+          credits--;
+        } else {
+          pending.add(data);
+        }
+        if (credits <= 0) {
+          drainRequired = true;
+        }
+      }
     } else {
-      bus.publish(address, data, options);
+      bus.sendOrPub(route, false, data, options);
     }
     return this;
   }
 
   @Override
-  public boolean writeQueueFull() {
-    return false;
+  public synchronized boolean writeQueueFull() {
+    return send && credits <= 0;
   }
 
   @Override
-  public MessageProducer<T> drainHandler(Handler<Void> handler) {
+  public synchronized MessageProducer<T> drainHandler(Handler<Void> handler) {
+    this.drainHandler = handler;
     return this;
   }
 
+  @Override
+  public synchronized void close() {
+    if (waitingCredits) {
+      waitingCredits = false;
+      bus.removeProducer(creditAddress);
+    }
+    pending.clear();
+  }
+
+  static boolean isCreditAddress(String address) {
+    return address.startsWith(CREDIT_ADDRESS_PREFIX);
+  }
+
+  // Can be called from any thread, the credits are handled on the context of the producer
+  void receiveCredit(int credit) {
+    context.runOnContext(v -> doReceiveCredit(credit));
+  }
+
+  private synchronized void doReceiveCredit(int credit) {
+    if (!waitingCredits) {
+      // Closed
+      return;
+    }
+    credits += credit;
+    while (credits > 0) {
+      T data = pending.poll();
+      if (data == null) {
+        break;
+      }
+      credits--;
+      bus.sendOrPub(route, true, data, options);
+    }
+    if (credits >= maxSize && pending.isEmpty()) {
+      // Nothing is outstanding, the bus can forget this producer until the next write
+      waitingCredits = false;
+      bus.removeProducer(creditAddress);
+    }
+    if (drainRequired && credits >= maxSize / 2) {
+      drainRequired = false;
+      Handler<Void> handler = drainHandler;
+      if (handler != null) {
+        vertx.runOnContext(v -> handler.handle(null));
+      }
+    }
+  }
+
 }
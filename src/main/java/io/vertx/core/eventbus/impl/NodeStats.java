@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.eventbus.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What this node knows about the load of a node of the cluster, this node included.
+ */
+class NodeStats {
+
+  // The requests sent to the node which are waiting for a reply
+  final AtomicInteger outstanding = new AtomicInteger();
+
+  // The moving average of the reply latency in ns, 0 until a first reply
+  final AtomicLong latency = new AtomicLong();
+
+  /**
+   * @return the time the request is sent at
+   */
+  long requestSent() {
+    outstanding.incrementAndGet();
+    return System.nanoTime();
+  }
+
+  void requestDone() {
+    outstanding.decrementAndGet();
+  }
+
+  /**
+   * Done with a request which got a reply or timed out, the elapsed time is added to the average.
+   */
+  void requestDone(long sentTime) {
+    outstanding.decrementAndGet();
+    long sample = Math.max(System.nanoTime() - sentTime, 1);
+    // Each sample weighs 1/8 like the TCP smoothed round trip time
+    latency.accumulateAndGet(sample, (avg, s) -> avg == 0 ? s : avg + (s - avg) / 8);
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.eventbus.impl;
+
+import io.vertx.core.eventbus.DeliveryOptions;
+
+import java.util.Queue;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * One queue per priority level, higher priorities are polled first. To guard against starvation a non empty level
+ * which has been passed over {@link #STARVATION_LIMIT} times is polled before the higher levels.
+ * <p>
+ * The thread safety of {@link #add} depends on the queues provided by the factory, the other methods must be called
+ * by a single consumer at a time.
+ */
+class PriorityQueues<E> {
+
+  static final int STARVATION_LIMIT = 32;
+
+  private final Queue<E>[] queues;
+  private final int[] skipped;
+
+  @SuppressWarnings("unchecked")
+  PriorityQueues(Supplier<Queue<E>> factory) {
+    queues = new Queue[DeliveryOptions.MAX_PRIORITY + 1];
+    for (int i = 0; i < queues.length; i++) {
+      queues[i] = factory.get();
+    }
+    skipped = new int[queues.length];
+  }
+
+  void add(E element, int priority) {
+    queues[priority].add(element);
+  }
+
+  E poll() {
+    int level = -1;
+    E element = null;
+    for (int i = queues.length - 1; i >= 0 && element == null; i--) {
+      if (skipped[i] >= STARVATION_LIMIT) {
+        element = queues[i].poll();
+        level = i;
+      }
+    }
+    for (int i = queues.length - 1; i >= 0 && element == null; i--) {
+      element = queues[i].poll();
+      level = i;
+    }
+    if (element != null) {
+      skipped[level] = 0;
+      for (int i = 0; i < level; i++) {
+        if (!queues[i].isEmpty()) {
+          skipped[i]++;
+        }
+      }
+    }
+    return element;
+  }
+
+  /**
+   * @return the oldest element of the lowest non empty priority or null
+   */
+  E pollLowest() {
+    for (Queue<E> queue : queues) {
+      E element = queue.poll();
+      if (element != null) {
+        return element;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the lowest non empty priority or -1
+   */
+  int lowestPriority() {
+    for (int i = 0; i < queues.length; i++) {
+      if (!queues[i].isEmpty()) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  void removeIf(Predicate<? super E> filter) {
+    for (Queue<E> queue : queues) {
+      queue.removeIf(filter);
+    }
+  }
+
+  boolean isEmpty() {
+    for (Queue<E> queue : queues) {
+      if (!queue.isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  int size() {
+    int size = 0;
+    for (Queue<E> queue : queues) {
+      size += queue.size();
+    }
+    return size;
+  }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.eventbus.impl;
+
+import io.netty.channel.EventLoop;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.impl.ContextImpl;
+
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The table of the reply handlers waiting for a reply.
+ * <p>
+ * Entries are keyed by a {@code long} sequence carried in the reply address and are kept in lock striped open
+ * addressing tables. Reply timeouts are tracked by a hashed timing wheel per stripe, the wheel is advanced by a single
+ * periodic task on an event loop which only runs while replies are pending and expires the timed out entries in batch.
+ * <p>
+ * So a request/reply never touches the handler map nor the Vert.x timers.
+ * <p>
+ * This class is thread-safe
+ */
+class ReplyTable {
+
+  static final String REPLY_ADDRESS_PREFIX = "__vertx.reply.";
+
+  private static final int STRIPES = 16;
+  private static final int WHEEL_SIZE = 512;
+  private static final long TICK_MILLIS = 10;
+  private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+
+  private final Stripe[] stripes = new Stripe[STRIPES];
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicInteger size = new AtomicInteger();
+  private final boolean secure;
+  private final EventLoop eventLoop;
+  private final Handler<Entry> timeoutHandler;
+  private final long startTime = System.nanoTime();
+  private ScheduledFuture<?> ticker;
+
+  /**
+   * @param secure when true the reply addresses are suffixed with a random token so they can't be guessed
+   * @param eventLoop the event loop advancing the timing wheel
+   * @param timeoutHandler called on the event loop with the entries which timed out
+   */
+  ReplyTable(boolean secure, EventLoop eventLoop, Handler<Entry> timeoutHandler) {
+    this.secure = secure;
+    this.eventLoop = eventLoop;
+    this.timeoutHandler = timeoutHandler;
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  static boolean isReplyAddress(String address) {
+    return address.startsWith(REPLY_ADDRESS_PREFIX);
+  }
+
+  /**
+   * Add a reply handler to the table.
+   *
+   * @param address the address of the message waiting for a reply
+   * @param context the context the reply handler is called on
+   * @param handler the reply handler
+   * @param timeout the reply timeout in ms
+   * @return the entry, its reply address must be set on the message
+   */
+  <T> Entry add(String address, ContextImpl context, Handler<AsyncResult<Message<T>>> handler, long timeout) {
+    long id = sequence.incrementAndGet();
+    String replyAddress = REPLY_ADDRESS_PREFIX + id;
+    if (secure) {
+      // The address is a cryptographically secure id that can't be guessed
+      replyAddress += "." + UUID.randomUUID();
+    }
+    long deadline = (System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(timeout) + TICK_NANOS - 1) / TICK_NANOS;
+    Entry entry = new Entry(id, replyAddress, address, context, handler, deadline);
+    if (size.getAndIncrement() == 0) {
+      startTicker();
+    }
+    Stripe stripe = stripe(id);
+    synchronized (stripe) {
+      stripe.add(entry);
+    }
+    return entry;
+  }
+
+  /**
+   * Remove the entry for a reply address.
+   *
+   * @return the removed entry or null when there is no such entry, i.e the reply timed out or the address is not valid
+   */
+  Entry remove(String replyAddress) {
+    long id = parseId(replyAddress);
+    if (id > 0) {
+      Stripe stripe = stripe(id);
+      synchronized (stripe) {
+        Entry entry = stripe.get(id);
+        if (entry != null && entry.replyAddress.equals(replyAddress)) {
+          stripe.remove(entry);
+          size.decrementAndGet();
+          return entry;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Remove an entry from the table.
+   *
+   * @return true if the entry was removed, false if it was already removed
+   */
+  boolean remove(Entry entry) {
+    Stripe stripe = stripe(entry.id);
+    synchronized (stripe) {
+      if (stripe.get(entry.id) == entry) {
+        stripe.remove(entry);
+        size.decrementAndGet();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  synchronized void close() {
+    if (ticker != null) {
+      ticker.cancel(false);
+      ticker = null;
+    }
+  }
+
+  private Stripe stripe(long id) {
+    return stripes[(int) (id & (STRIPES - 1))];
+  }
+
+  private static long parseId(String replyAddress) {
+    if (!isReplyAddress(replyAddress)) {
+      return -1;
+    }
+    long id = 0;
+    int len = replyAddress.length();
+    int pos = REPLY_ADDRESS_PREFIX.length();
+    for (; pos < len; pos++) {
+      char c = replyAddress.charAt(pos);
+      if (c == '.') {
+        break;
+      } else if (c < '0' || c > '9' || id > Long.MAX_VALUE / 10) {
+        return -1;
+      }
+      id = id * 10 + (c - '0');
+    }
+    return id;
+  }
+
+  // The ticker only runs when there are pending replies, size transitions from 0 happen under this lock
+  private synchronized void startTicker() {
+    if (ticker == null) {
+      ticker = eventLoop.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void tick() {
+    long now = (System.nanoTime() - startTime) / TICK_NANOS;
+    for (Stripe stripe : stripes) {
+      Entry expired;
+      synchronized (stripe) {
+        expired = stripe.expire(now);
+      }
+      while (expired != null) {
+        Entry next = expired.next;
+        expired.next = null;
+        size.decrementAndGet();
+        timeoutHandler.handle(expired);
+        expired = next;
+      }
+    }
+    if (size.get() == 0) {
+      synchronized (this) {
+        if (size.get() == 0) {
+          close();
+        }
+      }
+    }
+  }
+
+  static final class Entry {
+
+    final long id;
+    final String replyAddress;
+    final String address;
+    final ContextImpl context;
+    final Handler handler;
+    long deadline;
+    // The node the request was sent to, if it was chosen among the cluster subscriptions, and when
+    long sentTime;
+    volatile NodeStats target;
+    Entry prev;
+    Entry next;
+
+    private Entry(long id, String replyAddress, String address, ContextImpl context, Handler handler, long deadline) {
+      this.id = id;
+      this.replyAddress = replyAddress;
+      this.address = address;
+      this.context = context;
+      this.handler = handler;
+      this.deadline = deadline;
+    }
+  }
+
+  /*
+   * A linear probing hash table of the entries by id and a timing wheel, the wheel buckets are doubly linked lists
+   * of entries. All the methods must be called holding the stripe lock.
+   */
+  private static final class Stripe {
+
+    private final Entry[] wheel = new Entry[WHEEL_SIZE];
+    private Entry[] table = new Entry[16];
+    private int count;
+    private long lastTick;
+
+    void add(Entry entry) {
+      if (++count * 2 > table.length) {
+        resize();
+      }
+      insert(table, entry);
+      // An entry is always expired on a later tick than the last one processed
+      if (entry.deadline <= lastTick) {
+        entry.deadline = lastTick + 1;
+      }
+      int bucket = (int) (entry.deadline & (WHEEL_SIZE - 1));
+      Entry head = wheel[bucket];
+      entry.next = head;
+      if (head != null) {
+        head.prev = entry;
+      }
+      wheel[bucket] = entry;
+    }
+
+    Entry get(long id) {
+      int mask = table.length - 1;
+      for (int i = index(id, mask);; i = (i + 1) & mask) {
+        Entry entry = table[i];
+        if (entry == null || entry.id == id) {
+          return entry;
+        }
+      }
+    }
+
+    void remove(Entry entry) {
+      int mask = table.length - 1;
+      int i = index(entry.id, mask);
+      while (table[i] != entry) {
+        i = (i + 1) & mask;
+      }
+      table[i] = null;
+      count--;
+      // Backward shift the entries of the probe sequence in the hole
+      for (int j = (i + 1) & mask; table[j] != null; j = (j + 1) & mask) {
+        int k = index(table[j].id, mask);
+        if (i <= j ? (k <= i || k > j) : (k <= i && k > j)) {
+          table[i] = table[j];
+          table[j] = null;
+          i = j;
+        }
+      }
+      unlink(entry);
+    }
+
+    // Returns the expired entries linked by next
+    Entry expire(long now) {
+      Entry expired = null;
+      // A full revolution visits all the buckets
+      long from = Math.max(lastTick + 1, now - WHEEL_SIZE + 1);
+      for (long tick = from; tick <= now; tick++) {
+        Entry entry = wheel[(int) (tick & (WHEEL_SIZE - 1))];
+        while (entry != null) {
+          Entry next = entry.next;
+          if (entry.deadline <= now) {
+            remove(entry);
+            entry.next = expired;
+            expired = entry;
+          }
+          entry = next;
+        }
+      }
+      lastTick = Math.max(lastTick, now);
+      return expired;
+    }
+
+    private void unlink(Entry entry) {
+      if (entry.prev != null) {
+        entry.prev.next = entry.next;
+      } else {
+        wheel[(int) (entry.deadline & (WHEEL_SIZE - 1))] = entry.next;
+      }
+      if (entry.next != null) {
+        entry.next.prev = entry.prev;
+      }
+      entry.prev = null;
+      entry.next = null;
+    }
+
+    private void resize() {
+      Entry[] resized = new Entry[table.length * 2];
+      for (Entry entry : table) {
+        if (entry != null) {
+          insert(resized, entry);
+        }
+      }
+      table = resized;
+    }
+
+    private static void insert(Entry[] table, Entry entry) {
+      int mask = table.length - 1;
+      int i = index(entry.id, mask);
+      while (table[i] != null) {
+        i = (i + 1) & mask;
+      }
+      table[i] = entry;
+    }
+
+    private static int index(long id, int mask) {
+      return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+  }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.core.eventbus.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.internal.PlatformDependent;
+import io.vertx.core.buffer.Buffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+
+/**
+ * A ring of bytes in a memory mapped file carrying the frames of a cluster connection between two processes of the
+ * same host, one process writes and the other one reads.
+ * <p>
+ * The file starts with a header holding the capacity, the write and read positions and whether the reader sleeps.
+ * The positions only grow. A position is written after the bytes it covers and read before them, with a fence in
+ * between, so the bytes written before a position are seen by the other process once it reads that position. A
+ * sleeping reader is woken up by the writer through another channel, see {@link #wakeUpNeeded()}.
+ * <p>
+ * The ring files are created in a directory only the user running the bus can use, see {@link #directory()}, and
+ * only the files of that directory are mapped. A ring is unmapped when it is closed.
+ * <p>
+ * Each end is used by a single thread.
+ */
+class SharedMemoryRing {
+
+  static final int DEFAULT_CAPACITY = 1024 * 1024;
+
+  private static final String DIRECTORY_NAME = "vertx-eventbus-rings";
+  private static final String FILE_PREFIX = "vertx-eventbus-";
+  private static final String FILE_SUFFIX = ".ring";
+
+  private static final int MAGIC = 0x76784542;
+  private static final int CAPACITY_OFFSET = 4;
+  // The positions are on their own cache line
+  private static final int WRITE_POS_OFFSET = 64;
+  private static final int READ_POS_OFFSET = 128;
+  private static final int SLEEPING_OFFSET = 192;
+  private static final int HEADER_SIZE = 256;
+
+  // Written then read for a full fence: the accesses to the ring before it are not reordered with those after it
+  private static volatile int fence;
+
+  private static final File DIRECTORY = ownDirectory();
+
+  private static File ownDirectory() {
+    File shm = new File("/dev/shm");
+    File parent = shm.isDirectory() && shm.canWrite() ? shm : new File(System.getProperty("java.io.tmpdir"));
+    Path dir = new File(parent, DIRECTORY_NAME + "-" + System.getProperty("user.name")).toPath();
+    try {
+      if (!Files.exists(dir, LinkOption.NOFOLLOW_LINKS)) {
+        try {
+          if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectory(dir, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+          } else {
+            Files.createDirectory(dir);
+          }
+        } catch (java.nio.file.FileAlreadyExistsException ignore) {
+          // Created by another process meanwhile
+        }
+      }
+      // Another user could otherwise place the files this process maps
+      UserPrincipal user = FileSystems.getDefault().getUserPrincipalLookupService()
+        .lookupPrincipalByName(System.getProperty("user.name"));
+      if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS) || !Files.getOwner(dir, LinkOption.NOFOLLOW_LINKS).equals(user)) {
+        return null;
+      }
+      return dir.toFile().getCanonicalFile();
+    } catch (IOException | UnsupportedOperationException | SecurityException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return whether the rings can be used, i.e the ring directory is owned by the user running the bus
+   */
+  static boolean isAvailable() {
+    return DIRECTORY != null;
+  }
+
+  /**
+   * @return the directory of the ring files, in the memory file system when there is one
+   */
+  static File directory() {
+    return DIRECTORY;
+  }
+
+  /**
+   * Create the file of a new ring in the ring directory, the writer end is returned. The reader starts asleep so
+   * the first write wakes it up.
+   */
+  static SharedMemoryRing create(int capacity) throws IOException {
+    if (Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("capacity must be a power of two");
+    }
+    File file = Files.createTempFile(DIRECTORY.toPath(), FILE_PREFIX, FILE_SUFFIX).toFile();
+    file.deleteOnExit();
+    SharedMemoryRing ring;
+    try {
+      ring = new SharedMemoryRing(file, map(file, HEADER_SIZE + capacity), capacity);
+    } catch (IOException e) {
+      file.delete();
+      throw e;
+    }
+    ring.buffer.putInt(CAPACITY_OFFSET, capacity);
+    ring.buffer.putInt(SLEEPING_OFFSET, 1);
+    fullFence();
+    ring.buffer.putInt(0, MAGIC);
+    return ring;
+  }
+
+  /**
+   * Open the file of a ring created by another process, the reader end is returned. Only the ring files of the ring
+   * directory are opened.
+   */
+  static SharedMemoryRing open(String path) throws IOException {
+    File file = new File(path).getCanonicalFile();
+    String name = file.getName();
+    if (DIRECTORY == null || !DIRECTORY.equals(file.getParentFile()) || !name.startsWith(FILE_PREFIX) ||
+      !name.endsWith(FILE_SUFFIX) || !Files.isRegularFile(file.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+      throw new IOException("Not a ring file " + path);
+    }
+    if (file.length() < HEADER_SIZE) {
+      throw new IOException("Not a ring file " + file);
+    }
+    MappedByteBuffer buffer = map(file, file.length());
+    int capacity = buffer.getInt(CAPACITY_OFFSET);
+    fullFence();
+    if (buffer.getInt(0) != MAGIC || Integer.bitCount(capacity) != 1 || HEADER_SIZE + (long) capacity != file.length()) {
+      PlatformDependent.freeDirectBuffer(buffer);
+      throw new IOException("Not a ring file " + file);
+    }
+    return new SharedMemoryRing(null, buffer, capacity);
+  }
+
+  private static MappedByteBuffer map(File file, long size) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      if (raf.length() != size) {
+        raf.setLength(size);
+      }
+      // The mapping stays valid once the channel is closed
+      MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      // Both ends run on the same host
+      buffer.order(ByteOrder.nativeOrder());
+      return buffer;
+    }
+  }
+
+  private static void fullFence() {
+    fence = 0;
+    int ignore = fence;
+  }
+
+  private final File file;
+  private MappedByteBuffer buffer;
+  private final int capacity;
+  private final int mask;
+  // The position of this end, the other process only reads it
+  private long pos;
+
+  private SharedMemoryRing(File file, MappedByteBuffer buffer, int capacity) {
+    this.file = file;
+    this.buffer = buffer;
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+  }
+
+  /**
+   * @return the path the reader opens
+   */
+  String path() {
+    return file.getAbsolutePath();
+  }
+
+  /**
+   * Delete the file of the ring, the mapping of both ends outlives it.
+   */
+  void deleteFile() {
+    if (file != null) {
+      file.delete();
+    }
+  }
+
+  /**
+   * Write as many bytes of {@code data} from {@code offset} as the ring can take.
+   *
+   * @return the number of bytes written, {@code 0} when the ring is full
+   */
+  int write(Buffer data, int offset) {
+    long readPos = buffer.getLong(READ_POS_OFFSET);
+    fullFence();
+    int len = (int) Math.min(data.length() - offset, capacity - (pos - readPos));
+    if (len > 0) {
+      ByteBuf src = data.getByteBuf();
+      int index = (int) (pos & mask);
+      int first = Math.min(len, capacity - index);
+      src.getBytes(offset, region(index, first));
+      if (first < len) {
+        src.getBytes(offset + first, region(0, len - first));
+      }
+      pos += len;
+      fullFence();
+      buffer.putLong(WRITE_POS_OFFSET, pos);
+    }
+    return len;
+  }
+
+  /**
+   * Called by the writer after a write, the reader must then be woken up when this returns true.
+   * <p>
+   * The writer always wakes the reader up after clearing the flag, so clearing a flag the reader set again meanwhile
+   * costs at most an extra wake up. No atomic update of the file is needed.
+   */
+  boolean wakeUpNeeded() {
+    fullFence();
+    if (buffer.getInt(SLEEPING_OFFSET) == 1) {
+      buffer.putInt(SLEEPING_OFFSET, 0);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Read the bytes available in the ring.
+   *
+   * @return the bytes or {@code null} when the ring is empty
+   */
+  Buffer read() {
+    long writePos = buffer.getLong(WRITE_POS_OFFSET);
+    int len = (int) (writePos - pos);
+    if (len == 0) {
+      return null;
+    }
+    fullFence();
+    ByteBuf dst = Unpooled.buffer(len);
+    int index = (int) (pos & mask);
+    int first = Math.min(len, capacity - index);
+    dst.writeBytes(region(index, first));
+    if (first < len) {
+      dst.writeBytes(region(0, len - first));
+    }
+    pos = writePos;
+    fullFence();
+    buffer.putLong(READ_POS_OFFSET, pos);
+    return Buffer.buffer(dst);
+  }
+
+  /**
+   * Called by the reader when the ring is empty, the writer wakes the reader up once it writes again.
+   *
+   * @return false when bytes were written meanwhile, the reader shall then keep reading
+   */
+  boolean sleep() {
+    buffer.putInt(SLEEPING_OFFSET, 1);
+    fullFence();
+    if (buffer.getLong(WRITE_POS_OFFSET) != pos) {
+      buffer.putInt(SLEEPING_OFFSET, 0);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Unmap the ring, it must not be used afterwards. The file of the writer end is deleted.
+   */
+  void close() {
+    if (buffer != null) {
+      deleteFile();
+      PlatformDependent.freeDirectBuffer(buffer);
+      buffer = null;
+    }
+  }
+
+  private ByteBuffer region(int index, int len) {
+    ByteBuffer region = buffer.duplicate();
+    region.limit(HEADER_SIZE + index + len).position(HEADER_SIZE + index);
+    return region;
+  }
+}
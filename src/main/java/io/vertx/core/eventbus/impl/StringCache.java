@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.eventbus.impl;
+
+import io.netty.util.CharsetUtil;
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Decodes the UTF-8 strings of the cluster wire format, returning the same instance while the bytes stay cached so the
+ * addresses and hosts repeated in every frame of a connection don't allocate. This is a direct mapped cache, a
+ * string evicts the one using the same slot, which keeps a lookup to a hash and a compare.
+ * <p>
+ * It is not thread safe, a connection decodes its frames on a single thread.
+ */
+class StringCache {
+
+  static final int SIZE = 256;
+  static final int MAX_LENGTH = 128;
+
+  private final byte[][] keys = new byte[SIZE][];
+  private final String[] values = new String[SIZE];
+
+  String get(Buffer buffer, int pos, int length) {
+    if (length > MAX_LENGTH) {
+      return new String(buffer.getBytes(pos, pos + length), CharsetUtil.UTF_8);
+    }
+    int hash = 1;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + buffer.getByte(pos + i);
+    }
+    int slot = (hash ^ (hash >>> 16)) & (SIZE - 1);
+    byte[] key = keys[slot];
+    if (key != null && key.length == length && matches(key, buffer, pos)) {
+      return values[slot];
+    }
+    byte[] bytes = buffer.getBytes(pos, pos + length);
+    String value = new String(bytes, CharsetUtil.UTF_8);
+    keys[slot] = bytes;
+    values[slot] = value;
+    return value;
+  }
+
+  private static boolean matches(byte[] key, Buffer buffer, int pos) {
+    for (int i = 0; i < key.length; i++) {
+      if (key[i] != buffer.getByte(pos + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
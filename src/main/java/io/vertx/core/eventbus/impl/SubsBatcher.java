@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.eventbus.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.impl.VertxInternal;
+import io.vertx.core.net.impl.ServerID;
+import io.vertx.core.spi.cluster.AsyncMultiMap;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coalesces the subscriptions of this node to the cluster. The subscriptions added or removed during an event loop
+ * turn go to the cluster in a single {@link AsyncMultiMap#addAll} and a single {@link AsyncMultiMap#removeAll} once
+ * the turn is over.
+ * <p>
+ * Only one batch is sent at a time, the changes made meanwhile wait for it to complete so the changes of an address
+ * reach the cluster in order. An address removed before its addition is sent, or added back before its removal is
+ * sent, does not reach the cluster at all.
+ */
+class SubsBatcher {
+
+  private final VertxInternal vertx;
+  private final AsyncMultiMap<String, ServerID> subs;
+  private final ServerID serverID;
+  private Map<String, Change> pending = new LinkedHashMap<>();
+  private boolean flushScheduled;
+  private boolean sending;
+
+  SubsBatcher(VertxInternal vertx, AsyncMultiMap<String, ServerID> subs, ServerID serverID) {
+    this.vertx = vertx;
+    this.subs = subs;
+    this.serverID = serverID;
+  }
+
+  void add(String address, Handler<AsyncResult<Void>> completionHandler) {
+    change(address, true, completionHandler);
+  }
+
+  void remove(String address, Handler<AsyncResult<Void>> completionHandler) {
+    change(address, false, completionHandler);
+  }
+
+  private synchronized void change(String address, boolean add, Handler<AsyncResult<Void>> completionHandler) {
+    Change change = pending.get(address);
+    if (change == null) {
+      change = new Change(add);
+      pending.put(address, change);
+    }
+    change.last = add;
+    change.handlers.add(completionHandler);
+    if (!flushScheduled && !sending) {
+      flushScheduled = true;
+      vertx.runOnContext(v -> flush());
+    }
+  }
+
+  private void flush() {
+    Map<String, Change> batch;
+    synchronized (this) {
+      flushScheduled = false;
+      if (sending || pending.isEmpty()) {
+        return;
+      }
+      sending = true;
+      batch = pending;
+      pending = new LinkedHashMap<>();
+    }
+    List<String> added = new ArrayList<>();
+    List<String> removed = new ArrayList<>();
+    List<Change> addChanges = new ArrayList<>();
+    List<Change> removeChanges = new ArrayList<>();
+    for (Map.Entry<String, Change> entry : batch.entrySet()) {
+      Change change = entry.getValue();
+      if (change.first != change.last) {
+        // The cluster already has what the address ends up with
+        change.complete(Future.completedFuture());
+      } else if (change.last) {
+        added.add(entry.getKey());
+        addChanges.add(change);
+      } else {
+        removed.add(entry.getKey());
+        removeChanges.add(change);
+      }
+    }
+    Runnable sent = new Runnable() {
+      int remaining = 2;
+      @Override
+      public void run() {
+        synchronized (SubsBatcher.this) {
+          if (--remaining > 0) {
+            return;
+          }
+          sending = false;
+        }
+        flush();
+      }
+    };
+    send(added, addChanges, true, sent);
+    send(removed, removeChanges, false, sent);
+  }
+
+  private void send(List<String> addresses, List<Change> changes, boolean add, Runnable sent) {
+    if (addresses.isEmpty()) {
+      sent.run();
+      return;
+    }
+    Handler<AsyncResult<Void>> handler = ar -> {
+      for (Change change : changes) {
+        change.complete(ar);
+      }
+      sent.run();
+    };
+    if (add) {
+      subs.addAll(addresses, serverID, handler);
+    } else {
+      subs.removeAll(addresses, serverID, handler);
+    }
+  }
+
+  private static class Change {
+
+    // An address is added when it has no subscription and removed when it has one, so the first change tells what
+    // the cluster has before the batch
+    final boolean first;
+    boolean last;
+    final List<Handler<AsyncResult<Void>>> handlers = new ArrayList<>(1);
+
+    Change(boolean first) {
+      this.first = first;
+    }
+
+    void complete(AsyncResult<Void> ar) {
+      for (Handler<AsyncResult<Void>> handler : handlers) {
+        handler.handle(ar);
+      }
+    }
+  }
+}
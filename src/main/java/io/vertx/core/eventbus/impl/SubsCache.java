@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.eventbus.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.net.impl.ServerID;
+import io.vertx.core.spi.cluster.AsyncMultiMap;
+import io.vertx.core.spi.cluster.ChoosableIterable;
+import io.vertx.core.spi.cluster.MultiMapListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A node local view of the cluster subscriptions. The servers of an address are loaded from the cluster once and then
+ * served from a map until the cluster notifies a change for that address, so a cached lookup never leaves the node.
+ * Addresses without subscribers are cached too, up to {@link #MAX_EMPTY_ENTRIES}. The servers are cached as an
+ * array, see {@link Servers}.
+ * <p>
+ * Lookups made while an address is loading wait for that load, so messages sent to an address keep their order.
+ * If the map can't notify changes every lookup goes to the cluster.
+ */
+class SubsCache implements MultiMapListener<String, ServerID> {
+
+  static final int MAX_EMPTY_ENTRIES = 4096;
+
+  private static final Servers EMPTY = new Servers(new ServerID[0]);
+
+  private final AsyncMultiMap<String, ServerID> subs;
+  private final ConcurrentMap<String, Object> entries = new ConcurrentHashMap<>();
+  // The addresses cached without subscribers, the entries being loaded and those with servers are not counted
+  private final AtomicInteger emptyEntries = new AtomicInteger();
+  private final boolean enabled;
+
+  SubsCache(AsyncMultiMap<String, ServerID> subs) {
+    this.subs = subs;
+    this.enabled = subs.addListener(this);
+  }
+
+  void get(String address, Handler<AsyncResult<ChoosableIterable<ServerID>>> resultHandler) {
+    if (!enabled) {
+      subs.get(address, resultHandler);
+      return;
+    }
+    Object entry = entries.get(address);
+    if (entry == null) {
+      Loading loading = new Loading(resultHandler);
+      entry = entries.putIfAbsent(address, loading);
+      if (entry == null) {
+        load(address, loading);
+        return;
+      }
+    }
+    if (entry instanceof Loading) {
+      AsyncResult<ChoosableIterable<ServerID>> outcome = ((Loading) entry).await(resultHandler);
+      if (outcome != null) {
+        resultHandler.handle(outcome);
+      }
+    } else {
+      resultHandler.handle(Future.completedFuture((ChoosableIterable<ServerID>) entry));
+    }
+  }
+
+  void close() {
+    if (enabled) {
+      subs.removeListener(this);
+    }
+    entries.clear();
+    emptyEntries.set(0);
+  }
+
+  @Override
+  public void entryAdded(String address, ServerID serverID) {
+    invalidate(address);
+  }
+
+  @Override
+  public void entryRemoved(String address, ServerID serverID) {
+    invalidate(address);
+  }
+
+  private void invalidate(String address) {
+    if (entries.remove(address) == EMPTY) {
+      emptyEntries.decrementAndGet();
+    }
+  }
+
+  private void load(String address, Loading loading) {
+    subs.get(address, ar -> {
+      if (ar.succeeded()) {
+        ChoosableIterable<ServerID> result = ar.result() != null ? Servers.copyOf(ar.result()) : EMPTY;
+        // A change notified during the load removed the placeholder, the result is then handed out but not kept
+        if (!result.isEmpty()) {
+          entries.replace(address, loading, result);
+        } else if (emptyEntries.incrementAndGet() > MAX_EMPTY_ENTRIES || !entries.replace(address, loading, result)) {
+          emptyEntries.decrementAndGet();
+          entries.remove(address, loading);
+        }
+        loading.complete(Future.completedFuture(result));
+      } else {
+        entries.remove(address, loading);
+        loading.complete(ar);
+      }
+    });
+  }
+
+  /**
+   * A copy of the servers of an address. The entry is removed when the cluster notifies a change so the copy does
+   * not need to follow the cluster, and the servers can be picked by index.
+   */
+  static final class Servers implements ChoosableIterable<ServerID> {
+
+    private final ServerID[] ids;
+    private final AtomicInteger pos = new AtomicInteger();
+
+    private Servers(ServerID[] ids) {
+      this.ids = ids;
+    }
+
+    static Servers copyOf(Iterable<ServerID> servers) {
+      List<ServerID> list = new ArrayList<>();
+      for (ServerID sid : servers) {
+        list.add(sid);
+      }
+      return list.isEmpty() ? EMPTY : new Servers(list.toArray(new ServerID[list.size()]));
+    }
+
+    int size() {
+      return ids.length;
+    }
+
+    ServerID get(int index) {
+      return ids[index];
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return ids.length == 0;
+    }
+
+    @Override
+    public ServerID choose() {
+      if (ids.length == 0) {
+        return null;
+      }
+      return ids[(pos.getAndIncrement() & Integer.MAX_VALUE) % ids.length];
+    }
+
+    @Override
+    public Iterator<ServerID> iterator() {
+      return Arrays.asList(ids).iterator();
+    }
+  }
+
+  private static class Loading {
+
+    private List<Handler<AsyncResult<ChoosableIterable<ServerID>>>> waiters = new ArrayList<>(1);
+    private AsyncResult<ChoosableIterable<ServerID>> outcome;
+
+    Loading(Handler<AsyncResult<ChoosableIterable<ServerID>>> first) {
+      waiters.add(first);
+    }
+
+    /**
+     * @return the outcome of the load if it is complete, otherwise null and the handler is called on completion
+     */
+    synchronized AsyncResult<ChoosableIterable<ServerID>> await(Handler<AsyncResult<ChoosableIterable<ServerID>>> handler) {
+      if (waiters != null) {
+        waiters.add(handler);
+      }
+      return outcome;
+    }
+
+    void complete(AsyncResult<ChoosableIterable<ServerID>> ar) {
+      List<Handler<AsyncResult<ChoosableIterable<ServerID>>>> toNotify;
+      synchronized (this) {
+        outcome = ar;
+        toNotify = waiters;
+        waiters = null;
+      }
+      for (Handler<AsyncResult<ChoosableIterable<ServerID>>> waiter : toNotify) {
+        waiter.handle(ar);
+      }
+    }
+  }
+}
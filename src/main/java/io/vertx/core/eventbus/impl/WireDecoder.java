@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.eventbus.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import io.vertx.core.buffer.Buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The state of a cluster connection reading frames, the cache of the strings of the frames and for the compact wire
+ * protocol the dictionary filled by the {@link WireEncoder} of the other end and a read position.
+ * <p>
+ * It is not thread safe, a connection decodes its frames on a single thread.
+ */
+class WireDecoder {
+
+  /**
+   * The largest body a frame can declare deflated, the {@link WireEncoder} sends the larger ones as they are
+   */
+  static final int MAX_INFLATED_LENGTH = 64 * 1024 * 1024;
+
+  // Deflate can't do better than about 1032 to 1, a frame declaring more is invalid
+  private static final int MAX_DEFLATE_RATIO = 1032;
+  private static final int MAX_INPUT_CAPACITY = 64 * 1024;
+
+  final StringCache strings = new StringCache();
+  private final List<String> dictionary = new ArrayList<>();
+  private Inflater inflater;
+  private byte[] input;
+  int pos;
+
+  byte readByte(Buffer buffer) {
+    return buffer.getByte(pos++);
+  }
+
+  int readVarInt(Buffer buffer) {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = buffer.getByte(pos++);
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalStateException("Malformed varint");
+  }
+
+  long readVarLong(Buffer buffer) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = buffer.getByte(pos++);
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalStateException("Malformed varint");
+  }
+
+  /**
+   * @param cached whether a literal is looked up in the string cache, the reply addresses are used once
+   */
+  String readString(Buffer buffer, boolean cached) {
+    int tag = readVarInt(buffer);
+    int kind = tag & 3;
+    int n = tag >>> 2;
+    switch (kind) {
+      case WireEncoder.NULL:
+        return null;
+      case WireEncoder.REFERENCE:
+        if (n >= dictionary.size()) {
+          throw new IllegalStateException("Unknown string id " + n);
+        }
+        return dictionary.get(n);
+      default:
+        String str = cached ? strings.get(buffer, pos, n) : new String(buffer.getBytes(pos, pos + n), CharsetUtil.UTF_8);
+        pos += n;
+        if (kind == WireEncoder.DEFINITION) {
+          if (dictionary.size() >= WireEncoder.MAX_ENTRIES) {
+            throw new IllegalStateException("Too many strings defined");
+          }
+          dictionary.add(str);
+        }
+        return str;
+    }
+  }
+
+  /**
+   * Inflate the rest of the frame. A frame backed by an array is inflated in place, otherwise it is copied to an
+   * input array kept by the decoder.
+   *
+   * @return the body preceded by a byte, as a body position of 0 means the body is decoded
+   */
+  Buffer inflateBody(Buffer buffer) {
+    int length = readVarInt(buffer);
+    int deflatedLength = buffer.length() - pos;
+    // The length is checked before it is allocated
+    if (length < 0 || length > MAX_INFLATED_LENGTH || length > (long) deflatedLength * MAX_DEFLATE_RATIO) {
+      throw new IllegalStateException("Invalid deflated body length " + length);
+    }
+    if (inflater == null) {
+      inflater = new Inflater();
+    }
+    inflater.reset();
+    ByteBuf frame = buffer.getByteBuf();
+    if (frame.hasArray()) {
+      inflater.setInput(frame.array(), frame.arrayOffset() + pos, deflatedLength);
+    } else {
+      if (input == null || input.length < deflatedLength) {
+        input = new byte[deflatedLength];
+      }
+      frame.getBytes(pos, input, 0, deflatedLength);
+      inflater.setInput(input, 0, deflatedLength);
+    }
+    ByteBuf body = Unpooled.buffer(length + 1, length + 1);
+    try {
+      if (inflater.inflate(body.array(), body.arrayOffset() + 1, length) != length || !inflater.finished()) {
+        throw new IllegalStateException("Invalid deflated body length");
+      }
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Invalid deflated body", e);
+    } finally {
+      if (input != null && input.length > MAX_INPUT_CAPACITY) {
+        // Don't keep the memory of a large body
+        input = null;
+      }
+    }
+    body.writerIndex(length + 1);
+    return Buffer.buffer(body);
+  }
+
+  void close() {
+    if (inflater != null) {
+      inflater.end();
+      inflater = null;
+    }
+  }
+}
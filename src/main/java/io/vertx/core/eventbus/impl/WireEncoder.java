@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.eventbus.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * The state of a cluster connection writing frames with the compact wire protocol, see {@link WireDecoder} for the
+ * other end of the connection.
+ * <p>
+ * Lengths and numbers are varints. A string is a varint tag holding a kind in its 2 low bits: null, a reference to
+ * a string of the connection dictionary, a literal or a literal added to the dictionary. The addresses, hosts, codec
+ * and header names are added to the dictionary the first time they are written, the next frames only carry their id.
+ * The bodies larger than {@link #COMPRESSION_THRESHOLD} are deflated.
+ * <p>
+ * It is not thread safe, the frames of a connection are encoded holding its lock.
+ */
+class WireEncoder {
+
+  static final int NULL = 0;
+  static final int REFERENCE = 1;
+  static final int LITERAL = 2;
+  static final int DEFINITION = 3;
+
+  static final int MAX_ENTRIES = 4096;
+  static final int MAX_LENGTH = StringCache.MAX_LENGTH;
+  static final int COMPRESSION_THRESHOLD = 4096;
+
+  private static final int MAX_SCRATCH_CAPACITY = 64 * 1024;
+
+  private final Map<String, Integer> ids = new HashMap<>();
+  private ByteBuf scratchBuf;
+  private Buffer scratch;
+  private Deflater deflater;
+  private byte[] deflated;
+
+  WireEncoder() {
+    newScratch();
+  }
+
+  /**
+   * @param cached whether the string is worth adding to the dictionary
+   */
+  void writeString(Buffer buffer, String str, boolean cached) {
+    if (str == null) {
+      buffer.appendByte((byte) NULL);
+      return;
+    }
+    if (cached) {
+      Integer id = ids.get(str);
+      if (id != null) {
+        writeVarInt(buffer, id << 2 | REFERENCE);
+        return;
+      }
+    }
+    byte[] bytes = str.getBytes(CharsetUtil.UTF_8);
+    int kind = LITERAL;
+    if (cached && bytes.length <= MAX_LENGTH && ids.size() < MAX_ENTRIES) {
+      ids.put(str, ids.size());
+      kind = DEFINITION;
+    }
+    writeVarInt(buffer, bytes.length << 2 | kind);
+    buffer.appendBytes(bytes);
+  }
+
+  /**
+   * Append the body encoded by the codec to the buffer.
+   *
+   * @return true when the body is deflated, it is then preceded by its inflated length
+   */
+  @SuppressWarnings("unchecked")
+  boolean writeBody(Buffer buffer, MessageCodec codec, Object body) {
+    scratchBuf.clear();
+    codec.encodeToWire(scratch, body);
+    int length = scratchBuf.readableBytes();
+    boolean compressed = length > COMPRESSION_THRESHOLD && length <= WireDecoder.MAX_INFLATED_LENGTH && deflate(buffer, length);
+    if (!compressed) {
+      buffer.appendBuffer(scratch);
+    }
+    if (scratchBuf.capacity() > MAX_SCRATCH_CAPACITY) {
+      // Don't keep the memory of a large body
+      newScratch();
+    }
+    return compressed;
+  }
+
+  void close() {
+    if (deflater != null) {
+      deflater.end();
+      deflater = null;
+    }
+  }
+
+  private boolean deflate(Buffer buffer, int length) {
+    if (deflater == null) {
+      deflater = new Deflater(Deflater.BEST_SPEED);
+    }
+    if (deflated == null || deflated.length < length) {
+      deflated = new byte[length];
+    }
+    byte[] input = scratch.getBytes();
+    deflater.reset();
+    deflater.setInput(input);
+    deflater.finish();
+    // Not worth it when the deflated body does not fit in less than 7/8 of the body
+    int max = length - length / 8;
+    int deflatedLength = deflater.deflate(deflated, 0, max);
+    if (!deflater.finished()) {
+      return false;
+    }
+    writeVarInt(buffer, length);
+    buffer.appendBytes(deflated, 0, deflatedLength);
+    if (deflated.length > MAX_SCRATCH_CAPACITY) {
+      deflated = null;
+    }
+    return true;
+  }
+
+  private void newScratch() {
+    scratchBuf = Unpooled.buffer(1024);
+    scratch = Buffer.buffer(scratchBuf);
+  }
+
+  static void writeVarInt(Buffer buffer, int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.appendByte((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.appendByte((byte) value);
+  }
+
+  static void writeVarLong(Buffer buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.appendByte((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.appendByte((byte) value);
+  }
+}
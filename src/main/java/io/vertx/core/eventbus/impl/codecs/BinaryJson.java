@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.eventbus.impl.codecs;
+
+import io.netty.util.CharsetUtil;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A binary JSON format written straight into the message buffer and read back into the maps and lists backing
+ * {@link JsonObject} and {@link JsonArray}, without going through a JSON string.
+ * <p>
+ * A value is a tag byte followed by its data, lengths and integers are varints (zigzag encoded for the signed
+ * numbers). The field names are numbered in the order they first appear in a value, a name seen before is written as
+ * its number, so the arrays of objects with the same fields only carry the names once.
+ */
+class BinaryJson {
+
+  private static final byte NULL = 0;
+  private static final byte TRUE = 1;
+  private static final byte FALSE = 2;
+  private static final byte INT = 3;
+  private static final byte LONG = 4;
+  private static final byte FLOAT = 5;
+  private static final byte DOUBLE = 6;
+  private static final byte STRING = 7;
+  private static final byte OBJECT = 8;
+  private static final byte ARRAY = 9;
+  private static final byte BIG_INTEGER = 10;
+
+  private final Buffer buffer;
+  private int pos;
+  private Map<String, Integer> nameIds;
+  private List<String> names;
+
+  private BinaryJson(Buffer buffer, int pos) {
+    this.buffer = buffer;
+    this.pos = pos;
+  }
+
+  static void encode(Buffer buffer, JsonObject json) {
+    new BinaryJson(buffer, 0).writeObject(json.getMap());
+  }
+
+  static void encode(Buffer buffer, JsonArray json) {
+    new BinaryJson(buffer, 0).writeArray(json.getList());
+  }
+
+  static JsonObject decodeObject(int pos, Buffer buffer) {
+    BinaryJson reader = new BinaryJson(buffer, pos);
+    reader.expect(OBJECT);
+    return new JsonObject(reader.readObject());
+  }
+
+  static JsonArray decodeArray(int pos, Buffer buffer) {
+    BinaryJson reader = new BinaryJson(buffer, pos);
+    reader.expect(ARRAY);
+    return new JsonArray(reader.readArray());
+  }
+
+  @SuppressWarnings("unchecked")
+  private void writeValue(Object value) {
+    if (value == null) {
+      buffer.appendByte(NULL);
+    } else if (value instanceof String) {
+      buffer.appendByte(STRING);
+      writeString((String) value);
+    } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      buffer.appendByte(INT);
+      int i = ((Number) value).intValue();
+      writeVarLong(((i << 1) ^ (i >> 31)) & 0xFFFFFFFFL);
+    } else if (value instanceof Long) {
+      buffer.appendByte(LONG);
+      long l = (Long) value;
+      writeVarLong((l << 1) ^ (l >> 63));
+    } else if (value instanceof Double) {
+      buffer.appendByte(DOUBLE);
+      buffer.appendDouble((Double) value);
+    } else if (value instanceof Float) {
+      buffer.appendByte(FLOAT);
+      buffer.appendFloat((Float) value);
+    } else if (value instanceof Boolean) {
+      buffer.appendByte((Boolean) value ? TRUE : FALSE);
+    } else if (value instanceof JsonObject) {
+      writeObject(((JsonObject) value).getMap());
+    } else if (value instanceof Map) {
+      writeObject((Map<String, Object>) value);
+    } else if (value instanceof JsonArray) {
+      writeArray(((JsonArray) value).getList());
+    } else if (value instanceof List) {
+      writeArray((List<Object>) value);
+    } else if (value instanceof CharSequence) {
+      buffer.appendByte(STRING);
+      writeString(value.toString());
+    } else if (value instanceof BigInteger) {
+      buffer.appendByte(BIG_INTEGER);
+      writeString(value.toString());
+    } else if (value instanceof Number) {
+      buffer.appendByte(DOUBLE);
+      buffer.appendDouble(((Number) value).doubleValue());
+    } else {
+      throw new IllegalStateException("Illegal type in Json: " + value.getClass());
+    }
+  }
+
+  private void writeObject(Map<String, Object> map) {
+    buffer.appendByte(OBJECT);
+    writeVarLong(map.size());
+    for (Map.Entry<String, Object> entry : map.entrySet()) {
+      writeName(entry.getKey());
+      writeValue(entry.getValue());
+    }
+  }
+
+  private void writeArray(List<Object> list) {
+    buffer.appendByte(ARRAY);
+    writeVarLong(list.size());
+    for (Object value : list) {
+      writeValue(value);
+    }
+  }
+
+  // A name is its number shifted left with the low bit set or its length shifted left followed by its bytes
+  private void writeName(String name) {
+    if (nameIds == null) {
+      nameIds = new HashMap<>();
+    }
+    Integer id = nameIds.get(name);
+    if (id != null) {
+      writeVarLong(((long) id << 1) | 1);
+    } else {
+      nameIds.put(name, nameIds.size());
+      byte[] bytes = name.getBytes(CharsetUtil.UTF_8);
+      writeVarLong((long) bytes.length << 1);
+      buffer.appendBytes(bytes);
+    }
+  }
+
+  private void writeString(String str) {
+    byte[] bytes = str.getBytes(CharsetUtil.UTF_8);
+    writeVarLong(bytes.length);
+    buffer.appendBytes(bytes);
+  }
+
+  private void writeVarLong(long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.appendByte((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.appendByte((byte) value);
+  }
+
+  private Object readValue() {
+    byte tag = buffer.getByte(pos++);
+    switch (tag) {
+      case NULL:
+        return null;
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case INT:
+        long i = readVarLong();
+        return (int) ((i >>> 1) ^ -(i & 1));
+      case LONG:
+        long l = readVarLong();
+        return (l >>> 1) ^ -(l & 1);
+      case FLOAT:
+        float f = buffer.getFloat(pos);
+        pos += 4;
+        return f;
+      case DOUBLE:
+        double d = buffer.getDouble(pos);
+        pos += 8;
+        return d;
+      case STRING:
+        return readString();
+      case OBJECT:
+        return readObject();
+      case ARRAY:
+        return readArray();
+      case BIG_INTEGER:
+        return new BigInteger(readString());
+      default:
+        throw new IllegalStateException("Invalid binary Json tag " + tag);
+    }
+  }
+
+  private Map<String, Object> readObject() {
+    int size = (int) readVarLong();
+    Map<String, Object> map = new LinkedHashMap<>(size * 4 / 3 + 1);
+    for (int i = 0; i < size; i++) {
+      String name = readName();
+      map.put(name, readValue());
+    }
+    return map;
+  }
+
+  private List<Object> readArray() {
+    int size = (int) readVarLong();
+    List<Object> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      list.add(readValue());
+    }
+    return list;
+  }
+
+  private String readName() {
+    long tag = readVarLong();
+    if ((tag & 1) != 0) {
+      int id = (int) (tag >>> 1);
+      if (names == null || id >= names.size()) {
+        throw new IllegalStateException("Unknown binary Json name " + id);
+      }
+      return names.get(id);
+    }
+    String name = readString((int) (tag >>> 1));
+    if (names == null) {
+      names = new ArrayList<>();
+    }
+    names.add(name);
+    return name;
+  }
+
+  private String readString() {
+    return readString((int) readVarLong());
+  }
+
+  private String readString(int length) {
+    String str = new String(buffer.getBytes(pos, pos + length), CharsetUtil.UTF_8);
+    pos += length;
+    return str;
+  }
+
+  private long readVarLong() {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = buffer.getByte(pos++);
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalStateException("Malformed varint");
+  }
+
+  private void expect(byte tag) {
+    if (buffer.getByte(pos++) != tag) {
+      throw new IllegalStateException("Invalid binary Json tag " + buffer.getByte(pos - 1));
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.eventbus.impl.codecs;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.JsonArray;
+
+/**
+ * Encodes a JsonArray in the {@link BinaryJson} format instead of text, it is faster to encode and decode and smaller.
+ */
+public class JsonArrayBinaryMessageCodec implements MessageCodec<JsonArray, JsonArray> {
+
+  public static final String NAME = "jsonarray.binary";
+
+  @Override
+  public void encodeToWire(Buffer buffer, JsonArray jsonArray) {
+    BinaryJson.encode(buffer, jsonArray);
+  }
+
+  @Override
+  public JsonArray decodeFromWire(int pos, Buffer buffer) {
+    return BinaryJson.decodeArray(pos, buffer);
+  }
+
+  @Override
+  public JsonArray transform(JsonArray jsonArray) {
+    // Read-only views can be shared between handlers
+    return jsonArray.isReadOnly() ? jsonArray : jsonArray.copy();
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public byte systemCodecID() {
+    return 17;
+  }
+}
@@ -46,7 +46,8 @@ public class JsonArrayMessageCodec implements MessageCodec<JsonArray, JsonArray>
 
   @Override
   public JsonArray transform(JsonArray jsonArray) {
-    return jsonArray.copy();
+    // Read-only views can be shared between handlers
+    return jsonArray.isReadOnly() ? jsonArray : jsonArray.copy();
   }
 
   @Override
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.eventbus.impl.codecs;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Encodes a JsonObject in the {@link BinaryJson} format instead of text, it is faster to encode and decode and smaller.
+ */
+public class JsonObjectBinaryMessageCodec implements MessageCodec<JsonObject, JsonObject> {
+
+  public static final String NAME = "jsonobject.binary";
+
+  @Override
+  public void encodeToWire(Buffer buffer, JsonObject jsonObject) {
+    BinaryJson.encode(buffer, jsonObject);
+  }
+
+  @Override
+  public JsonObject decodeFromWire(int pos, Buffer buffer) {
+    return BinaryJson.decodeObject(pos, buffer);
+  }
+
+  @Override
+  public JsonObject transform(JsonObject jsonObject) {
+    // Read-only views can be shared between handlers
+    return jsonObject.isReadOnly() ? jsonObject : jsonObject.copy();
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public byte systemCodecID() {
+    return 16;
+  }
+}
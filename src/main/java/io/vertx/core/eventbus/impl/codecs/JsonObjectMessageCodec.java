@@ -46,7 +46,8 @@ public class JsonObjectMessageCodec implements MessageCodec<JsonObject, JsonObje
 
   @Override
   public JsonObject transform(JsonObject jsonObject) {
-    return jsonObject.copy();
+    // Read-only views can be shared between handlers
+    return jsonObject.isReadOnly() ? jsonObject : jsonObject.copy();
   }
 
   @Override
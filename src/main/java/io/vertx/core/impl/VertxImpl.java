@@ -76,6 +76,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
@@ -165,14 +166,16 @@ public class VertxImpl implements VertxInternal {
                 int serverPort = publicPort == -1 ? server.actualPort() : publicPort;
                 String serverHost = publicHost == null ? options.getClusterHost() : publicHost;
                 ServerID serverID = new ServerID(serverPort, serverHost);
-                // Provide a memory barrier as we are setting from a different thread
-                synchronized (VertxImpl.this) {
-                  eventBus = new EventBusImpl(this, options.getClusterPingInterval(), options.getClusterPingReplyInterval(),
-                    clusterManager, subs, serverID, ebServer);
-                }
-                if (resultHandler != null) {
-                  resultHandler.handle(Future.completedFuture(this));
-                }
+                shareEventBusServer(ebServer, server.actualPort(), options.getClusterHost(),
+                  options.getClusterConnectionsPerNode() - 1, v -> {
+                  // Provide a memory barrier as we are setting from a different thread
+                  synchronized (VertxImpl.this) {
+                    eventBus = new EventBusImpl(this, options, clusterManager, subs, serverID, ebServer);
+                  }
+                  if (resultHandler != null) {
+                    resultHandler.handle(Future.completedFuture(this));
+                  }
+                });
               } else {
                 if (resultHandler != null) {
                   resultHandler.handle(Future.completedFuture(ar.cause()));
@@ -324,6 +327,31 @@ public class VertxImpl implements VertxInternal {
     }
   }
 
+  // Listen on the port of the event bus server from more event loops, so the connections of the other nodes are
+  // spread over them
+  private void shareEventBusServer(EventBusImpl.EventBusNetServer ebServer, int port, String host, int count,
+                                   Handler<Void> doneHandler) {
+    if (count == 0) {
+      doneHandler.handle(null);
+      return;
+    }
+    AtomicInteger remaining = new AtomicInteger(count);
+    for (int i = 0; i < count; i++) {
+      createEventLoopContext(null, new JsonObject(), Thread.currentThread().getContextClassLoader()).runOnContext(v -> {
+        NetServer server = createNetServer(new NetServerOptions().setPort(port).setHost(host));
+        ebServer.addServer(server);
+        server.listen(ar -> {
+          if (ar.failed()) {
+            log.error("Failed to share the event bus server", ar.cause());
+          }
+          if (remaining.decrementAndGet() == 0) {
+            doneHandler.handle(null);
+          }
+        });
+      });
+    }
+  }
+
   public EventLoopContext createEventLoopContext(String deploymentID, JsonObject config, ClassLoader tccl) {
     return new EventLoopContext(this, workerOrderedFact.getExecutor(), deploymentID, config, tccl);
   }
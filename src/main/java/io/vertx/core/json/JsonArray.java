@@ -22,6 +22,7 @@ import io.vertx.core.shareddata.impl.ClusterSerializable;
 
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +35,7 @@ import java.util.stream.Stream;
 public class JsonArray implements Iterable<Object>, ClusterSerializable {
 
   private List<Object> list;
+  private boolean readOnly;
 
   public JsonArray(String json) {
     fromJson(json);
@@ -229,6 +231,35 @@ public class JsonArray implements Iterable<Object>, ClusterSerializable {
     return list;
   }
 
+  /**
+   * Returns a read-only copy of this array. The copy is frozen deeply, any attempt to modify it (or a nested
+   * object or array obtained from it, or its list) throws an {@link UnsupportedOperationException}.
+   * Changes made to this array afterwards are not seen by the copy.<p>
+   * A read-only array sent on the event bus is not copied when delivered locally, all the handlers receive
+   * the same instance.
+   *
+   * @return a read-only copy of this array
+   */
+  public JsonArray asReadOnly() {
+    if (readOnly) {
+      return this;
+    }
+    List<Object> frozen = new ArrayList<>(list.size());
+    for (Object val: list) {
+      frozen.add(JsonObject.readOnlyValue(val));
+    }
+    JsonArray copy = new JsonArray(Collections.unmodifiableList(frozen));
+    copy.readOnly = true;
+    return copy;
+  }
+
+  /**
+   * @return true if this array is read-only
+   */
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
   public JsonArray clear() {
     list.clear();
     return this;
@@ -21,6 +21,7 @@ import io.vertx.core.json.impl.Json;
 import io.vertx.core.shareddata.impl.ClusterSerializable;
 
 import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -36,6 +37,7 @@ import java.util.stream.Stream;
 public class JsonObject implements Iterable<Map.Entry<String, Object>>, ClusterSerializable {
 
   private Map<String, Object> map;
+  private boolean readOnly;
 
   public JsonObject(String json) {
     fromJson(json);
@@ -348,6 +350,35 @@ public class JsonObject implements Iterable<Map.Entry<String, Object>>, ClusterS
     return map;
   }
 
+  /**
+   * Returns a read-only copy of this object. The copy is frozen deeply, any attempt to modify it (or a nested
+   * object or array obtained from it, its entries or its map) throws an {@link UnsupportedOperationException}.
+   * Changes made to this object afterwards are not seen by the copy.<p>
+   * A read-only object sent on the event bus is not copied when delivered locally, all the handlers receive
+   * the same instance.
+   *
+   * @return a read-only copy of this object
+   */
+  public JsonObject asReadOnly() {
+    if (readOnly) {
+      return this;
+    }
+    Map<String, Object> frozen = new LinkedHashMap<>(map.size());
+    for (Map.Entry<String, Object> entry: map.entrySet()) {
+      frozen.put(entry.getKey(), readOnlyValue(entry.getValue()));
+    }
+    JsonObject copy = new JsonObject(Collections.unmodifiableMap(frozen));
+    copy.readOnly = true;
+    return copy;
+  }
+
+  /**
+   * @return true if this object is read-only
+   */
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
   public Stream<Map.Entry<String, Object>> stream() {
     return map.entrySet().stream();
   }
@@ -437,6 +468,17 @@ public class JsonObject implements Iterable<Map.Entry<String, Object>>, ClusterS
     return o1.equals(o2);
   }
 
+  // Nested maps and lists become read-only objects and arrays, the other values are immutable
+  static Object readOnlyValue(Object val) {
+    val = Json.checkAndCopy(val, false);
+    if (val instanceof JsonObject) {
+      return ((JsonObject) val).asReadOnly();
+    } else if (val instanceof JsonArray) {
+      return ((JsonArray) val).asReadOnly();
+    }
+    return val;
+  }
+
   @Override
   public int hashCode() {
     return map.hashCode();
@@ -138,10 +138,26 @@ public class DummyVertxMetrics implements VertxMetrics {
     public void messageReceived(String address) {
     }
 
+    @Override
+    public void messageExpired(String address) {
+    }
+
     @Override
     public void replyFailure(String address, ReplyFailure failure) {
     }
 
+    @Override
+    public void messagesFlushed(int messages, int bytes) {
+    }
+
+    @Override
+    public void messagesPending(int pending) {
+    }
+
+    @Override
+    public void messageOverflow(String address) {
+    }
+
     @Override
     public String baseName() {
       return null;
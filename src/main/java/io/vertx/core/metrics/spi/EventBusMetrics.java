@@ -31,5 +31,38 @@ public interface EventBusMetrics extends BaseMetrics {
 
   void messageReceived(String address);
 
+  /**
+   * Called when a message is dropped before being handled because its deadline has passed.
+   *
+   * @param address the address of the message
+   */
+  default void messageExpired(String address) {
+  }
+
   void replyFailure(String address, ReplyFailure failure);
+
+  /**
+   * Called when the messages buffered for a cluster connection are written to the socket at once.
+   *
+   * @param messages the number of messages written
+   * @param bytes the number of bytes written
+   */
+  default void messagesFlushed(int messages, int bytes) {
+  }
+
+  /**
+   * Called when the number of messages waiting for cluster connections to be established changes.
+   *
+   * @param pending the number of messages waiting, all the connections together
+   */
+  default void messagesPending(int pending) {
+  }
+
+  /**
+   * Called when a message waiting for a cluster connection is dropped because too many messages are waiting.
+   *
+   * @param address the address of the message
+   */
+  default void messageOverflow(String address) {
+  }
 }
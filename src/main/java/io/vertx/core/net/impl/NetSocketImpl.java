@@ -28,6 +28,7 @@ import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.VoidHandler;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.impl.ContextImpl;
@@ -75,7 +76,9 @@ public class NetSocketImpl extends ConnectionBase implements NetSocket {
     this.client = client;
     this.writeHandlerID = UUID.randomUUID().toString();
     Handler<Message<Buffer>> writeHandler = msg -> write(msg.body());
-    registration = vertx.eventBus().<Buffer>localConsumer(writeHandlerID).handler(writeHandler);
+    // A cluster manager joining the cluster uses sockets before the event bus exists
+    EventBus eventBus = vertx.eventBus();
+    registration = eventBus != null ? eventBus.<Buffer>localConsumer(writeHandlerID).handler(writeHandler) : null;
   }
 
   @Override
@@ -262,7 +265,7 @@ public class NetSocketImpl extends ConnectionBase implements NetSocket {
       endHandler.handle(null);
     }
     super.handleClosed();
-    if (vertx.eventBus() != null) {
+    if (registration != null) {
       registration.unregister();
     }
   }
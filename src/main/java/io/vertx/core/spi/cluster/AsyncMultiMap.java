@@ -17,8 +17,12 @@
 package io.vertx.core.spi.cluster;
 
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  *
  * An asynchronous multi-map.
@@ -41,6 +45,32 @@ public interface AsyncMultiMap<K, V> {
    */
   void add(K k, V v, Handler<AsyncResult<Void>> completionHandler);
 
+  /**
+   * Add a value to the list of values of each key in the map. The cluster implementation should do it in as few
+   * cluster operations as it can, the default implementation adds the keys one by one.
+   * @param keys The keys
+   * @param v The value
+   * @param completionHandler This will be called when all the entries have been added, or with the first failure
+   */
+  default void addAll(Collection<K> keys, V v, Handler<AsyncResult<Void>> completionHandler) {
+    if (keys.isEmpty()) {
+      completionHandler.handle(Future.completedFuture());
+      return;
+    }
+    AtomicInteger remaining = new AtomicInteger(keys.size());
+    for (K k : keys) {
+      add(k, v, ar -> {
+        if (ar.failed()) {
+          if (remaining.getAndSet(-1) > 0) {
+            completionHandler.handle(ar);
+          }
+        } else if (remaining.decrementAndGet() == 0) {
+          completionHandler.handle(Future.completedFuture());
+        }
+      });
+    }
+  }
+
   /**
    * Get a list of values from the map for the key
    * @param k The key
@@ -57,10 +87,53 @@ public interface AsyncMultiMap<K, V> {
    */
   void remove(K k, V v, Handler<AsyncResult<Boolean>> completionHandler);
 
+  /**
+   * Remove a value from the list of values of each key in the map. The cluster implementation should do it in as few
+   * cluster operations as it can, the default implementation removes the keys one by one.
+   * @param keys The keys
+   * @param v The value
+   * @param completionHandler This will be called when the remove is complete, or with the first failure
+   */
+  default void removeAll(Collection<K> keys, V v, Handler<AsyncResult<Void>> completionHandler) {
+    if (keys.isEmpty()) {
+      completionHandler.handle(Future.completedFuture());
+      return;
+    }
+    AtomicInteger remaining = new AtomicInteger(keys.size());
+    for (K k : keys) {
+      remove(k, v, ar -> {
+        if (ar.failed()) {
+          if (remaining.getAndSet(-1) > 0) {
+            completionHandler.handle(Future.completedFuture(ar.cause()));
+          }
+        } else if (remaining.decrementAndGet() == 0) {
+          completionHandler.handle(Future.completedFuture());
+        }
+      });
+    }
+  }
+
   /**
    * Remove all the specified values from all keys in the map
    * @param v The value
    * @param completionHandler This will be called when the remove is complete
    */
   void removeAllForValue(V v, Handler<AsyncResult<Void>> completionHandler);
+
+  /**
+   * Add a listener which will be called after a value is added or removed by any node. The listener can be called
+   * from any thread.
+   * @param listener The listener
+   * @return false if the map can't notify changes, the default, in which case the listener is not added
+   */
+  default boolean addListener(MultiMapListener<K, V> listener) {
+    return false;
+  }
+
+  /**
+   * Remove a listener previously added with {@link #addListener}
+   * @param listener The listener
+   */
+  default void removeListener(MultiMapListener<K, V> listener) {
+  }
 }
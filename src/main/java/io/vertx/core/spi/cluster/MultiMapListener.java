@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.core.spi.cluster;
+
+/**
+ *
+ * A MultiMapListener is called when values are added to or removed from an {@link AsyncMultiMap} by any node of the
+ * cluster
+ */
+public interface MultiMapListener<K, V> {
+
+  /**
+   * A value has been added
+   * @param k The key
+   * @param v The value
+   */
+  void entryAdded(K k, V v);
+
+  /**
+   * A value has been removed
+   * @param k The key
+   * @param v The value
+   */
+  void entryRemoved(K k, V v);
+}
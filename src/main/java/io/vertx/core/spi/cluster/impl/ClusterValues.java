@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.spi.cluster.impl;
+
+import io.vertx.core.VertxException;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.impl.ServerID;
+import io.vertx.core.shareddata.impl.ClusterSerializable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Encodes the keys and values of the cluster data structures. Only a fixed set of types is accepted: strings, the
+ * primitive wrappers, byte arrays, buffers, JSON objects and arrays, server IDs and the {@link ClusterSerializable}
+ * classes given to the constructor. Java serialization is not supported, a node never instantiates a class a peer
+ * names unless it is one of these.
+ */
+class ClusterValues {
+
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte BUFFER = 2;
+  private static final byte CLUSTER_SERIALIZABLE = 3;
+  private static final byte BYTES = 4;
+  private static final byte INT = 5;
+  private static final byte LONG = 6;
+  private static final byte SHORT = 7;
+  private static final byte BYTE = 8;
+  private static final byte FLOAT = 9;
+  private static final byte DOUBLE = 10;
+  private static final byte BOOLEAN = 11;
+  private static final byte CHAR = 12;
+  private static final byte JSON_OBJECT = 13;
+  private static final byte JSON_ARRAY = 14;
+  private static final byte SERVER_ID = 15;
+
+  private final Set<String> serializableClasses;
+
+  ClusterValues(Collection<String> serializableClasses) {
+    this.serializableClasses = new HashSet<>(serializableClasses);
+  }
+
+  byte[] encode(Object obj) {
+    Buffer buffer = Buffer.buffer();
+    if (obj == null) {
+      buffer.appendByte(NULL);
+    } else if (obj instanceof String) {
+      buffer.appendByte(STRING).appendString((String) obj);
+    } else if (obj instanceof Buffer) {
+      buffer.appendByte(BUFFER).appendBuffer((Buffer) obj);
+    } else if (obj instanceof byte[]) {
+      buffer.appendByte(BYTES).appendBytes((byte[]) obj);
+    } else if (obj instanceof Integer) {
+      buffer.appendByte(INT).appendInt((Integer) obj);
+    } else if (obj instanceof Long) {
+      buffer.appendByte(LONG).appendLong((Long) obj);
+    } else if (obj instanceof Short) {
+      buffer.appendByte(SHORT).appendShort((Short) obj);
+    } else if (obj instanceof Byte) {
+      buffer.appendByte(BYTE).appendByte((Byte) obj);
+    } else if (obj instanceof Float) {
+      buffer.appendByte(FLOAT).appendFloat((Float) obj);
+    } else if (obj instanceof Double) {
+      buffer.appendByte(DOUBLE).appendDouble((Double) obj);
+    } else if (obj instanceof Boolean) {
+      buffer.appendByte(BOOLEAN).appendByte((byte) ((Boolean) obj ? 1 : 0));
+    } else if (obj instanceof Character) {
+      buffer.appendByte(CHAR).appendShort((short) ((Character) obj).charValue());
+    } else if (obj instanceof JsonObject) {
+      buffer.appendByte(JSON_OBJECT).appendString(((JsonObject) obj).encode());
+    } else if (obj instanceof JsonArray) {
+      buffer.appendByte(JSON_ARRAY).appendString(((JsonArray) obj).encode());
+    } else if (obj instanceof ServerID) {
+      ServerID serverID = (ServerID) obj;
+      buffer.appendByte(SERVER_ID).appendInt(serverID.port).appendString(serverID.host);
+    } else if (obj instanceof ClusterSerializable && serializableClasses.contains(obj.getClass().getName())) {
+      byte[] className = obj.getClass().getName().getBytes(StandardCharsets.UTF_8);
+      buffer.appendByte(CLUSTER_SERIALIZABLE).appendInt(className.length).appendBytes(className)
+        .appendBuffer(((ClusterSerializable) obj).writeToBuffer());
+    } else {
+      throw new IllegalArgumentException("Invalid type: " + obj.getClass().getName() + " to store in the cluster, " +
+        "only the basic types and the ClusterSerializable classes listed in serializableClasses are supported");
+    }
+    return buffer.getBytes();
+  }
+
+  @SuppressWarnings("unchecked")
+  <T> T decode(byte[] bytes) {
+    if (bytes == null) {
+      return null;
+    }
+    Buffer buffer = Buffer.buffer(bytes);
+    switch (bytes[0]) {
+      case NULL:
+        return null;
+      case STRING:
+        return (T) buffer.getString(1, bytes.length, "UTF-8");
+      case BUFFER:
+        return (T) buffer.getBuffer(1, bytes.length);
+      case BYTES:
+        return (T) buffer.getBytes(1, bytes.length);
+      case INT:
+        return (T) Integer.valueOf(buffer.getInt(1));
+      case LONG:
+        return (T) Long.valueOf(buffer.getLong(1));
+      case SHORT:
+        return (T) Short.valueOf(buffer.getShort(1));
+      case BYTE:
+        return (T) Byte.valueOf(buffer.getByte(1));
+      case FLOAT:
+        return (T) Float.valueOf(buffer.getFloat(1));
+      case DOUBLE:
+        return (T) Double.valueOf(buffer.getDouble(1));
+      case BOOLEAN:
+        return (T) Boolean.valueOf(buffer.getByte(1) != 0);
+      case CHAR:
+        return (T) Character.valueOf((char) buffer.getShort(1));
+      case JSON_OBJECT:
+        return (T) new JsonObject(buffer.getString(1, bytes.length, "UTF-8"));
+      case JSON_ARRAY:
+        return (T) new JsonArray(buffer.getString(1, bytes.length, "UTF-8"));
+      case SERVER_ID:
+        return (T) new ServerID(buffer.getInt(1), buffer.getString(5, bytes.length, "UTF-8"));
+      case CLUSTER_SERIALIZABLE:
+        int len = buffer.getInt(1);
+        String className = buffer.getString(5, 5 + len, "UTF-8");
+        if (!serializableClasses.contains(className)) {
+          throw new VertxException("Class " + className + " is not in serializableClasses");
+        }
+        try {
+          ClassLoader loader = Thread.currentThread().getContextClassLoader();
+          Class<?> clazz = (loader != null ? loader : ClusterValues.class.getClassLoader()).loadClass(className);
+          if (!ClusterSerializable.class.isAssignableFrom(clazz)) {
+            throw new VertxException("Class " + className + " is not ClusterSerializable");
+          }
+          ClusterSerializable obj = (ClusterSerializable) clazz.newInstance();
+          obj.readFromBuffer(buffer.getBuffer(5 + len, bytes.length));
+          return (T) obj;
+        } catch (ReflectiveOperationException e) {
+          throw new VertxException("Can't create " + className, e);
+        }
+      default:
+        throw new VertxException("Unknown value type " + bytes[0]);
+    }
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.spi.cluster.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.spi.cluster.AsyncMultiMap;
+import io.vertx.core.spi.cluster.ChoosableIterable;
+import io.vertx.core.spi.cluster.MultiMapListener;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A multi-map held in full by every node. Each entry belongs to the node which added it: the changes are sent to all
+ * the nodes, a node joining the cluster gets the entries of each node and the entries of a node leaving the cluster are
+ * removed. An operation completes once all the nodes have applied it.
+ */
+class ReplicatedMultiMap<K, V> implements AsyncMultiMap<K, V> {
+
+  private final StaticClusterManager manager;
+  private final String name;
+  private final ConcurrentMap<K, Values<V>> map = new ConcurrentHashMap<>();
+  // The node of each entry, guarded by this
+  private final Map<K, Map<V, String>> owners = new HashMap<>();
+  private final List<MultiMapListener<K, V>> listeners = new CopyOnWriteArrayList<>();
+
+  ReplicatedMultiMap(StaticClusterManager manager, String name) {
+    this.manager = manager;
+    this.name = name;
+  }
+
+  @Override
+  public void add(K k, V v, Handler<AsyncResult<Void>> completionHandler) {
+    addAll(Collections.singletonList(k), v, completionHandler);
+  }
+
+  @Override
+  public void addAll(Collection<K> keys, V v, Handler<AsyncResult<Void>> completionHandler) {
+    String owner = manager.getNodeID();
+    for (K k : keys) {
+      added(k, v, owner);
+    }
+    manager.replicate(message("mm.add", keys, v).put("owner", owner), completionHandler);
+  }
+
+  @Override
+  public void get(K k, Handler<AsyncResult<ChoosableIterable<V>>> resultHandler) {
+    ChoosableIterable<V> values = map.get(k);
+    manager.vertx().runOnContext(v -> resultHandler.handle(Future.completedFuture(values)));
+  }
+
+  @Override
+  public void remove(K k, V v, Handler<AsyncResult<Boolean>> completionHandler) {
+    boolean removed = removed(k, v);
+    manager.replicate(message("mm.remove", Collections.singletonList(k), v), ar -> {
+      if (ar.succeeded()) {
+        completionHandler.handle(Future.completedFuture(removed));
+      } else {
+        completionHandler.handle(Future.completedFuture(ar.cause()));
+      }
+    });
+  }
+
+  @Override
+  public void removeAll(Collection<K> keys, V v, Handler<AsyncResult<Void>> completionHandler) {
+    for (K k : keys) {
+      removed(k, v);
+    }
+    manager.replicate(message("mm.remove", keys, v), completionHandler);
+  }
+
+  @Override
+  public void removeAllForValue(V v, Handler<AsyncResult<Void>> completionHandler) {
+    removedValue(v);
+    manager.replicate(message("mm.removeValue", Collections.emptyList(), v), completionHandler);
+  }
+
+  @Override
+  public boolean addListener(MultiMapListener<K, V> listener) {
+    listeners.add(listener);
+    return true;
+  }
+
+  @Override
+  public void removeListener(MultiMapListener<K, V> listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Apply a change sent by another node.
+   */
+  void apply(JsonObject message) {
+    V v = manager.values().decode(message.getBinary("v"));
+    JsonArray keys = message.getJsonArray("keys");
+    switch (message.getString("type")) {
+      case "mm.add":
+        String owner = message.getString("owner");
+        for (int i = 0; i < keys.size(); i++) {
+          added(manager.values().decode(keys.getBinary(i)), v, owner);
+        }
+        break;
+      case "mm.remove":
+        for (int i = 0; i < keys.size(); i++) {
+          removed(manager.values().decode(keys.getBinary(i)), v);
+        }
+        break;
+      case "mm.removeValue":
+        removedValue(v);
+        break;
+    }
+  }
+
+  /**
+   * @return the entries added by {@code owner}
+   */
+  synchronized JsonArray snapshot(String owner) {
+    JsonArray entries = new JsonArray();
+    owners.forEach((k, values) -> values.forEach((v, o) -> {
+      if (o.equals(owner)) {
+        entries.add(new JsonObject().put("k", manager.values().encode(k)).put("v", manager.values().encode(v)));
+      }
+    }));
+    return entries;
+  }
+
+  void applySnapshot(JsonArray entries, String owner) {
+    for (int i = 0; i < entries.size(); i++) {
+      JsonObject entry = entries.getJsonObject(i);
+      added(manager.values().decode(entry.getBinary("k")), manager.values().decode(entry.getBinary("v")), owner);
+    }
+  }
+
+  /**
+   * Remove the entries of a node which left the cluster.
+   */
+  void removeOwner(String owner) {
+    List<Map.Entry<K, V>> toRemove = new ArrayList<>();
+    synchronized (this) {
+      owners.forEach((k, values) -> values.forEach((v, o) -> {
+        if (o.equals(owner)) {
+          toRemove.add(new AbstractMap.SimpleEntry<>(k, v));
+        }
+      }));
+    }
+    for (Map.Entry<K, V> entry : toRemove) {
+      removed(entry.getKey(), entry.getValue());
+    }
+  }
+
+  private JsonObject message(String type, Collection<K> keys, V v) {
+    JsonArray encoded = new JsonArray();
+    for (K k : keys) {
+      encoded.add(manager.values().encode(k));
+    }
+    return new JsonObject().put("type", type).put("name", name).put("keys", encoded).put("v", manager.values().encode(v));
+  }
+
+  private void added(K k, V v, String owner) {
+    synchronized (this) {
+      Map<V, String> values = owners.computeIfAbsent(k, key -> new HashMap<>());
+      if (values.put(v, owner) != null) {
+        return;
+      }
+      map.computeIfAbsent(k, key -> new Values<>()).list.add(v);
+    }
+    for (MultiMapListener<K, V> listener : listeners) {
+      listener.entryAdded(k, v);
+    }
+  }
+
+  private boolean removed(K k, V v) {
+    synchronized (this) {
+      Map<V, String> values = owners.get(k);
+      if (values == null || values.remove(v) == null) {
+        return false;
+      }
+      if (values.isEmpty()) {
+        owners.remove(k);
+        map.remove(k);
+      } else {
+        map.get(k).list.remove(v);
+      }
+    }
+    for (MultiMapListener<K, V> listener : listeners) {
+      listener.entryRemoved(k, v);
+    }
+    return true;
+  }
+
+  private void removedValue(V v) {
+    List<K> keys = new ArrayList<>();
+    synchronized (this) {
+      owners.forEach((k, values) -> {
+        if (values.containsKey(v)) {
+          keys.add(k);
+        }
+      });
+    }
+    for (K k : keys) {
+      removed(k, v);
+    }
+  }
+
+  private static class Values<V> implements ChoosableIterable<V> {
+
+    final List<V> list = new CopyOnWriteArrayList<>();
+    final AtomicInteger pos = new AtomicInteger();
+
+    @Override
+    public boolean isEmpty() {
+      return list.isEmpty();
+    }
+
+    @Override
+    public V choose() {
+      // The list can shrink meanwhile
+      for (int i = 0; i < 2; i++) {
+        int size = list.size();
+        if (size == 0) {
+          return null;
+        }
+        try {
+          return list.get((pos.getAndIncrement() & Integer.MAX_VALUE) % size);
+        } catch (IndexOutOfBoundsException ignore) {
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+      return list.iterator();
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.spi.cluster.impl;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A synchronous map held in full by every node. The changes are applied locally and sent to the other nodes without
+ * waiting, a node joining the cluster gets the content of each node. Concurrent changes of a key are not ordered, the
+ * map fits data such as the HA information where each node writes its own keys.
+ */
+class ReplicatedSyncMap<K, V> extends AbstractMap<K, V> {
+
+  private final StaticClusterManager manager;
+  private final String name;
+  private final ConcurrentMap<K, V> map = new ConcurrentHashMap<>();
+
+  ReplicatedSyncMap(StaticClusterManager manager, String name) {
+    this.manager = manager;
+    this.name = name;
+  }
+
+  @Override
+  public V get(Object key) {
+    return map.get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return map.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override
+  public V put(K key, V value) {
+    V prev = map.put(key, value);
+    manager.broadcast(new JsonObject().put("type", "sm.put").put("name", name)
+      .put("k", manager.values().encode(key)).put("v", manager.values().encode(value)));
+    return prev;
+  }
+
+  @Override
+  public V remove(Object key) {
+    V prev = map.remove(key);
+    if (prev != null) {
+      manager.broadcast(new JsonObject().put("type", "sm.remove").put("name", name).put("k", manager.values().encode(key)));
+    }
+    return prev;
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return Collections.unmodifiableMap(map).entrySet();
+  }
+
+  /**
+   * Apply a change sent by another node.
+   */
+  void apply(JsonObject message) {
+    K key = manager.values().decode(message.getBinary("k"));
+    if (message.getString("type").equals("sm.put")) {
+      map.put(key, manager.values().decode(message.getBinary("v")));
+    } else {
+      map.remove(key);
+    }
+  }
+
+  JsonArray snapshot() {
+    JsonArray entries = new JsonArray();
+    map.forEach((k, v) -> entries.add(new JsonObject().put("k", manager.values().encode(k)).put("v", manager.values().encode(v))));
+    return entries;
+  }
+
+  void applySnapshot(JsonArray entries) {
+    for (int i = 0; i < entries.size(); i++) {
+      JsonObject entry = entries.getJsonObject(i);
+      map.putIfAbsent(manager.values().decode(entry.getBinary("k")), manager.values().decode(entry.getBinary("v")));
+    }
+  }
+}
@@ -0,0 +1,1196 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.core.spi.cluster.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.VertxException;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.impl.ContextImpl;
+import io.vertx.core.impl.VertxInternal;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.impl.LoggerFactory;
+import io.vertx.core.net.NetClient;
+import io.vertx.core.net.NetClientOptions;
+import io.vertx.core.net.NetServer;
+import io.vertx.core.net.NetServerOptions;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.parsetools.RecordParser;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.core.shareddata.Counter;
+import io.vertx.core.shareddata.Lock;
+import io.vertx.core.shareddata.MapOptions;
+import io.vertx.core.shareddata.impl.AsynchronousCounter;
+import io.vertx.core.shareddata.impl.AsynchronousLock;
+import io.vertx.core.shareddata.impl.ClusterSerializable;
+import io.vertx.core.spi.cluster.AsyncMultiMap;
+import io.vertx.core.spi.cluster.ClusterManager;
+import io.vertx.core.spi.cluster.NodeListener;
+import io.vertx.core.spi.cluster.VertxSPI;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A cluster manager for small clusters with a known set of seed nodes, built on the Vert.x {@link NetServer} and
+ * {@link NetClient} only.
+ * <p>
+ * A node joins the cluster by asking a seed for the members it knows and greeting each of them. The members then
+ * gossip their heartbeats, a member whose heartbeat does not progress for the failure timeout is considered gone.
+ * The multi-maps and the synchronous maps are held in full by every node, see {@link ReplicatedMultiMap} and
+ * {@link ReplicatedSyncMap}. The async maps, locks and counters are held by a coordinator, the member with the
+ * smallest node ID, and their content is lost when the coordinator leaves the cluster.
+ * <p>
+ * The nodes share a secret. A node accepting a connection sends a random challenge, the connecting node derives a
+ * session key from it and the secret and signs each of its frames with an HMAC of the key, so a node only handles the
+ * frames of the peers knowing the secret. The frames are not encrypted. The first frame of a connection is empty, a
+ * connection which does not send it within {@code failureTimeout} is closed, and until then no larger frame is read.
+ * <p>
+ * The keys and values of the data structures are the types supported by {@link ClusterValues}, Java serialization is
+ * not supported.
+ * <p>
+ * The members learn the joins and leaves by gossip so, unlike what {@link ClusterManager} asks for, the nodes may see
+ * them in different orders.
+ * <p>
+ * The configuration is a {@link JsonObject} with the fields:
+ * <ul>
+ *   <li>{@code host} and {@code port}: what the node listens to, {@code localhost} and a random port by default</li>
+ *   <li>{@code seeds}: an array of {@code host:port} of the seed nodes</li>
+ *   <li>{@code gossipInterval}, {@code failureTimeout} and {@code joinTimeout} in milliseconds</li>
+ *   <li>{@code gossipFanout}: the number of members each gossip goes to</li>
+ *   <li>{@code secret}: the secret shared by the nodes, required</li>
+ *   <li>{@code serializableClasses}: an array of the names of the {@link ClusterSerializable} classes the nodes may
+ *   store, besides the JSON types and buffers</li>
+ * </ul>
+ * The no-arg constructor reads it from the {@code vertx.cluster.static.config} system property.
+ */
+public class StaticClusterManager implements ClusterManager {
+
+  public static final String DEFAULT_HOST = "localhost";
+  public static final int DEFAULT_PORT = 0;
+  public static final long DEFAULT_GOSSIP_INTERVAL = 200;
+  public static final long DEFAULT_FAILURE_TIMEOUT = 5000;
+  public static final long DEFAULT_JOIN_TIMEOUT = 10000;
+  public static final int DEFAULT_GOSSIP_FANOUT = 3;
+  public static final String CONFIG_PROP_NAME = "vertx.cluster.static.config";
+
+  private static final Logger log = LoggerFactory.getLogger(StaticClusterManager.class);
+
+  private static final String MAC_ALGORITHM = "HmacSHA256";
+  private static final int MAC_LENGTH = 32;
+  private static final int CHALLENGE_LENGTH = 32;
+  private static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+  private static final SecureRandom random = new SecureRandom();
+
+  private final String host;
+  private final int port;
+  private final Set<String> seeds = new LinkedHashSet<>();
+  private final long gossipInterval;
+  private final long failureTimeout;
+  private final long joinTimeout;
+  private final int gossipFanout;
+  private final byte[] secret;
+  private final ClusterValues values;
+
+  private final ConcurrentMap<String, ReplicatedMultiMap<?, ?>> multiMaps = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, ReplicatedSyncMap<?, ?>> syncMaps = new ConcurrentHashMap<>();
+  private volatile String nodeID;
+  private volatile List<String> nodes = Collections.emptyList();
+  private volatile NodeListener nodeListener;
+  private volatile boolean active;
+  private VertxInternal vertx;
+
+  // The protocol runs on this context, the fields below are only used on it
+  private ContextImpl context;
+  private NetServer server;
+  private NetClient client;
+  private long gossipTimerID = -1;
+  private Member self;
+  private Joining joining;
+  private final Map<String, Member> members = new HashMap<>();
+  // The nodes which left, the gossip of a member which does not know it yet must not bring them back
+  private final Set<String> departed = new HashSet<>();
+  private final Map<String, Peer> peers = new HashMap<>();
+  private final Map<Long, Replication> replications = new HashMap<>();
+  private final Map<Long, Call> calls = new HashMap<>();
+  private final Coordinator coordinator = new Coordinator();
+  private long nextID;
+
+  public StaticClusterManager() {
+    this(loadConfig());
+  }
+
+  public StaticClusterManager(JsonObject config) {
+    this.host = config.getString("host", DEFAULT_HOST);
+    this.port = config.getInteger("port", DEFAULT_PORT);
+    JsonArray seedList = config.getJsonArray("seeds", new JsonArray());
+    for (int i = 0; i < seedList.size(); i++) {
+      seeds.add(seedList.getString(i));
+    }
+    this.gossipInterval = config.getLong("gossipInterval", DEFAULT_GOSSIP_INTERVAL);
+    this.failureTimeout = config.getLong("failureTimeout", DEFAULT_FAILURE_TIMEOUT);
+    this.joinTimeout = config.getLong("joinTimeout", DEFAULT_JOIN_TIMEOUT);
+    this.gossipFanout = config.getInteger("gossipFanout", DEFAULT_GOSSIP_FANOUT);
+    String secret = config.getString("secret");
+    this.secret = secret != null ? secret.getBytes(StandardCharsets.UTF_8) : null;
+    List<String> serializableClasses = new ArrayList<>();
+    JsonArray classList = config.getJsonArray("serializableClasses", new JsonArray());
+    for (int i = 0; i < classList.size(); i++) {
+      serializableClasses.add(classList.getString(i));
+    }
+    this.values = new ClusterValues(serializableClasses);
+  }
+
+  private static JsonObject loadConfig() {
+    String config = System.getProperty(CONFIG_PROP_NAME);
+    return config != null ? new JsonObject(config) : new JsonObject();
+  }
+
+  @Override
+  public void setVertx(VertxSPI vertx) {
+    this.vertx = (VertxInternal) vertx;
+  }
+
+  VertxInternal vertx() {
+    return vertx;
+  }
+
+  ClusterValues values() {
+    return values;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <K, V> void getAsyncMultiMap(String name, MapOptions options, Handler<AsyncResult<AsyncMultiMap<K, V>>> resultHandler) {
+    AsyncMultiMap<K, V> map = (AsyncMultiMap) multiMaps.computeIfAbsent(name, n -> new ReplicatedMultiMap<>(this, n));
+    vertx.runOnContext(v -> resultHandler.handle(Future.completedFuture(map)));
+  }
+
+  @Override
+  public <K, V> void getAsyncMap(String name, MapOptions options, Handler<AsyncResult<AsyncMap<K, V>>> resultHandler) {
+    AsyncMap<K, V> map = new CoordinatedMap<>(name);
+    vertx.runOnContext(v -> resultHandler.handle(Future.completedFuture(map)));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <K, V> Map<K, V> getSyncMap(String name) {
+    return (Map) syncMaps.computeIfAbsent(name, n -> new ReplicatedSyncMap<>(this, n));
+  }
+
+  @Override
+  public void getLockWithTimeout(String name, long timeout, Handler<AsyncResult<Lock>> resultHandler) {
+    this.<Long>call(request("lock.acquire", name).put("timeout", timeout), ar -> {
+      if (ar.succeeded()) {
+        resultHandler.handle(Future.completedFuture(new CoordinatedLock(ar.result())));
+      } else {
+        resultHandler.handle(Future.completedFuture(ar.cause()));
+      }
+    });
+  }
+
+  @Override
+  public void getCounter(String name, Handler<AsyncResult<Counter>> resultHandler) {
+    Counter counter = new CoordinatedCounter(name);
+    vertx.runOnContext(v -> resultHandler.handle(Future.completedFuture(counter)));
+  }
+
+  @Override
+  public String getNodeID() {
+    return nodeID;
+  }
+
+  @Override
+  public List<String> getNodes() {
+    return nodes;
+  }
+
+  @Override
+  public void nodeListener(NodeListener listener) {
+    this.nodeListener = listener;
+  }
+
+  @Override
+  public void join(Handler<AsyncResult<Void>> resultHandler) {
+    Context caller = vertx.getOrCreateContext();
+    nodeID = UUID.randomUUID().toString();
+    context = vertx.createEventLoopContext(null, new JsonObject(), Thread.currentThread().getContextClassLoader());
+    context.runOnContext(v -> start(ar -> caller.runOnContext(v2 -> resultHandler.handle(ar))));
+  }
+
+  @Override
+  public void leave(Handler<AsyncResult<Void>> resultHandler) {
+    Context caller = vertx.getOrCreateContext();
+    if (context == null) {
+      caller.runOnContext(v -> resultHandler.handle(Future.completedFuture()));
+      return;
+    }
+    context.runOnContext(v -> {
+      active = false;
+      if (gossipTimerID != -1) {
+        vertx.cancelTimer(gossipTimerID);
+        gossipTimerID = -1;
+      }
+      if (self != null) {
+        Buffer frame = frame(new JsonObject().put("type", "leave").put("id", nodeID));
+        for (Member member : members.values()) {
+          if (member != self) {
+            send(member.address(), frame);
+          }
+        }
+      }
+      for (Peer peer : peers.values()) {
+        if (peer.socket != null) {
+          peer.socket.close();
+        }
+      }
+      peers.clear();
+      for (Call call : calls.values()) {
+        call.handler.handle(Future.completedFuture(new VertxException("Node left the cluster")));
+      }
+      calls.clear();
+      for (Replication replication : replications.values()) {
+        replication.complete();
+      }
+      replications.clear();
+      members.clear();
+      nodes = Collections.emptyList();
+      self = null;
+      nodeID = null;
+      if (client != null) {
+        client.close();
+      }
+      if (server != null) {
+        server.close(ar -> caller.runOnContext(v2 -> resultHandler.handle(Future.completedFuture())));
+      } else {
+        caller.runOnContext(v2 -> resultHandler.handle(Future.completedFuture()));
+      }
+    });
+  }
+
+  @Override
+  public boolean isActive() {
+    return active;
+  }
+
+  /**
+   * Send a change to the other nodes, the handler is called once they all applied it or left the cluster.
+   */
+  void replicate(JsonObject message, Handler<AsyncResult<Void>> handler) {
+    Context caller = vertx.getOrCreateContext();
+    if (context == null) {
+      caller.runOnContext(v -> handler.handle(Future.completedFuture()));
+      return;
+    }
+    context.runOnContext(v -> {
+      Replication replication = new Replication(caller, handler);
+      for (Member member : members.values()) {
+        if (member != self) {
+          replication.targets.add(member.id);
+        }
+      }
+      if (replication.targets.isEmpty()) {
+        replication.complete();
+        return;
+      }
+      long id = nextID++;
+      replications.put(id, replication);
+      Buffer frame = frame(message.put("ackID", id).put("replyTo", self.address()));
+      for (String target : replication.targets) {
+        send(members.get(target).address(), frame);
+      }
+    });
+  }
+
+  /**
+   * Send a change to the other nodes without waiting for them.
+   */
+  void broadcast(JsonObject message) {
+    if (context == null) {
+      return;
+    }
+    context.runOnContext(v -> {
+      if (self != null) {
+        Buffer frame = frame(message);
+        for (Member member : members.values()) {
+          if (member != self) {
+            send(member.address(), frame);
+          }
+        }
+      }
+    });
+  }
+
+  private void start(Handler<AsyncResult<Void>> handler) {
+    if (secret == null || secret.length == 0) {
+      handler.handle(Future.completedFuture(new VertxException("No secret is configured for the cluster")));
+      return;
+    }
+    server = vertx.createNetServer(new NetServerOptions().setHost(host).setPort(port));
+    server.connectHandler(this::accepted);
+    server.listen(ar -> {
+      if (ar.failed()) {
+        handler.handle(Future.completedFuture(ar.cause()));
+        return;
+      }
+      self = new Member(nodeID, host, server.actualPort());
+      members.put(nodeID, self);
+      updateNodes();
+      client = vertx.createNetClient(new NetClientOptions().setConnectTimeout((int) failureTimeout));
+      // A seed alone only waits for the other seeds a couple of gossip rounds before starting a cluster
+      long timeout = seeds.contains(self.address()) ? 2 * gossipInterval : joinTimeout;
+      joining = new Joining(System.currentTimeMillis() + timeout, handler);
+      gossipTimerID = vertx.setPeriodic(gossipInterval, id -> gossip());
+      requestJoin();
+    });
+  }
+
+  private void requestJoin() {
+    List<String> others = new ArrayList<>(seeds);
+    others.remove(self.address());
+    if (others.isEmpty()) {
+      joined();
+    } else if (System.currentTimeMillis() >= joining.deadline) {
+      if (seeds.contains(self.address())) {
+        joined();
+      } else {
+        Joining failed = joining;
+        joining = null;
+        failed.handler.handle(Future.completedFuture(new VertxException("No seed node answered")));
+      }
+    } else {
+      Buffer frame = frame(new JsonObject().put("type", "join").put("member", self.toJson()));
+      for (String seed : others) {
+        send(seed, frame);
+      }
+    }
+  }
+
+  private void joined() {
+    Joining done = joining;
+    joining = null;
+    active = true;
+    done.handler.handle(Future.completedFuture());
+  }
+
+  private void gossip() {
+    if (joining != null) {
+      if (joining.waiting == null) {
+        requestJoin();
+      } else if (System.currentTimeMillis() >= joining.deadline) {
+        // The members which did not answer are left to the gossip
+        joined();
+      }
+    }
+    if (self == null) {
+      return;
+    }
+    self.heartbeat++;
+    long now = System.currentTimeMillis();
+    for (Member member : new ArrayList<>(members.values())) {
+      if (member != self && now - member.lastSeen > failureTimeout) {
+        log.warn("No heartbeat from node " + member.id + " - will consider it dead");
+        removeMember(member.id);
+      }
+    }
+    JsonArray view = new JsonArray();
+    for (Member member : members.values()) {
+      view.add(member.toJson());
+    }
+    Buffer frame = frame(new JsonObject().put("type", "gossip").put("members", view));
+    List<Member> others = new ArrayList<>(members.values());
+    others.remove(self);
+    if (others.isEmpty()) {
+      // Alone, the seeds are told about this node in case they started their own cluster
+      for (String seed : seeds) {
+        if (!seed.equals(self.address())) {
+          send(seed, frame);
+        }
+      }
+    } else {
+      Collections.shuffle(others);
+      for (Member member : others.subList(0, Math.min(gossipFanout, others.size()))) {
+        send(member.address(), frame);
+      }
+    }
+  }
+
+  private void handleMessage(JsonObject message) {
+    if (self == null) {
+      return;
+    }
+    switch (message.getString("type")) {
+      case "join":
+        JsonArray view = new JsonArray();
+        for (Member member : members.values()) {
+          view.add(member.toJson());
+        }
+        send(Member.fromJson(message.getJsonObject("member")).address(), new JsonObject().put("type", "view").put("members", view));
+        break;
+      case "view":
+        handleView(message.getJsonArray("members"));
+        break;
+      case "hello":
+        handleHello(message);
+        break;
+      case "gossip":
+        handleGossip(message.getJsonArray("members"));
+        break;
+      case "leave":
+        removeMember(message.getString("id"));
+        break;
+      case "mm.add":
+      case "mm.remove":
+      case "mm.removeValue":
+        multiMaps.computeIfAbsent(message.getString("name"), n -> new ReplicatedMultiMap<>(this, n)).apply(message);
+        send(message.getString("replyTo"), new JsonObject().put("type", "ack").put("ackID", message.getLong("ackID")).put("from", nodeID));
+        break;
+      case "ack":
+        Replication replication = replications.get(message.getLong("ackID"));
+        if (replication != null && replication.acked(message.getString("from"))) {
+          replications.remove(message.getLong("ackID"));
+        }
+        break;
+      case "sm.put":
+      case "sm.remove":
+        syncMaps.computeIfAbsent(message.getString("name"), n -> new ReplicatedSyncMap<>(this, n)).apply(message);
+        break;
+      case "call":
+        String replyTo = message.getString("replyTo");
+        long callID = message.getLong("callID");
+        coordinator.execute(message, message.getString("from"), ar -> {
+          JsonObject result = new JsonObject().put("type", "result").put("callID", callID);
+          if (ar.succeeded()) {
+            result.put("result", values.encode(ar.result()));
+          } else {
+            result.put("failure", String.valueOf(ar.cause().getMessage()));
+          }
+          send(replyTo, result);
+        });
+        break;
+      case "result":
+        Call call = calls.remove(message.getLong("callID"));
+        if (call != null) {
+          if (message.containsKey("failure")) {
+            call.handler.handle(Future.completedFuture(new VertxException(message.getString("failure"))));
+          } else {
+            Object result = values.decode(message.getBinary("result"));
+            call.handler.handle(Future.completedFuture(result));
+          }
+        }
+        break;
+    }
+  }
+
+  private void handleView(JsonArray view) {
+    if (joining == null || joining.waiting != null) {
+      return;
+    }
+    joining.waiting = new HashSet<>();
+    for (int i = 0; i < view.size(); i++) {
+      Member member = Member.fromJson(view.getJsonObject(i));
+      if (!member.id.equals(nodeID)) {
+        joining.waiting.add(member.id);
+        sendHello(member.address(), true);
+      }
+    }
+    if (joining.waiting.isEmpty()) {
+      joined();
+    }
+  }
+
+  private void handleHello(JsonObject message) {
+    Member member = Member.fromJson(message.getJsonObject("member"));
+    if (departed.contains(member.id)) {
+      return;
+    }
+    addMember(member);
+    JsonObject snapshot = message.getJsonObject("snapshot");
+    JsonObject mm = snapshot.getJsonObject("mm");
+    for (String name : mm.fieldNames()) {
+      multiMaps.computeIfAbsent(name, n -> new ReplicatedMultiMap<>(this, n)).applySnapshot(mm.getJsonArray(name), member.id);
+    }
+    JsonObject sm = snapshot.getJsonObject("sm");
+    for (String name : sm.fieldNames()) {
+      syncMaps.computeIfAbsent(name, n -> new ReplicatedSyncMap<>(this, n)).applySnapshot(sm.getJsonArray(name));
+    }
+    if (message.getBoolean("reply")) {
+      sendHello(member.address(), false);
+    }
+    if (joining != null && joining.waiting != null && joining.waiting.remove(member.id) && joining.waiting.isEmpty()) {
+      joined();
+    }
+  }
+
+  private void sendHello(String address, boolean reply) {
+    JsonObject mm = new JsonObject();
+    multiMaps.forEach((name, map) -> mm.put(name, map.snapshot(nodeID)));
+    JsonObject sm = new JsonObject();
+    syncMaps.forEach((name, map) -> sm.put(name, map.snapshot()));
+    send(address, new JsonObject().put("type", "hello").put("member", self.toJson()).put("reply", reply)
+      .put("snapshot", new JsonObject().put("mm", mm).put("sm", sm)));
+  }
+
+  private void handleGossip(JsonArray view) {
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < view.size(); i++) {
+      Member member = Member.fromJson(view.getJsonObject(i));
+      if (member.id.equals(nodeID) || departed.contains(member.id)) {
+        continue;
+      }
+      Member known = members.get(member.id);
+      if (known == null) {
+        // Greeting the member exchanges the data of both nodes
+        addMember(member);
+        sendHello(member.address(), true);
+      } else if (member.heartbeat > known.heartbeat) {
+        known.heartbeat = member.heartbeat;
+        known.lastSeen = now;
+      }
+    }
+  }
+
+  private void addMember(Member member) {
+    if (members.containsKey(member.id)) {
+      return;
+    }
+    member.lastSeen = System.currentTimeMillis();
+    members.put(member.id, member);
+    updateNodes();
+    NodeListener listener = nodeListener;
+    if (listener != null) {
+      listener.nodeAdded(member.id);
+    }
+  }
+
+  private void removeMember(String id) {
+    Member member = members.get(id);
+    if (member == null || member == self) {
+      return;
+    }
+    members.remove(id);
+    departed.add(id);
+    updateNodes();
+    Peer peer = peers.remove(member.address());
+    if (peer != null && peer.socket != null) {
+      peer.socket.close();
+    }
+    for (ReplicatedMultiMap<?, ?> map : multiMaps.values()) {
+      map.removeOwner(id);
+    }
+    coordinator.nodeLeft(id);
+    for (Iterator<Call> iter = calls.values().iterator(); iter.hasNext(); ) {
+      Call call = iter.next();
+      if (call.coordinatorID.equals(id)) {
+        iter.remove();
+        call.handler.handle(Future.completedFuture(new VertxException("Coordinator node left the cluster")));
+      }
+    }
+    replications.values().removeIf(replication -> replication.acked(id));
+    if (joining != null && joining.waiting != null && joining.waiting.remove(id) && joining.waiting.isEmpty()) {
+      joined();
+    }
+    NodeListener listener = nodeListener;
+    if (listener != null) {
+      listener.nodeLeft(id);
+    }
+  }
+
+  private void updateNodes() {
+    List<String> ids = new ArrayList<>(members.keySet());
+    Collections.sort(ids);
+    nodes = Collections.unmodifiableList(ids);
+  }
+
+  /**
+   * Run a request on the coordinator, the handler is called on the context of the caller.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> void call(JsonObject request, Handler<AsyncResult<T>> handler) {
+    Context caller = vertx.getOrCreateContext();
+    Handler<AsyncResult<Object>> done = ar -> caller.runOnContext(v -> handler.handle((AsyncResult<T>) (AsyncResult) ar));
+    if (context == null) {
+      done.handle(Future.completedFuture(new VertxException("Not part of a cluster")));
+      return;
+    }
+    context.runOnContext(v -> {
+      List<String> current = nodes;
+      if (self == null || current.isEmpty()) {
+        done.handle(Future.completedFuture(new VertxException("Not part of a cluster")));
+      } else if (current.get(0).equals(nodeID)) {
+        coordinator.execute(request, nodeID, done);
+      } else {
+        long id = nextID++;
+        calls.put(id, new Call(current.get(0), done));
+        send(members.get(current.get(0)).address(),
+          request.put("type", "call").put("callID", id).put("from", nodeID).put("replyTo", self.address()));
+      }
+    });
+  }
+
+  private static JsonObject request(String op, String name) {
+    return new JsonObject().put("op", op).put("name", name);
+  }
+
+  private void accepted(NetSocket socket) {
+    byte[] challenge = new byte[CHALLENGE_LENGTH];
+    random.nextBytes(challenge);
+    Mac mac = sessionMac(challenge);
+    socket.exceptionHandler(t -> socket.close());
+    socket.write(Buffer.buffer(challenge));
+    RecordParser parser = RecordParser.newFixed(4, null);
+    // Nothing is buffered for the other node until its first frame, which is empty, proved it knows the secret
+    parser.setOutput(new Handler<Buffer>() {
+      int length = -1;
+      long sequence;
+      boolean authenticated;
+      boolean closed;
+      final long authTimerID = vertx.setTimer(failureTimeout, id -> {
+        if (!authenticated && !closed) {
+          reject("No authentication");
+        }
+      });
+      @Override
+      public void handle(Buffer buffer) {
+        if (closed) {
+          return;
+        }
+        if (length == -1) {
+          length = buffer.getInt(0);
+          if (length < 0 || length > (authenticated ? MAX_FRAME_LENGTH : 0)) {
+            reject("Invalid frame length " + length);
+            return;
+          }
+          parser.fixedSizeMode(MAC_LENGTH + length);
+        } else {
+          byte[] bytes = buffer.getBytes();
+          byte[] expected = sign(mac, sequence++, bytes, MAC_LENGTH, length);
+          if (!MessageDigest.isEqual(expected, Arrays.copyOf(bytes, MAC_LENGTH))) {
+            reject("Invalid frame signature");
+            return;
+          }
+          if (!authenticated) {
+            authenticated = true;
+            vertx.cancelTimer(authTimerID);
+          } else {
+            try {
+              handleMessage(new JsonObject(new String(bytes, MAC_LENGTH, length, StandardCharsets.UTF_8)));
+            } catch (Exception e) {
+              log.error("Failed to handle a cluster message", e);
+            }
+          }
+          length = -1;
+          parser.fixedSizeMode(4);
+        }
+      }
+      private void reject(String reason) {
+        log.warn(reason + " from " + socket.remoteAddress() + " - closing the connection");
+        closed = true;
+        socket.close();
+      }
+    });
+    socket.handler(parser);
+  }
+
+  /**
+   * @return the MAC of a connection, keyed with the HMAC of the challenge of the connection with the secret
+   */
+  private Mac sessionMac(byte[] challenge) {
+    try {
+      Mac mac = Mac.getInstance(MAC_ALGORITHM);
+      mac.init(new SecretKeySpec(secret, MAC_ALGORITHM));
+      byte[] key = mac.doFinal(challenge);
+      Mac session = Mac.getInstance(MAC_ALGORITHM);
+      session.init(new SecretKeySpec(key, MAC_ALGORITHM));
+      return session;
+    } catch (GeneralSecurityException e) {
+      throw new VertxException(e);
+    }
+  }
+
+  /**
+   * The sequence number of the frame is signed with it so a frame can't be replayed on the connection.
+   */
+  private static byte[] sign(Mac mac, long sequence, byte[] bytes, int offset, int length) {
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      mac.update((byte) (sequence >>> shift));
+    }
+    mac.update(bytes, offset, length);
+    return mac.doFinal();
+  }
+
+  private static Buffer frame(JsonObject message) {
+    return Buffer.buffer(message.encode().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void send(String address, JsonObject message) {
+    send(address, frame(message));
+  }
+
+  private void send(String address, Buffer frame) {
+    Peer peer = peers.get(address);
+    if (peer == null) {
+      peer = new Peer(address);
+      peers.put(address, peer);
+    }
+    if (peer.mac != null) {
+      peer.write(frame);
+    } else {
+      peer.pending.add(frame);
+      connect(peer);
+    }
+  }
+
+  private void connect(Peer peer) {
+    if (peer.connecting || client == null) {
+      return;
+    }
+    peer.connecting = true;
+    int sep = peer.address.lastIndexOf(':');
+    client.connect(Integer.parseInt(peer.address.substring(sep + 1)), peer.address.substring(0, sep), ar -> {
+      if (peers.get(peer.address) != peer) {
+        if (ar.succeeded()) {
+          ar.result().close();
+        }
+      } else if (ar.succeeded()) {
+        NetSocket socket = ar.result();
+        peer.socket = socket;
+        socket.closeHandler(v -> peers.remove(peer.address, peer));
+        socket.exceptionHandler(t -> socket.close());
+        // The frames are sent once the challenge of the peer is received
+        socket.handler(RecordParser.newFixed(CHALLENGE_LENGTH, challenge -> {
+          if (peer.mac != null) {
+            return;
+          }
+          peer.connecting = false;
+          peer.mac = sessionMac(challenge.getBytes());
+          // The empty frame authenticates the connection, the peer does not accept any other frame before it
+          peer.write(Buffer.buffer());
+          Buffer frame;
+          while ((frame = peer.pending.poll()) != null) {
+            peer.write(frame);
+          }
+        }));
+      } else {
+        peer.connecting = false;
+        if (isMember(peer.address)) {
+          // The frames of a member are kept until it is reachable again or considered gone
+          vertx.setTimer(gossipInterval, id -> {
+            if (peers.get(peer.address) == peer) {
+              connect(peer);
+            }
+          });
+        } else {
+          peers.remove(peer.address);
+        }
+      }
+    });
+  }
+
+  private boolean isMember(String address) {
+    for (Member member : members.values()) {
+      if (member.address().equals(address)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static class Member {
+
+    final String id;
+    final String host;
+    final int port;
+    long heartbeat;
+    long lastSeen;
+
+    Member(String id, String host, int port) {
+      this.id = id;
+      this.host = host;
+      this.port = port;
+    }
+
+    String address() {
+      return host + ":" + port;
+    }
+
+    JsonObject toJson() {
+      return new JsonObject().put("id", id).put("host", host).put("port", port).put("heartbeat", heartbeat);
+    }
+
+    static Member fromJson(JsonObject json) {
+      Member member = new Member(json.getString("id"), json.getString("host"), json.getInteger("port"));
+      member.heartbeat = json.getLong("heartbeat", 0L);
+      return member;
+    }
+  }
+
+  private static class Peer {
+
+    final String address;
+    final Queue<Buffer> pending = new ArrayDeque<>();
+    NetSocket socket;
+    // Set once the challenge is received, the frames can then be sent
+    Mac mac;
+    long sequence;
+    boolean connecting;
+
+    Peer(String address) {
+      this.address = address;
+    }
+
+    void write(Buffer frame) {
+      byte[] bytes = frame.getBytes();
+      byte[] signature = sign(mac, sequence++, bytes, 0, bytes.length);
+      socket.write(Buffer.buffer(4 + MAC_LENGTH + bytes.length).appendInt(bytes.length).appendBytes(signature).appendBytes(bytes));
+    }
+  }
+
+  private static class Joining {
+
+    final long deadline;
+    final Handler<AsyncResult<Void>> handler;
+    // The members greeted once a seed answered
+    Set<String> waiting;
+
+    Joining(long deadline, Handler<AsyncResult<Void>> handler) {
+      this.deadline = deadline;
+      this.handler = handler;
+    }
+  }
+
+  private static class Replication {
+
+    final Context caller;
+    final Handler<AsyncResult<Void>> handler;
+    final Set<String> targets = new HashSet<>();
+
+    Replication(Context caller, Handler<AsyncResult<Void>> handler) {
+      this.caller = caller;
+      this.handler = handler;
+    }
+
+    /**
+     * @return true once all the targets acknowledged, the handler is then called
+     */
+    boolean acked(String target) {
+      if (targets.remove(target) && targets.isEmpty()) {
+        complete();
+        return true;
+      }
+      return false;
+    }
+
+    void complete() {
+      if (handler != null) {
+        caller.runOnContext(v -> handler.handle(Future.completedFuture()));
+      }
+    }
+  }
+
+  private static class Call {
+
+    final String coordinatorID;
+    final Handler<AsyncResult<Object>> handler;
+
+    Call(String coordinatorID, Handler<AsyncResult<Object>> handler) {
+      this.coordinatorID = coordinatorID;
+      this.handler = handler;
+    }
+  }
+
+  /*
+   * The async maps, locks and counters, only used when this node is the coordinator.
+   */
+  private class Coordinator {
+
+    final Map<String, Map<Object, Object>> maps = new HashMap<>();
+    final Map<String, AsynchronousLock> locks = new HashMap<>();
+    final Map<Long, HeldLock> heldLocks = new HashMap<>();
+    final Map<String, AsynchronousCounter> counters = new HashMap<>();
+    long nextLockID;
+
+    void execute(JsonObject request, String from, Handler<AsyncResult<Object>> reply) {
+      String op = request.getString("op");
+      String name = request.getString("name");
+      try {
+        if (op.startsWith("map.")) {
+          executeMap(op, maps.computeIfAbsent(name, n -> new HashMap<>()), request, reply);
+        } else if (op.startsWith("counter.")) {
+          executeCounter(op, counters.computeIfAbsent(name, n -> new AsynchronousCounter(vertx)), request, reply);
+        } else if (op.equals("lock.acquire")) {
+          locks.computeIfAbsent(name, n -> new AsynchronousLock(vertx)).acquire(request.getLong("timeout"), ar -> {
+            if (ar.failed()) {
+              reply.handle(Future.completedFuture(ar.cause()));
+            } else if (!members.containsKey(from)) {
+              // The node gave up waiting when it left the cluster
+              ar.result().release();
+            } else {
+              long lockID = nextLockID++;
+              heldLocks.put(lockID, new HeldLock(ar.result(), from));
+              reply.handle(Future.completedFuture(lockID));
+            }
+          });
+        } else if (op.equals("lock.release")) {
+          HeldLock held = heldLocks.remove(request.getLong("lockID"));
+          if (held != null) {
+            held.lock.release();
+          }
+          reply.handle(Future.completedFuture());
+        } else {
+          reply.handle(Future.completedFuture(new VertxException("Unknown operation " + op)));
+        }
+      } catch (Exception e) {
+        reply.handle(Future.completedFuture(e));
+      }
+    }
+
+    private void executeMap(String op, Map<Object, Object> map, JsonObject request, Handler<AsyncResult<Object>> reply) {
+      Object k = values.decode(request.getBinary("k"));
+      Object v = values.decode(request.getBinary("v"));
+      Object result;
+      switch (op) {
+        case "map.get":
+          result = map.get(k);
+          break;
+        case "map.put":
+          map.put(k, v);
+          result = null;
+          break;
+        case "map.putIfAbsent":
+          result = map.putIfAbsent(k, v);
+          break;
+        case "map.remove":
+          result = map.remove(k);
+          break;
+        case "map.removeIfPresent":
+          result = map.remove(k, v);
+          break;
+        case "map.replace":
+          result = map.replace(k, v);
+          break;
+        case "map.replaceIfPresent":
+          result = map.replace(k, v, values.decode(request.getBinary("newValue")));
+          break;
+        case "map.clear":
+          map.clear();
+          result = null;
+          break;
+        default:
+          throw new VertxException("Unknown operation " + op);
+      }
+      reply.handle(Future.completedFuture(result));
+    }
+
+    private void executeCounter(String op, Counter counter, JsonObject request, Handler<AsyncResult<Object>> reply) {
+      switch (op) {
+        case "counter.get":
+          counter.get(relay(reply));
+          break;
+        case "counter.incrementAndGet":
+          counter.incrementAndGet(relay(reply));
+          break;
+        case "counter.getAndIncrement":
+          counter.getAndIncrement(relay(reply));
+          break;
+        case "counter.decrementAndGet":
+          counter.decrementAndGet(relay(reply));
+          break;
+        case "counter.addAndGet":
+          counter.addAndGet(request.getLong("value"), relay(reply));
+          break;
+        case "counter.getAndAdd":
+          counter.getAndAdd(request.getLong("value"), relay(reply));
+          break;
+        case "counter.compareAndSet":
+          counter.compareAndSet(request.getLong("expected"), request.getLong("value"), relay(reply));
+          break;
+        default:
+          throw new VertxException("Unknown operation " + op);
+      }
+    }
+
+    private <T> Handler<AsyncResult<T>> relay(Handler<AsyncResult<Object>> reply) {
+      return ar -> {
+        if (ar.succeeded()) {
+          reply.handle(Future.completedFuture(ar.result()));
+        } else {
+          reply.handle(Future.completedFuture(ar.cause()));
+        }
+      };
+    }
+
+    void nodeLeft(String id) {
+      for (Iterator<HeldLock> iter = heldLocks.values().iterator(); iter.hasNext(); ) {
+        HeldLock held = iter.next();
+        if (held.owner.equals(id)) {
+          iter.remove();
+          held.lock.release();
+        }
+      }
+    }
+  }
+
+  private static class HeldLock {
+
+    final Lock lock;
+    final String owner;
+
+    HeldLock(Lock lock, String owner) {
+      this.lock = lock;
+      this.owner = owner;
+    }
+  }
+
+  private class CoordinatedMap<K, V> implements AsyncMap<K, V> {
+
+    private final String name;
+
+    CoordinatedMap(String name) {
+      this.name = name;
+    }
+
+    private JsonObject request(String op, K k, V v) {
+      return StaticClusterManager.request(op, name).put("k", values.encode(k)).put("v", values.encode(v));
+    }
+
+    @Override
+    public void get(K k, Handler<AsyncResult<V>> resultHandler) {
+      call(request("map.get", k, null), resultHandler);
+    }
+
+    @Override
+    public void put(K k, V v, Handler<AsyncResult<Void>> completionHandler) {
+      call(request("map.put", k, v), completionHandler);
+    }
+
+    @Override
+    public void putIfAbsent(K k, V v, Handler<AsyncResult<V>> completionHandler) {
+      call(request("map.putIfAbsent", k, v), completionHandler);
+    }
+
+    @Override
+    public void remove(K k, Handler<AsyncResult<V>> resultHandler) {
+      call(request("map.remove", k, null), resultHandler);
+    }
+
+    @Override
+    public void removeIfPresent(K k, V v, Handler<AsyncResult<Boolean>> resultHandler) {
+      call(request("map.removeIfPresent", k, v), resultHandler);
+    }
+
+    @Override
+    public void replace(K k, V v, Handler<AsyncResult<V>> resultHandler) {
+      call(request("map.replace", k, v), resultHandler);
+    }
+
+    @Override
+    public void replaceIfPresent(K k, V oldValue, V newValue, Handler<AsyncResult<Boolean>> resultHandler) {
+      call(request("map.replaceIfPresent", k, oldValue).put("newValue", values.encode(newValue)), resultHandler);
+    }
+
+    @Override
+    public void clear(Handler<AsyncResult<Void>> resultHandler) {
+      call(request("map.clear", null, null), resultHandler);
+    }
+  }
+
+  private class CoordinatedLock implements Lock {
+
+    private final long lockID;
+
+    CoordinatedLock(long lockID) {
+      this.lockID = lockID;
+    }
+
+    @Override
+    public void release() {
+      call(request("lock.release", null).put("lockID", lockID), ar -> {
+        if (ar.failed()) {
+          log.error("Failed to release lock", ar.cause());
+        }
+      });
+    }
+  }
+
+  private class CoordinatedCounter implements Counter {
+
+    private final String name;
+
+    CoordinatedCounter(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void get(Handler<AsyncResult<Long>> resultHandler) {
+      call(request("counter.get", name), resultHandler);
+    }
+
+    @Override
+    public void incrementAndGet(Handler<AsyncResult<Long>> resultHandler) {
+      call(request("counter.incrementAndGet", name), resultHandler);
+    }
+
+    @Override
+    public void getAndIncrement(Handler<AsyncResult<Long>> resultHandler) {
+      call(request("counter.getAndIncrement", name), resultHandler);
+    }
+
+    @Override
+    public void decrementAndGet(Handler<AsyncResult<Long>> resultHandler) {
+      call(request("counter.decrementAndGet", name), resultHandler);
+    }
+
+    @Override
+    public void addAndGet(long value, Handler<AsyncResult<Long>> resultHandler) {
+      call(request("counter.addAndGet", name).put("value", value), resultHandler);
+    }
+
+    @Override
+    public void getAndAdd(long value, Handler<AsyncResult<Long>> resultHandler) {
+      call(request("counter.getAndAdd", name).put("value", value), resultHandler);
+    }
+
+    @Override
+    public void compareAndSet(long expected, long value, Handler<AsyncResult<Boolean>> resultHandler) {
+      call(request("counter.compareAndSet", name).put("expected", expected).put("value", value), resultHandler);
+    }
+  }
+}
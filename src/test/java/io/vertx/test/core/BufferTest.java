@@ -21,12 +21,16 @@ import io.vertx.core.buffer.Buffer;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 
 import static io.vertx.test.core.TestUtils.assertIllegalArgumentException;
 import static io.vertx.test.core.TestUtils.assertIndexOutOfBoundsException;
 import static io.vertx.test.core.TestUtils.assertNullPointerException;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author <a href="http://tfox.org">Tim Fox</a>
@@ -630,4 +634,36 @@ public class BufferTest {
     buff.appendString(TestUtils.randomUnicodeString(100));
     assertEquals(10, sliced.length());
   }
+
+  @Test
+  public void testReadOnly() throws Exception {
+    Buffer buff = TestUtils.randomBuffer(100);
+    Buffer readOnly = buff.asReadOnly();
+    assertFalse(buff.isReadOnly());
+    assertTrue(readOnly.isReadOnly());
+    assertSame(readOnly, readOnly.asReadOnly());
+    assertEquals(buff, readOnly);
+    try {
+      readOnly.setInt(0, 1);
+      fail();
+    } catch (ReadOnlyBufferException e) {
+      // OK
+    }
+    try {
+      readOnly.appendString(TestUtils.randomUnicodeString(100));
+      fail();
+    } catch (ReadOnlyBufferException e) {
+      // OK
+    }
+    assertTrue(readOnly.slice(10, 20).isReadOnly());
+    // The copy does not see the changes of the buffer
+    int first = readOnly.getInt(0);
+    buff.setInt(0, first + 1);
+    assertEquals(first, readOnly.getInt(0));
+    Buffer copy = readOnly.copy();
+    assertFalse(copy.isReadOnly());
+    copy.setInt(0, first + 2);
+    assertEquals(first + 1, buff.getInt(0));
+    assertEquals(first, readOnly.getInt(0));
+  }
 }
@@ -19,16 +19,30 @@ package io.vertx.test.core;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageCodec;
 import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.MessageProducer;
+import io.vertx.core.eventbus.OverflowPolicy;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.eventbus.RoutingPolicy;
+import io.vertx.core.eventbus.impl.EventBusImpl;
+import io.vertx.core.eventbus.impl.MessageProducerImpl;
 import io.vertx.core.impl.VertxInternal;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.impl.ServerID;
 import io.vertx.core.spi.cluster.ClusterManager;
 import io.vertx.test.fakecluster.FakeClusterManager;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -151,6 +165,608 @@ public class ClusteredEventBusTest extends EventBusTestBase {
     await();
   }
 
+  @Test
+  public void testSendWithPriority() {
+    startNodes(2);
+    List<String> received = new ArrayList<>();
+    MessageConsumer<String> consumer = vertices[0].eventBus().consumer(ADDRESS1);
+    consumer.setMaxBufferedMessages(10);
+    consumer.handler(msg -> {
+      received.add(msg.body() + "/" + msg.headers().get("foo"));
+      if (received.size() == 2) {
+        assertEquals(Arrays.asList("urgent/bar", "normal/null"), received);
+        testComplete();
+      }
+    });
+    consumer.pause();
+    consumer.completionHandler(ar -> {
+      assertTrue(ar.succeeded());
+      // The priority travels once the connection negotiated the compact protocol, a first request opens it
+      vertices[0].eventBus().consumer(ADDRESS2, msg -> msg.reply("pong")).completionHandler(onSuccess(v -> {
+        vertices[1].eventBus().send(ADDRESS2, "ping", onSuccess(reply -> {
+          vertices[1].eventBus().send(ADDRESS1, "normal");
+          vertices[1].eventBus().send(ADDRESS1, "urgent", new DeliveryOptions().setPriority(DeliveryOptions.MAX_PRIORITY).addHeader("foo", "bar"));
+          vertices[0].setTimer(500, id -> consumer.resume());
+        }));
+      }));
+    });
+    await();
+  }
+
+  @Test
+  public void testSendFollowsSubscriptionChanges() {
+    startNodes(3);
+    vertices[0].eventBus().send(ADDRESS1, "nobody", reply -> {
+      assertTrue(reply.failed());
+      assertEquals(ReplyFailure.NO_HANDLERS, ((ReplyException) reply.cause()).failureType());
+      MessageConsumer<String> first = vertices[1].eventBus().consumer(ADDRESS1);
+      first.handler(msg -> {
+        assertEquals("first", msg.body());
+        first.unregister(ar -> {
+          assertTrue(ar.succeeded());
+          vertices[2].eventBus().<String>consumer(ADDRESS1).handler(msg2 -> {
+            assertEquals("second", msg2.body());
+            testComplete();
+          }).completionHandler(ar2 -> {
+            assertTrue(ar2.succeeded());
+            vertices[0].eventBus().send(ADDRESS1, "second");
+          });
+        });
+      });
+      first.completionHandler(ar -> {
+        assertTrue(ar.succeeded());
+        vertices[0].eventBus().send(ADDRESS1, "first");
+      });
+    });
+    await();
+  }
+
+  @Test
+  public void testSendLargeAndSmallMessages() {
+    startNodes(2);
+    List<Buffer> sent = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      sent.add(TestUtils.randomBuffer(i % 2 == 0 ? 10 : 200 * 1024));
+    }
+    AtomicInteger received = new AtomicInteger();
+    vertices[1].eventBus().<Buffer>consumer(ADDRESS1).handler(msg -> {
+      assertEquals(sent.get(received.getAndIncrement()), msg.body());
+      if (received.get() == sent.size()) {
+        testComplete();
+      }
+    }).completionHandler(ar -> {
+      assertTrue(ar.succeeded());
+      for (Buffer buffer : sent) {
+        vertices[0].eventBus().send(ADDRESS1, buffer);
+      }
+    });
+    await();
+  }
+
+  @Test
+  public void testRequestReplyWithCompressibleBodiesAndHeaders() {
+    startNodes(2);
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < 100 * 1024) {
+      sb.append("compressible body ").append(sb.length()).append(' ');
+    }
+    String body = sb.toString();
+    int num = 10;
+    AtomicInteger replied = new AtomicInteger();
+    vertices[1].eventBus().<String>consumer(ADDRESS1).handler(msg -> {
+      assertEquals(body, msg.body());
+      assertEquals("bar", msg.headers().get("foo"));
+      msg.reply(msg.headers().get("seq"), new DeliveryOptions().addHeader("reply-header", "quux"));
+    }).completionHandler(ar -> {
+      assertTrue(ar.succeeded());
+      class Requester implements Handler<AsyncResult<Message<String>>> {
+        @Override
+        public void handle(AsyncResult<Message<String>> ar) {
+          assertTrue(ar.succeeded());
+          assertEquals(String.valueOf(replied.get()), ar.result().body());
+          assertEquals("quux", ar.result().headers().get("reply-header"));
+          if (replied.incrementAndGet() == num) {
+            testComplete();
+          } else {
+            send();
+          }
+        }
+        void send() {
+          DeliveryOptions options = new DeliveryOptions().addHeader("foo", "bar").addHeader("seq", String.valueOf(replied.get()));
+          vertices[0].eventBus().send(ADDRESS1, body, options, this);
+        }
+      }
+      new Requester().send();
+    });
+    await();
+  }
+
+  @Test
+  public void testRequestWithoutCompactWireIsFirstProtocolVersion() {
+    startNodes(2);
+    // A node which does not know the compact protocol may only know the first version
+    ((EventBusImpl) vertices[0].eventBus()).disableCompactWire();
+    VersionRecordingCodec codec = new VersionRecordingCodec();
+    vertices[0].eventBus().registerCodec(codec);
+    vertices[1].eventBus().registerCodec(codec);
+    vertices[1].eventBus().<String>consumer(ADDRESS1).handler(msg -> {
+      assertEquals("foo", msg.body());
+      msg.reply("bar");
+    }).completionHandler(ar -> {
+      assertTrue(ar.succeeded());
+      vertices[0].eventBus().send(ADDRESS1, "foo", new DeliveryOptions().setCodecName(codec.name()), onSuccess(reply -> {
+        assertEquals(Arrays.asList((byte) 1), codec.versions);
+        testComplete();
+      }));
+    });
+    await();
+  }
+
+  @Test
+  public void testPrioritySendWithoutCompactWireIsFirstProtocolVersion() {
+    startNodes(2);
+    // The priority is dropped rather than sent in a version the other node may not know
+    ((EventBusImpl) vertices[0].eventBus()).disableCompactWire();
+    VersionRecordingCodec codec = new VersionRecordingCodec();
+    vertices[0].eventBus().registerCodec(codec);
+    vertices[1].eventBus().registerCodec(codec);
+    vertices[1].eventBus().<String>consumer(ADDRESS1).handler(msg -> {
+      assertEquals("urgent", msg.body());
+      assertEquals(Arrays.asList((byte) 1), codec.versions);
+      testComplete();
+    }).completionHandler(ar -> {
+      assertTrue(ar.succeeded());
+      vertices[0].eventBus().send(ADDRESS1, "urgent", new DeliveryOptions().setCodecName(codec.name())
+        .setPriority(DeliveryOptions.MAX_PRIORITY));
+    });
+    await();
+  }
+
+  @Test
+  public void testCreditHeaderIsNotReceived() {
+    testCreditHeaderIsNotReceived(true);
+  }
+
+  @Test
+  public void testCreditHeaderIsNotReceivedWithoutCompactWire() {
+    testCreditHeaderIsNotReceived(false);
+  }
+
+  private void testCreditHeaderIsNotReceived(boolean compactWire) {
+    startNodes(2);
+    if (!compactWire) {
+      ((EventBusImpl) vertices[0].eventBus()).disableCompactWire();
+    }
+    // A sender can't make the consumer send credits to an address it chooses
+    vertices[0].eventBus().consumer(ADDRESS2).handler(msg -> fail("Unexpected credits"));
+    vertices[1].eventBus().<String>consumer(ADDRESS1).handler(msg -> {
+      assertEquals("bar", msg.headers().get("foo"));
+      assertNull(msg.headers().get(MessageProducerImpl.CREDIT_ADDRESS_HEADER_NAME));
+      vertices[1].setTimer(100, id -> testComplete());
+    }).completionHandler(ar -> {
+      assertTrue(ar.succeeded());
+      vertices[0].eventBus().send(ADDRESS1, "msg", new DeliveryOptions().addHeader("foo", "bar")
+        .addHeader(MessageProducerImpl.CREDIT_ADDRESS_HEADER_NAME, ADDRESS2));
+    });
+    await();
+  }
+
+  // Records the protocol version of the frames it decodes
+  public static class VersionRecordingCodec implements MessageCodec<String, String> {
+
+    final List<Byte> versions = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void encodeToWire(Buffer buffer, String s) {
+      Buffer encoded = Buffer.buffer(s);
+      buffer.appendInt(encoded.length());
+      buffer.appendBuffer(encoded);
+    }
+
+    @Override
+    public String decodeFromWire(int pos, Buffer buffer) {
+      versions.add(buffer.getByte(0));
+      int length = buffer.getInt(pos);
+      return buffer.getString(pos + 4, pos + 4 + length);
+    }
+
+    @Override
+    public String transform(String s) {
+      return s;
+    }
+
+    @Override
+    public String name() {
+      return "versionrecorder";
+    }
+
+    @Override
+    public byte systemCodecID() {
+      return -1;
+    }
+  }
+
+  @Test
+  public void testNodeWithoutCompactWire() {
+    startNodes(2);
+    ((EventBusImpl) vertices[0].eventBus()).disableCompactWire();
+    int num = 50;
+    AtomicInteger received = new AtomicInteger();
+    AtomicInteger registered = new AtomicInteger();
+    for (int i = 0; i < 2; i++) {
+      vertices[i].eventBus().<String>consumer(ADDRESS1 + i).handler(msg -> {
+        assertEquals("bar", msg.headers().get("foo"));
+        msg.reply("pong-" + msg.body());
+      }).completionHandler(ar -> {
+        assertTrue(ar.succeeded());
+        if (registered.incrementAndGet() == 2) {
+          for (int j = 0; j < 2; j++) {
+            for (int k = 0; k < num; k++) {
+              String ping = "ping-" + k;
+              vertices[j].eventBus().<String>send(ADDRESS1 + (1 - j), ping, new DeliveryOptions().addHeader("foo", "bar"), reply -> {
+                assertTrue(reply.succeeded());
+                assertEquals("pong-" + ping, reply.result().body());
+                if (received.incrementAndGet() == 2 * num) {
+                  testComplete();
+                }
+              });
+            }
+          }
+        }
+      });
+    }
+    await();
+  }
+
+  @Test
+  public void testPendingOverflowFailsNewMessage() {
+    testPendingOverflow(OverflowPolicy.FAIL, 1);
+  }
+
+  @Test
+  public void testPendingOverflowDropsOldestMessage() {
+    testPendingOverflow(OverflowPolicy.DROP_OLDEST, 0);
+  }
+
+  private void testPendingOverflow(OverflowPolicy policy, int overflowed) {
+    startNodes(1, new VertxOptions().setClusterPendingMaxSize(1).setClusterOverflowPolicy(policy)
+      .setClusterReconnectAttempts(10).setClusterReconnectInterval(1000));
+    // Nothing listens on that port so the messages stay pending while the node is retried
+    ClusterManager clusterManager = getClusterManager();
+    clusterManager.setVertx((VertxInternal) vertices[0]);
+    clusterManager.<String, ServerID>getAsyncMultiMap("subs", null, onSuccess(subs -> {
+      subs.add(ADDRESS1, new ServerID(1, "localhost"), onSuccess(v -> {
+        for (int i = 0; i < 2; i++) {
+          int index = i;
+          vertices[0].eventBus().send(ADDRESS1, "msg-" + i, new DeliveryOptions().setSendTimeout(60 * 1000), ar -> {
+            assertEquals(overflowed, index);
+            assertTrue(ar.failed());
+            ReplyException failure = (ReplyException) ar.cause();
+            assertEquals(ReplyFailure.OVERFLOW, failure.failureType());
+            testComplete();
+          });
+        }
+      }));
+    }));
+    await();
+  }
+
+  @Test
+  public void testPendingOverflowDropOldestGivesCreditBack() {
+    startNodes(1, new VertxOptions().setClusterPendingMaxSize(1).setClusterOverflowPolicy(OverflowPolicy.DROP_OLDEST)
+      .setClusterReconnectAttempts(10).setClusterReconnectInterval(1000));
+    // Nothing listens on that port so the messages stay pending while the node is retried
+    ClusterManager clusterManager = getClusterManager();
+    clusterManager.setVertx((VertxInternal) vertices[0]);
+    clusterManager.<String, ServerID>getAsyncMultiMap("subs", null, onSuccess(subs -> {
+      subs.add(ADDRESS1, new ServerID(1, "localhost"), onSuccess(v -> {
+        vertices[0].runOnContext(v2 -> {
+          MessageProducer<String> producer = vertices[0].eventBus().sender(ADDRESS1);
+          producer.setWriteQueueMaxSize(2);
+          producer.write("msg-0");
+          producer.write("msg-1");
+          assertTrue(producer.writeQueueFull());
+          // The second message takes the place of the first one, whose credit is given back
+          producer.drainHandler(v3 -> {
+            assertFalse(producer.writeQueueFull());
+            testComplete();
+          });
+        });
+      }));
+    }));
+    await();
+  }
+
+  @Test
+  public void testSendJsonWithBinaryDefault() {
+    startNodes(2, new VertxOptions().setClusterBinaryJson(true));
+    JsonObject obj = binaryJsonObject();
+    testSend(obj, received -> {
+      assertEquals(obj, received);
+      assertFalse(obj == received);
+    });
+  }
+
+  @Test
+  public void testSeveralConnectionsPerNodeKeepAddressOrder() {
+    startNodes(2, new VertxOptions().setClusterConnectionsPerNode(4));
+    int addresses = 8;
+    int num = 200;
+    AtomicInteger registered = new AtomicInteger();
+    AtomicInteger done = new AtomicInteger();
+    for (int i = 0; i < addresses; i++) {
+      AtomicInteger expected = new AtomicInteger();
+      vertices[1].eventBus().<Integer>consumer(ADDRESS1 + i).handler(msg -> {
+        assertEquals(expected.getAndIncrement(), (int) msg.body());
+        if (expected.get() == num && done.incrementAndGet() == addresses) {
+          testComplete();
+        }
+      }).completionHandler(ar -> {
+        assertTrue(ar.succeeded());
+        if (registered.incrementAndGet() == addresses) {
+          for (int j = 0; j < num; j++) {
+            for (int k = 0; k < addresses; k++) {
+              vertices[0].eventBus().send(ADDRESS1 + k, j);
+            }
+          }
+        }
+      });
+    }
+    await();
+  }
+
+  @Test
+  public void testSharedMemoryKeepsOrder() {
+    startNodes(2, new VertxOptions().setClusterSharedMemory(true));
+    int num = 100;
+    // Large enough for the ring to wrap around and fill up
+    Buffer body = TestUtils.randomBuffer(64 * 1024);
+    AtomicInteger expected = new AtomicInteger();
+    vertices[1].eventBus().<Buffer>consumer(ADDRESS1).handler(msg -> {
+      assertEquals(expected.getAndIncrement(), msg.body().getInt(0));
+      assertEquals(body.slice(4, body.length()), msg.body().slice(4, msg.body().length()));
+      if (expected.get() == num) {
+        testComplete();
+      }
+    }).completionHandler(ar -> {
+      assertTrue(ar.succeeded());
+      // The connection is opened by a first request and the ring is mapped meanwhile, the next messages use it
+      vertices[1].eventBus().consumer(ADDRESS2, msg -> msg.reply("pong")).completionHandler(onSuccess(v -> {
+        vertices[0].eventBus().send(ADDRESS2, "ping", onSuccess(reply -> {
+          for (int i = 0; i < num; i++) {
+            vertices[0].eventBus().send(ADDRESS1, body.copy().setInt(0, i));
+          }
+        }));
+      }));
+    });
+    await();
+  }
+
+  @Test
+  public void testManyRegistrationsInOneTick() {
+    startNodes(2);
+    int num = 500;
+    AtomicInteger registered = new AtomicInteger();
+    AtomicInteger received = new AtomicInteger();
+    vertices[1].runOnContext(v -> {
+      for (int i = 0; i < num; i++) {
+        vertices[1].eventBus().consumer(ADDRESS1 + i).handler(msg -> {
+          if (received.incrementAndGet() == num) {
+            testComplete();
+          }
+        }).completionHandler(ar -> {
+          assertTrue(ar.succeeded());
+          if (registered.incrementAndGet() == num) {
+            for (int j = 0; j < num; j++) {
+              vertices[0].eventBus().send(ADDRESS1 + j, j);
+            }
+          }
+        });
+      }
+    });
+    await();
+  }
+
+  @Test
+  public void testUnregisterInTheRegistrationTick() {
+    startNodes(2);
+    vertices[1].runOnContext(v -> {
+      MessageConsumer<String> consumer = vertices[1].eventBus().<String>consumer(ADDRESS1).handler(msg -> {
+        fail("Should not receive message");
+      });
+      consumer.unregister(ar -> {
+        assertTrue(ar.succeeded());
+        vertices[0].eventBus().send(ADDRESS1, "foo", reply -> {
+          assertTrue(reply.failed());
+          assertEquals(ReplyFailure.NO_HANDLERS, ((ReplyException) reply.cause()).failureType());
+          testComplete();
+        });
+      });
+    });
+    await();
+  }
+
+  @Test
+  public void testLocalFirstRouting() {
+    startNodes(2);
+    int num = 20;
+    AtomicInteger received = new AtomicInteger();
+    AtomicInteger registered = new AtomicInteger();
+    for (int i = 0; i < 2; i++) {
+      boolean local = i == 0;
+      vertices[i].eventBus().consumer(ADDRESS1).handler(msg -> {
+        assertTrue("Message sent to the remote node", local);
+        if (received.incrementAndGet() == num) {
+          testComplete();
+        }
+      }).completionHandler(ar -> {
+        assertTrue(ar.succeeded());
+        if (registered.incrementAndGet() == 2) {
+          for (int j = 0; j < num; j++) {
+            vertices[0].eventBus().send(ADDRESS1, j, new DeliveryOptions().setRoutingPolicy(RoutingPolicy.LOCAL_FIRST));
+          }
+        }
+      });
+    }
+    await();
+  }
+
+  @Test
+  public void testLocalOnlySend() {
+    testLocalOnly(false);
+  }
+
+  @Test
+  public void testLocalAddress() {
+    testLocalOnly(true);
+  }
+
+  private void testLocalOnly(boolean localAddress) {
+    startNodes(2);
+    int num = 20;
+    AtomicInteger received = new AtomicInteger();
+    AtomicInteger registered = new AtomicInteger();
+    for (int i = 0; i < 2; i++) {
+      boolean local = i == 0;
+      vertices[i].eventBus().consumer(ADDRESS1).handler(msg -> {
+        assertTrue("Message sent to the remote node", local);
+        if (received.incrementAndGet() == num) {
+          testComplete();
+        }
+      }).completionHandler(ar -> {
+        assertTrue(ar.succeeded());
+        if (registered.incrementAndGet() == 2) {
+          DeliveryOptions options = new DeliveryOptions();
+          if (localAddress) {
+            vertices[0].eventBus().addLocalAddress(ADDRESS1);
+          } else {
+            options.setLocalOnly(true);
+          }
+          for (int j = 0; j < num; j++) {
+            if (j % 2 == 0) {
+              vertices[0].eventBus().send(ADDRESS1, j, options);
+            } else {
+              vertices[0].eventBus().publish(ADDRESS1, j, options);
+            }
+          }
+        }
+      });
+    }
+    await();
+  }
+
+  @Test
+  public void testLeastOutstandingRoutingAvoidsStalledNode() {
+    startNodes(3, new VertxOptions().setClusterRoutingPolicy(RoutingPolicy.LEAST_OUTSTANDING));
+    int num = 10;
+    AtomicInteger stalled = new AtomicInteger();
+    AtomicInteger replied = new AtomicInteger();
+    AtomicInteger registered = new AtomicInteger();
+    // One node never replies, the other one replies straight away
+    vertices[1].eventBus().consumer(ADDRESS1).handler(msg -> stalled.incrementAndGet()).completionHandler(ar -> {
+      assertTrue(ar.succeeded());
+      registered.incrementAndGet();
+    });
+    vertices[2].eventBus().consumer(ADDRESS1).handler(msg -> msg.reply("pong")).completionHandler(ar -> {
+      assertTrue(ar.succeeded());
+      registered.incrementAndGet();
+    });
+    waitUntil(() -> registered.get() == 2);
+    class Requester implements Handler<AsyncResult<Message<String>>> {
+      @Override
+      public void handle(AsyncResult<Message<String>> ar) {
+        assertTrue(ar.succeeded());
+        if (replied.incrementAndGet() == num) {
+          // A second request sent to the stalled node would have stopped the chain, the first one may not be received yet
+          assertTrue(stalled.get() <= 1);
+          testComplete();
+        } else {
+          vertices[0].eventBus().send(ADDRESS1, "ping", this);
+        }
+      }
+    }
+    // The first two requests go to each node, the stalled node keeps an outstanding request afterwards
+    vertices[0].eventBus().send(ADDRESS1, "ping", new Requester());
+    vertices[0].eventBus().send(ADDRESS1, "ping", new Requester());
+    await();
+  }
+
+  @Test
+  public void testPowerOfTwoChoicesRoutingAvoidsSlowNode() {
+    startNodes(3);
+    int num = 30;
+    AtomicInteger slow = new AtomicInteger();
+    AtomicInteger replied = new AtomicInteger();
+    AtomicInteger registered = new AtomicInteger();
+    vertices[1].eventBus().consumer(ADDRESS1).handler(msg -> {
+      slow.incrementAndGet();
+      vertices[1].setTimer(100, id -> msg.reply("pong"));
+    }).completionHandler(ar -> {
+      assertTrue(ar.succeeded());
+      registered.incrementAndGet();
+    });
+    vertices[2].eventBus().consumer(ADDRESS1).handler(msg -> msg.reply("pong")).completionHandler(ar -> {
+      assertTrue(ar.succeeded());
+      registered.incrementAndGet();
+    });
+    waitUntil(() -> registered.get() == 2);
+    DeliveryOptions options = new DeliveryOptions().setRoutingPolicy(RoutingPolicy.POWER_OF_TWO_CHOICES);
+    class Requester implements Handler<AsyncResult<Message<String>>> {
+      @Override
+      public void handle(AsyncResult<Message<String>> ar) {
+        assertTrue(ar.succeeded());
+        if (replied.incrementAndGet() == num) {
+          // The slow node gets requests until its first reply
+          assertTrue("Too many requests sent to the slow node: " + slow.get(), slow.get() <= 2);
+          testComplete();
+        } else {
+          vertices[0].eventBus().send(ADDRESS1, "ping", options, this);
+        }
+      }
+    }
+    vertices[0].eventBus().send(ADDRESS1, "ping", options, new Requester());
+    await();
+  }
+
+  @Test
+  public void testSenderFlowControl() {
+    startNodes(2);
+    int num = 5000;
+    AtomicInteger received = new AtomicInteger();
+    MessageConsumer<Integer> consumer = vertices[1].eventBus().consumer(ADDRESS1);
+    consumer.handler(msg -> {
+      int val = received.getAndIncrement();
+      assertEquals(val, (int) msg.body());
+      if (val % 100 == 0) {
+        // Simulate a slow consumer
+        consumer.pause();
+        vertices[1].setTimer(1, id -> consumer.resume());
+      }
+      if (val == num - 1) {
+        testComplete();
+      }
+    });
+    consumer.completionHandler(ar -> {
+      assertTrue(ar.succeeded());
+      MessageProducer<Integer> producer = vertices[0].eventBus().sender(ADDRESS1);
+      producer.setWriteQueueMaxSize(100);
+      class Writer implements Handler<Void> {
+        int sent;
+        @Override
+        public void handle(Void v) {
+          while (sent < num && !producer.writeQueueFull()) {
+            producer.write(sent++);
+          }
+          if (sent < num) {
+            producer.drainHandler(this);
+          }
+        }
+      }
+      new Writer().handle(null);
+    });
+    await();
+  }
+
   @Override
   protected <T> void testPublish(T val, Consumer<T> consumer) {
     int numNodes = 3;
@@ -20,10 +20,13 @@ import io.netty.util.CharsetUtil;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.eventbus.impl.codecs.JsonArrayBinaryMessageCodec;
+import io.vertx.core.eventbus.impl.codecs.JsonObjectBinaryMessageCodec;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import org.junit.Test;
 
+import java.math.BigInteger;
 import java.util.function.Consumer;
 
 /**
@@ -316,6 +319,48 @@ public abstract class EventBusTestBase extends VertxTestBase {
     });
   }
 
+  @Test
+  public void testSendJsonObjectBinary() {
+    JsonObject obj = binaryJsonObject();
+    testSend(obj, obj, received -> {
+      assertEquals(obj, received);
+      assertFalse(obj == received); // Make sure it's copied
+    }, new DeliveryOptions().setCodecName(JsonObjectBinaryMessageCodec.NAME));
+  }
+
+  @Test
+  public void testSendJsonArrayBinary() {
+    JsonArray arr = new JsonArray().add(binaryJsonObject()).add(binaryJsonObject()).addNull().add(new JsonArray());
+    testSend(arr, arr, received -> {
+      assertEquals(arr, received);
+      assertFalse(arr == received); // Make sure it's copied
+    }, new DeliveryOptions().setCodecName(JsonArrayBinaryMessageCodec.NAME));
+  }
+
+  protected JsonObject binaryJsonObject() {
+    JsonArray items = new JsonArray();
+    for (int i = 0; i < 3; i++) {
+      items.add(new JsonObject().put("id", i).put("name", TestUtils.randomUnicodeString(20)));
+    }
+    return new JsonObject()
+      .put(TestUtils.randomUnicodeString(100), TestUtils.randomUnicodeString(100))
+      .put("int", TestUtils.randomInt())
+      .put("minInt", Integer.MIN_VALUE)
+      .put("maxInt", Integer.MAX_VALUE)
+      .put("long", TestUtils.randomLong())
+      .put("minLong", Long.MIN_VALUE)
+      .put("double", TestUtils.randomDouble())
+      .put("float", TestUtils.randomFloat())
+      .put("bigInteger", new BigInteger("123456789012345678901234567890"))
+      .put("true", true)
+      .put("false", false)
+      .putNull("null")
+      .put("binary", TestUtils.randomByteArray(50))
+      .put("empty", new JsonObject())
+      .put("items", items)
+      .put("nested", new JsonObject().put("items", items.copy()).put("int", -1));
+  }
+
   @Test
   public void testSendWithHeaders() {
     testSend("foo", "foo", null, new DeliveryOptions().addHeader("uhqwduh", "qijwdqiuwd").addHeader("iojdijef", "iqjwddh"));
@@ -683,6 +683,88 @@ public class JsonArrayTest {
     assertEquals(5, copy.size());
   }
 
+  @Test
+  public void testReadOnly() {
+    jsonArray.add("foo");
+    jsonArray.add(new JsonObject().put("foo", "bar"));
+    jsonArray.add(new JsonArray().add(123));
+    JsonArray readOnly = jsonArray.asReadOnly();
+    assertFalse(jsonArray.isReadOnly());
+    assertTrue(readOnly.isReadOnly());
+    assertSame(readOnly, readOnly.asReadOnly());
+    assertEquals(jsonArray, readOnly);
+    assertEquals("foo", readOnly.getString(0));
+    try {
+      readOnly.add("bar");
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    try {
+      readOnly.remove(0);
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    try {
+      readOnly.getJsonObject(1).put("foo", "juu");
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    try {
+      readOnly.getJsonArray(2).add(456);
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    Iterator<Object> iter = readOnly.iterator();
+    iter.next();
+    assertTrue(((JsonObject) iter.next()).isReadOnly());
+    assertTrue(((JsonArray) iter.next()).isReadOnly());
+    JsonArray copy = readOnly.copy();
+    assertFalse(copy.isReadOnly());
+    copy.add("bar");
+    assertEquals(3, jsonArray.size());
+  }
+
+  @Test
+  public void testReadOnlyNestedMutation() {
+    Map<String, Object> nested = new HashMap<>();
+    nested.put("foo", "bar");
+    List<Object> list = new ArrayList<>();
+    list.add(123);
+    jsonArray.add(new JsonObject(nested));
+    jsonArray.add(new JsonArray(list));
+    JsonArray readOnly = jsonArray.asReadOnly();
+    try {
+      ((JsonObject) readOnly.getValue(0)).put("foo", "juu");
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    try {
+      readOnly.getList().add("juu");
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    readOnly.stream().forEach(val -> {
+      if (val instanceof JsonObject) {
+        assertTrue(((JsonObject) val).isReadOnly());
+      } else {
+        assertTrue(((JsonArray) val).isReadOnly());
+      }
+    });
+    // The nested values of the original can still be changed without being seen through the copy
+    nested.put("foo", "juu");
+    list.add(456);
+    jsonArray.add("wibble");
+    assertEquals("bar", readOnly.getJsonObject(0).getString("foo"));
+    assertEquals(1, readOnly.getJsonArray(1).size());
+    assertEquals(2, readOnly.size());
+  }
+
   @Test
   public void testInvalidValsOnCopy() {
     List<Object> invalid = new ArrayList<>();
@@ -1243,6 +1243,139 @@ public class JsonObjectTest {
     assertEquals("blah", copy.getString("eek"));
   }
 
+  @Test
+  public void testReadOnly() {
+    jsonObject.put("foo", "bar");
+    jsonObject.put("wibble", new JsonObject().put("quux", 123));
+    jsonObject.put("eek", new JsonArray().add("blah"));
+    JsonObject readOnly = jsonObject.asReadOnly();
+    assertFalse(jsonObject.isReadOnly());
+    assertTrue(readOnly.isReadOnly());
+    assertSame(readOnly, readOnly.asReadOnly());
+    assertEquals(jsonObject, readOnly);
+    assertEquals("bar", readOnly.getString("foo"));
+    try {
+      readOnly.put("foo", "juu");
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    try {
+      readOnly.remove("foo");
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    try {
+      readOnly.clear();
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    try {
+      readOnly.getJsonObject("wibble").put("quux", 456);
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    try {
+      readOnly.getJsonArray("eek").add("flarb");
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    for (Map.Entry<String, Object> entry: readOnly) {
+      if (entry.getValue() instanceof JsonObject) {
+        assertTrue(((JsonObject) entry.getValue()).isReadOnly());
+      }
+    }
+    // The copy does not see the changes of the original object
+    jsonObject.put("oob", "flarb");
+    jsonObject.getJsonObject("wibble").put("quux", 456);
+    assertFalse(readOnly.containsKey("oob"));
+    assertEquals(Integer.valueOf(123), readOnly.getJsonObject("wibble").getInteger("quux"));
+    jsonObject.getJsonObject("wibble").put("quux", 123);
+    JsonObject copy = readOnly.copy();
+    assertFalse(copy.isReadOnly());
+    copy.put("foo", "juu");
+    copy.getJsonObject("wibble").put("quux", 456);
+    assertEquals("bar", jsonObject.getString("foo"));
+    assertEquals(Integer.valueOf(123), jsonObject.getJsonObject("wibble").getInteger("quux"));
+  }
+
+  @Test
+  public void testReadOnlyNestedMap() {
+    JsonObject readOnly = new JsonObject("{\"foo\":{\"bar\":\"juu\"}}").asReadOnly();
+    assertEquals("juu", readOnly.getJsonObject("foo").getString("bar"));
+    try {
+      readOnly.getJsonObject("foo").put("bar", "daa");
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    Iterator<Map.Entry<String, Object>> iter = readOnly.iterator();
+    Map.Entry<String, Object> entry = iter.next();
+    assertTrue(((JsonObject) entry.getValue()).isReadOnly());
+    assertTrue(((JsonObject) readOnly.getMap().get("foo")).isReadOnly());
+  }
+
+  @Test
+  public void testReadOnlyNestedMutation() {
+    Map<String, Object> nested = new HashMap<>();
+    nested.put("bar", "juu");
+    List<Object> list = new ArrayList<>();
+    list.add(new JsonObject().put("daa", 1));
+    jsonObject.put("foo", nested);
+    jsonObject.put("eek", new JsonArray(list));
+    JsonObject readOnly = jsonObject.asReadOnly();
+    try {
+      ((JsonObject) readOnly.getValue("foo")).put("bar", "daa");
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    try {
+      readOnly.getJsonArray("eek").getJsonObject(0).put("daa", 2);
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    try {
+      readOnly.getMap().put("foo", "bar");
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    try {
+      readOnly.fieldNames().remove("foo");
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // OK
+    }
+    readOnly.stream().forEach(entry -> {
+      try {
+        entry.setValue("bar");
+        fail();
+      } catch (UnsupportedOperationException e) {
+        // OK
+      }
+      if (entry.getValue() instanceof JsonObject) {
+        assertTrue(((JsonObject) entry.getValue()).isReadOnly());
+      } else {
+        JsonArray arr = (JsonArray) entry.getValue();
+        assertTrue(arr.isReadOnly());
+        assertTrue(arr.getJsonObject(0).isReadOnly());
+      }
+    });
+    // The nested values of the original can still be changed without being seen through the copy
+    nested.put("bar", "daa");
+    list.add("wibble");
+    ((JsonObject) list.get(0)).put("daa", 2);
+    assertEquals("juu", readOnly.getJsonObject("foo").getString("bar"));
+    assertEquals(1, readOnly.getJsonArray("eek").size());
+    assertEquals(Integer.valueOf(1), readOnly.getJsonArray("eek").getJsonObject(0).getInteger("daa"));
+  }
+
   @Test
   public void testInvalidValsOnCopy1() {
     Map<String, Object> invalid = new HashMap<>();
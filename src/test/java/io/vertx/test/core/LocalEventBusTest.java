@@ -23,6 +23,7 @@ import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Handler;
 import io.vertx.core.MultiMap;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.eventbus.Message;
@@ -31,6 +32,7 @@ import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.eventbus.MessageProducer;
 import io.vertx.core.eventbus.ReplyException;
 import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.eventbus.RoutingPolicy;
 import io.vertx.core.eventbus.impl.EventBusImpl;
 import io.vertx.core.http.CaseInsensitiveHeaders;
 import io.vertx.core.impl.ConcurrentHashSet;
@@ -39,21 +41,27 @@ import io.vertx.core.impl.EventLoopContext;
 import io.vertx.core.impl.MultiThreadedWorkerContext;
 import io.vertx.core.impl.VertxInternal;
 import io.vertx.core.impl.WorkerContext;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.streams.Pump;
 import io.vertx.core.streams.ReadStream;
 import io.vertx.core.streams.WriteStream;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.Consumer;
 
 import static io.vertx.test.core.TestUtils.*;
@@ -90,6 +98,19 @@ public class LocalEventBusTest extends EventBusTestBase {
     assertIllegalArgumentException(() -> options.setSendTimeout(-1));
     assertNullPointerException(() -> options.addHeader(null, ""));
     assertNullPointerException(() -> options.addHeader("", null));
+    assertEquals(0, options.getPriority());
+    assertIllegalArgumentException(() -> options.setPriority(-1));
+    assertIllegalArgumentException(() -> options.setPriority(DeliveryOptions.MAX_PRIORITY + 1));
+    assertEquals(DeliveryOptions.MAX_PRIORITY, new DeliveryOptions(options.setPriority(DeliveryOptions.MAX_PRIORITY)).getPriority());
+    assertEquals(2, new DeliveryOptions(new JsonObject().put("priority", 2)).getPriority());
+    assertIllegalArgumentException(() -> new DeliveryOptions(new JsonObject().put("priority", -1)));
+    assertIllegalArgumentException(() -> new DeliveryOptions(new JsonObject().put("priority", DeliveryOptions.MAX_PRIORITY + 1)));
+    assertNull(options.getRoutingPolicy());
+    assertEquals(RoutingPolicy.LOCAL_FIRST, new DeliveryOptions(options.setRoutingPolicy(RoutingPolicy.LOCAL_FIRST)).getRoutingPolicy());
+    assertEquals(RoutingPolicy.LEAST_OUTSTANDING, new DeliveryOptions(new JsonObject().put("routingPolicy", "LEAST_OUTSTANDING")).getRoutingPolicy());
+    assertFalse(options.isLocalOnly());
+    assertTrue(new DeliveryOptions(options.setLocalOnly(true)).isLocalOnly());
+    assertTrue(new DeliveryOptions(new JsonObject().put("localOnly", true)).isLocalOnly());
   }
 
   @Test
@@ -502,6 +523,435 @@ public class LocalEventBusTest extends EventBusTestBase {
     await();
   }
 
+  @Test
+  public void testSendFromOtherContextOrdered() throws Exception {
+    int num = 10000;
+    CountDownLatch latch = new CountDownLatch(1);
+    vertx.runOnContext(v -> {
+      Context ctx = vertx.context();
+      AtomicInteger expected = new AtomicInteger();
+      eb.<Integer>consumer(ADDRESS1).handler(msg -> {
+        assertSame(ctx, vertx.context());
+        assertEquals(expected.getAndIncrement(), (int) msg.body());
+        if (expected.get() == num) {
+          testComplete();
+        }
+      }).completionHandler(ar -> latch.countDown());
+    });
+    awaitLatch(latch);
+    // Flood the consumer from another context
+    vertx.runOnContext(v -> {
+      for (int i = 0; i < num; i++) {
+        eb.send(ADDRESS1, i);
+      }
+    });
+    await();
+  }
+
+  @Test
+  public void testHandlerFailureDoesNotStopDelivery() {
+    int num = 10;
+    AtomicInteger received = new AtomicInteger();
+    eb.<Integer>consumer(ADDRESS1).handler(msg -> {
+      if (received.incrementAndGet() == num) {
+        testComplete();
+      }
+      throw new RuntimeException("whatever");
+    });
+    for (int i = 0; i < num; i++) {
+      eb.send(ADDRESS1, i);
+    }
+    await();
+  }
+
+  @Test
+  public void testShardedConsumerOrdersByKey() {
+    int numKeys = 10;
+    int num = 1000;
+    Map<String, Integer> last = new ConcurrentHashMap<>();
+    AtomicInteger received = new AtomicInteger();
+    eb.<Integer>shardedConsumer(ADDRESS1, "key", 4).handler(msg -> {
+      assertTrue(vertx.context().isWorker());
+      assertFalse(vertx.context().isMultiThreaded());
+      String key = msg.headers().get("key");
+      Integer prev = last.put(key, msg.body());
+      if (prev != null) {
+        assertTrue(prev < msg.body());
+      }
+      if (received.incrementAndGet() == num) {
+        assertEquals(numKeys, last.size());
+        testComplete();
+      }
+    });
+    for (int i = 0; i < num; i++) {
+      eb.send(ADDRESS1, i, new DeliveryOptions().addHeader("key", "key-" + (i % numKeys)));
+    }
+    await();
+  }
+
+  @Test
+  public void testShardedConsumerLanesRunInParallel() {
+    CountDownLatch latch = new CountDownLatch(2);
+    AtomicInteger received = new AtomicInteger();
+    eb.<Integer>shardedConsumer(ADDRESS1, Message::body, 2).handler(msg -> {
+      // Each key is handled by its own lane so both are blocked together
+      latch.countDown();
+      try {
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+      } catch (InterruptedException e) {
+        fail(e.getMessage());
+      }
+      if (received.incrementAndGet() == 2) {
+        testComplete();
+      }
+    });
+    eb.send(ADDRESS1, 0);
+    eb.send(ADDRESS1, 1);
+    await();
+  }
+
+  @Test
+  public void testShardedConsumerOrdersByKeyAfterResume() {
+    int numKeys = 10;
+    int num = 1000;
+    Map<String, Integer> last = new ConcurrentHashMap<>();
+    Map<String, Context> lanes = new ConcurrentHashMap<>();
+    AtomicInteger received = new AtomicInteger();
+    MessageConsumer<Integer> consumer = eb.shardedConsumer(ADDRESS1, "key", 4);
+    consumer.handler(msg -> {
+      String key = msg.headers().get("key");
+      // The buffered messages are handled on the lane of their key too
+      assertSame(lanes.computeIfAbsent(key, k -> vertx.context()), vertx.context());
+      Integer prev = last.put(key, msg.body());
+      if (prev != null) {
+        assertTrue(prev < msg.body());
+      }
+      int val = received.incrementAndGet();
+      if (val % 100 == 0) {
+        consumer.pause();
+        vertx.setTimer(1, id -> consumer.resume());
+      }
+      if (val == num) {
+        assertEquals(numKeys, last.size());
+        testComplete();
+      }
+    });
+    consumer.setMaxBufferedMessages(num);
+    consumer.pause();
+    for (int i = 0; i < num; i++) {
+      eb.send(ADDRESS1, i, new DeliveryOptions().addHeader("key", "key-" + (i % numKeys)));
+    }
+    consumer.resume();
+    await();
+  }
+
+  @Test
+  public void testShardedConsumerClosesLanesWhenUnregistered() {
+    MessageConsumer<Integer> consumer = eb.shardedConsumer(ADDRESS1, Message::body, 2);
+    consumer.handler(msg -> {
+      // Registered on the lane, it is unregistered with the sharded consumer
+      eb.consumer(ADDRESS2, msg2 -> fail("Should not be handled")).completionHandler(ar -> {
+        assertTrue(ar.succeeded());
+        consumer.unregister(ar2 -> vertx.setTimer(100, id -> {
+          eb.send(ADDRESS2, "foo", onFailure(err -> {
+            assertEquals(ReplyFailure.NO_HANDLERS, ((ReplyException) err).failureType());
+            testComplete();
+          }));
+        }));
+      });
+    });
+    eb.send(ADDRESS1, 0);
+    await();
+  }
+
+  @Test
+  public void testShardedConsumerInvalidArguments() {
+    assertNullPointerException(() -> eb.shardedConsumer(ADDRESS1, (String) null, 2));
+    assertNullPointerException(() -> eb.<String>shardedConsumer(ADDRESS1, (Function<Message<String>, ?>) null, 2));
+    assertIllegalArgumentException(() -> eb.shardedConsumer(ADDRESS1, "key", 0));
+  }
+
+  @Test
+  public void testPatternConsumerPublish() {
+    Set<String> received = new ConcurrentHashSet<>();
+    Function<String, Handler<Message<String>>> handler = name -> msg -> {
+      received.add(name + "/" + msg.address());
+      if (received.size() == 5) {
+        assertEquals(new HashSet<>(Arrays.asList(
+            "exact/orders.eu.created", "one/orders.eu.created", "many/orders.eu.created",
+            "one/orders.us.created", "many/orders.us.created")), received);
+        testComplete();
+      }
+    };
+    eb.consumer("orders.eu.created", handler.apply("exact"));
+    eb.patternConsumer("orders.*.created", handler.apply("one"));
+    eb.patternConsumer("orders.>", handler.apply("many"));
+    eb.<String>patternConsumer("orders.*", msg -> fail("Should not match"));
+    eb.<String>patternConsumer("orders.eu.created.>", msg -> fail("Should not match"));
+    eb.<String>consumer("orders.*.created", msg -> fail("Exact consumers don't match patterns"));
+    eb.publish("orders", "foo");
+    eb.publish("orders.eu.created", "foo");
+    eb.publish("orders.us.created", "foo");
+    await();
+  }
+
+  @Test
+  public void testPatternConsumerSend() throws Exception {
+    CountDownLatch latch = new CountDownLatch(2);
+    eb.<String>consumer("orders.eu.created", msg -> msg.reply("exact"));
+    eb.<String>patternConsumer("orders.*.created", msg -> {
+      assertEquals("orders.us.created", msg.address());
+      msg.reply("pattern");
+    });
+    eb.send("orders.eu.created", "ping", (AsyncResult<Message<String>> ar) -> {
+      assertEquals("exact", ar.result().body());
+      latch.countDown();
+    });
+    eb.send("orders.us.created", "ping", (AsyncResult<Message<String>> ar) -> {
+      assertEquals("pattern", ar.result().body());
+      latch.countDown();
+    });
+    awaitLatch(latch);
+    testComplete();
+    await();
+  }
+
+  @Test
+  public void testPatternConsumerUnregister() {
+    MessageConsumer<String> consumer = eb.patternConsumer("orders.>", msg -> fail("Should not receive message"));
+    consumer.unregister(ar -> {
+      assertTrue(ar.succeeded());
+      eb.send("orders.eu.created", "ping", (AsyncResult<Message<String>> reply) -> {
+        assertTrue(reply.failed());
+        assertEquals(ReplyFailure.NO_HANDLERS, ((ReplyException) reply.cause()).failureType());
+        testComplete();
+      });
+    });
+    await();
+  }
+
+  @Test
+  public void testBatchHandlerFlushOnSize() {
+    int num = 100;
+    AtomicInteger received = new AtomicInteger();
+    eb.<Integer>consumer(ADDRESS1).batchHandler(10, 60000, batch -> {
+      assertEquals(10, batch.size());
+      for (Message<Integer> msg : batch) {
+        assertEquals(received.getAndIncrement(), (int) msg.body());
+      }
+      if (received.get() == num) {
+        testComplete();
+      }
+    });
+    for (int i = 0; i < num; i++) {
+      eb.send(ADDRESS1, i);
+    }
+    await();
+  }
+
+  @Test
+  public void testBatchHandlerFlushOnDelay() {
+    long start = System.currentTimeMillis();
+    eb.<Integer>consumer(ADDRESS1).batchHandler(10, 100, batch -> {
+      assertTrue(System.currentTimeMillis() - start >= 100);
+      assertEquals(3, batch.size());
+      testComplete();
+    });
+    for (int i = 0; i < 3; i++) {
+      eb.send(ADDRESS1, i);
+    }
+    await();
+  }
+
+  @Test
+  public void testBatchHandlerPauseResume() {
+    AtomicBoolean resumed = new AtomicBoolean();
+    MessageConsumer<Integer> consumer = eb.consumer(ADDRESS1);
+    consumer.setMaxBufferedMessages(10);
+    consumer.batchHandler(5, 50, batch -> {
+      assertTrue(resumed.get());
+      assertEquals(5, batch.size());
+      testComplete();
+    });
+    consumer.pause();
+    for (int i = 0; i < 5; i++) {
+      eb.send(ADDRESS1, i);
+    }
+    vertx.setTimer(200, id -> {
+      resumed.set(true);
+      consumer.resume();
+    });
+    await();
+  }
+
+  @Test
+  public void testBatchHandlerInvalidArguments() {
+    MessageConsumer<Integer> consumer = eb.consumer(ADDRESS1);
+    assertNullPointerException(() -> consumer.batchHandler(10, 100, null));
+    assertIllegalArgumentException(() -> consumer.batchHandler(0, 100, batch -> {}));
+    assertIllegalArgumentException(() -> consumer.batchHandler(10, 0, batch -> {}));
+  }
+
+  @Test
+  public void testPriorityWhenPaused() {
+    List<String> received = new ArrayList<>();
+    MessageConsumer<String> consumer = eb.consumer(ADDRESS1);
+    consumer.setMaxBufferedMessages(10);
+    consumer.handler(msg -> {
+      received.add(msg.body());
+      if (received.size() == 4) {
+        assertEquals(Arrays.asList("urgent", "high", "normal1", "normal2"), received);
+        testComplete();
+      }
+    });
+    consumer.pause();
+    eb.send(ADDRESS1, "normal1");
+    eb.send(ADDRESS1, "high", new DeliveryOptions().setPriority(1));
+    eb.send(ADDRESS1, "normal2");
+    eb.send(ADDRESS1, "urgent", new DeliveryOptions().setPriority(DeliveryOptions.MAX_PRIORITY));
+    // Messages are delivered asynchronously
+    vertx.setTimer(100, id -> consumer.resume());
+    await();
+  }
+
+  @Test
+  public void testPriorityDiscardsLowestWhenFull() {
+    List<String> received = new ArrayList<>();
+    List<String> discarded = new ArrayList<>();
+    MessageConsumer<String> consumer = eb.consumer(ADDRESS1);
+    ((EventBusImpl.HandlerRegistration<String>) consumer).discardHandler(msg -> discarded.add(msg.body()));
+    consumer.setMaxBufferedMessages(2);
+    consumer.handler(msg -> {
+      received.add(msg.body());
+      if (received.size() == 2) {
+        assertEquals(Arrays.asList("urgent", "normal2"), received);
+        assertEquals(Arrays.asList("normal3", "normal1"), discarded);
+        testComplete();
+      }
+    });
+    consumer.pause();
+    eb.send(ADDRESS1, "normal1");
+    eb.send(ADDRESS1, "normal2");
+    eb.send(ADDRESS1, "normal3");
+    vertx.setTimer(100, id -> {
+      eb.send(ADDRESS1, "urgent", new DeliveryOptions().setPriority(DeliveryOptions.MAX_PRIORITY));
+      vertx.setTimer(100, id2 -> consumer.resume());
+    });
+    await();
+  }
+
+  @Test
+  public void testPriorityDoesNotStarveLowerPriorities() {
+    int num = 100;
+    List<String> received = new ArrayList<>();
+    MessageConsumer<String> consumer = eb.consumer(ADDRESS1);
+    consumer.setMaxBufferedMessages(num + 1);
+    consumer.handler(msg -> {
+      received.add(msg.body());
+      if (received.size() == num + 1) {
+        int index = received.indexOf("normal");
+        assertTrue(index > 0);
+        assertTrue(index < num);
+        testComplete();
+      }
+    });
+    consumer.pause();
+    eb.send(ADDRESS1, "normal");
+    for (int i = 0; i < num; i++) {
+      eb.send(ADDRESS1, "urgent", new DeliveryOptions().setPriority(DeliveryOptions.MAX_PRIORITY));
+    }
+    vertx.setTimer(100, id -> consumer.resume());
+    await();
+  }
+
+  @Test
+  public void testExpiredMessageIsDropped() throws Exception {
+    CountDownLatch latch = new CountDownLatch(2);
+    eb.<String>consumer(ADDRESS1, msg -> {
+      assertFalse("expiring".equals(msg.body()));
+      if ("first".equals(msg.body())) {
+        try {
+          // Simulate a backed up consumer
+          Thread.sleep(300);
+        } catch (InterruptedException e) {
+          fail(e.getMessage());
+        }
+      } else {
+        latch.countDown();
+      }
+    });
+    eb.send(ADDRESS1, "first");
+    eb.send(ADDRESS1, "expiring", new DeliveryOptions().setSendTimeout(100), (AsyncResult<Message<String>> ar) -> {
+      assertTrue(ar.failed());
+      ReplyFailure failure = ((ReplyException) ar.cause()).failureType();
+      // The sender may time out before the message expires
+      assertTrue(failure == ReplyFailure.EXPIRED || failure == ReplyFailure.TIMEOUT);
+      latch.countDown();
+    });
+    eb.send(ADDRESS1, "last");
+    awaitLatch(latch);
+  }
+
+  @Test
+  public void testPatternConsumerInvalidPattern() {
+    assertNullPointerException(() -> eb.patternConsumer(null));
+    assertIllegalArgumentException(() -> eb.patternConsumer("orders.>.created"));
+    assertIllegalArgumentException(() -> eb.patternConsumer("orders..created"));
+    assertIllegalArgumentException(() -> eb.patternConsumer(""));
+  }
+
+  @Test
+  public void testSendWithTimeoutManyNoReply() {
+    int num = 1000;
+    eb.<Integer>consumer(ADDRESS1).handler(msg -> {
+      // Only reply to even messages
+      if (msg.body() % 2 == 0) {
+        msg.reply(msg.body());
+      }
+    });
+    AtomicInteger replies = new AtomicInteger();
+    AtomicInteger timeouts = new AtomicInteger();
+    for (int i = 0; i < num; i++) {
+      int val = i;
+      eb.send(ADDRESS1, val, new DeliveryOptions().setSendTimeout(100 + i % 50), (AsyncResult<Message<Integer>> ar) -> {
+        if (ar.succeeded()) {
+          assertEquals(0, val % 2);
+          assertEquals(val, (int) ar.result().body());
+          replies.incrementAndGet();
+        } else {
+          assertEquals(1, val % 2);
+          assertEquals(ReplyFailure.TIMEOUT, ((ReplyException) ar.cause()).failureType());
+          timeouts.incrementAndGet();
+        }
+        if (replies.get() + timeouts.get() == num) {
+          assertEquals(num / 2, replies.get());
+          assertEquals(num / 2, timeouts.get());
+          testComplete();
+        }
+      });
+    }
+    await();
+  }
+
+  @Test
+  public void testReplyToUnknownReplyAddress() {
+    String str = TestUtils.randomUnicodeString(100);
+    eb.<String>consumer(ADDRESS1).handler((Message<String> msg) -> {
+      // Forge a reply address which is not waiting for a reply
+      eb.send(msg.replyAddress() + "0", "foo", (AsyncResult<Message<String>> ar) -> {
+        assertFalse(ar.succeeded());
+        assertEquals(ReplyFailure.NO_HANDLERS, ((ReplyException) ar.cause()).failureType());
+        msg.reply(str);
+      });
+    });
+    eb.send(ADDRESS1, str, (AsyncResult<Message<String>> ar) -> {
+      assertTrue(ar.succeeded());
+      assertEquals(str, ar.result().body());
+      testComplete();
+    });
+    await();
+  }
+
   // Sends with different types
 
   @Test
@@ -962,6 +1412,30 @@ public class LocalEventBusTest extends EventBusTestBase {
     await();
   }
 
+  @Test
+  public void testPublishReadOnlyJsonObject() {
+    JsonObject obj = new JsonObject().put(TestUtils.randomUnicodeString(100), TestUtils.randomInt()).asReadOnly();
+    testPublish(obj, (received) -> {
+      assertSame(obj, received); // Make sure it's not copied
+    });
+  }
+
+  @Test
+  public void testPublishReadOnlyJsonArray() {
+    JsonArray arr = new JsonArray().add(TestUtils.randomUnicodeString(100)).asReadOnly();
+    testPublish(arr, (received) -> {
+      assertSame(arr, received); // Make sure it's not copied
+    });
+  }
+
+  @Test
+  public void testPublishReadOnlyBuffer() {
+    Buffer buffer = TestUtils.randomBuffer(100).asReadOnly();
+    testPublish(buffer, (received) -> {
+      assertSame(buffer, received); // Make sure it's not copied
+    });
+  }
+
   @Test
   public void testPauseResumeMessageStream() {
     testPauseResume((consumer, handler) -> consumer.handler(message -> handler.handle(message.body())));
@@ -1190,6 +1664,175 @@ public class LocalEventBusTest extends EventBusTestBase {
     await();
   }
 
+  @Test
+  public void testSenderWriteQueueFull() {
+    MessageProducer<Integer> producer = eb.sender(ADDRESS1);
+    producer.setWriteQueueMaxSize(10);
+    AtomicInteger received = new AtomicInteger();
+    AtomicInteger done = new AtomicInteger();
+    MessageConsumer<Integer> consumer = eb.consumer(ADDRESS1);
+    consumer.handler(msg -> {
+      assertEquals(received.getAndIncrement(), (int) msg.body());
+      if (received.get() == 11 && done.incrementAndGet() == 2) {
+        testComplete();
+      }
+    });
+    consumer.pause();
+    int count = 0;
+    while (!producer.writeQueueFull()) {
+      producer.write(count++);
+    }
+    assertEquals(10, count);
+    // Queued until credits are granted
+    producer.write(count);
+    producer.drainHandler(v -> {
+      assertFalse(producer.writeQueueFull());
+      if (done.incrementAndGet() == 2) {
+        testComplete();
+      }
+    });
+    // The paused consumer does not discard flow controlled messages
+    consumer.resume();
+    await();
+  }
+
+  @Test
+  public void testSenderFollowsRegistrationChanges() {
+    MessageProducer<Object> producer = eb.sender(ADDRESS1);
+    // No handlers yet
+    producer.write("lost");
+    MessageConsumer<Object> consumer1 = eb.consumer(ADDRESS1, msg -> {
+      assertEquals("first", msg.body());
+    });
+    consumer1.completionHandler(ar1 -> {
+      producer.write("first");
+      consumer1.unregister(ar2 -> {
+        eb.consumer(ADDRESS1, msg -> {
+          assertEquals("second", ((MyPOJO) msg.body()).getStr());
+          testComplete();
+        }).completionHandler(ar3 -> {
+          assertIllegalArgumentException(() -> producer.write(new MyPOJO("second")));
+          eb.registerDefaultCodec(MyPOJO.class, new MyPOJOEncoder2());
+          producer.write(new MyPOJO("second"));
+        });
+      });
+    });
+    await();
+  }
+
+  @Test
+  public void testPublisherFollowsRegistrationChanges() {
+    MessageProducer<String> publisher = eb.publisher("orders.eu");
+    List<String> exact = new CopyOnWriteArrayList<>();
+    AtomicInteger thirdReceived = new AtomicInteger();
+    MessageConsumer<String> consumer = eb.consumer("orders.eu");
+    Runnable unregisterOnThird = () -> {
+      if (thirdReceived.incrementAndGet() == 2) {
+        consumer.unregister(ar -> publisher.write("4"));
+      }
+    };
+    consumer.handler(msg -> {
+      exact.add(msg.body());
+      if (msg.body().equals("3")) {
+        unregisterOnThird.run();
+      }
+    });
+    consumer.completionHandler(ar1 -> {
+      publisher.write("1");
+      // A consumer on another address leaves the publisher alone
+      eb.consumer(ADDRESS2, msg -> {}).unregister(ar2 -> {
+        publisher.write("2");
+        List<String> pattern = new ArrayList<>();
+        eb.<String>patternConsumer("orders.*", msg -> {
+          pattern.add(msg.body());
+          if (msg.body().equals("3")) {
+            unregisterOnThird.run();
+          } else if (msg.body().equals("4")) {
+            assertEquals(Arrays.asList("1", "2", "3"), exact);
+            assertEquals(Arrays.asList("3", "4"), pattern);
+            testComplete();
+          }
+        }).completionHandler(ar3 -> publisher.write("3"));
+      });
+    });
+    await();
+  }
+
+  @Test
+  public void testSenderFlowControl() {
+    int num = 10000;
+    MessageProducer<Integer> producer = eb.sender(ADDRESS1);
+    producer.setWriteQueueMaxSize(100);
+    AtomicInteger received = new AtomicInteger();
+    MessageConsumer<Integer> consumer = eb.consumer(ADDRESS1);
+    consumer.handler(msg -> {
+      int val = received.getAndIncrement();
+      assertEquals(val, (int) msg.body());
+      if (val % 100 == 0) {
+        // Simulate a slow consumer
+        consumer.pause();
+        vertx.setTimer(1, id -> consumer.resume());
+      }
+      if (val == num - 1) {
+        producer.close();
+        testComplete();
+      }
+    });
+    class Writer implements Handler<Void> {
+      int sent;
+      @Override
+      public void handle(Void v) {
+        while (sent < num && !producer.writeQueueFull()) {
+          producer.write(sent++);
+        }
+        if (sent < num) {
+          producer.drainHandler(this);
+        }
+      }
+    }
+    vertx.runOnContext(new Writer());
+    await();
+  }
+
+  @Test
+  public void testSenderConsumerUnregisteredWhileBlocked() {
+    MessageProducer<Integer> producer = eb.sender(ADDRESS1);
+    producer.setWriteQueueMaxSize(10);
+    MessageConsumer<Integer> consumer = eb.consumer(ADDRESS1);
+    consumer.handler(msg -> fail("Should not be handled"));
+    consumer.pause();
+    consumer.completionHandler(ar -> {
+      assertTrue(ar.succeeded());
+      while (!producer.writeQueueFull()) {
+        producer.write(0);
+      }
+      producer.drainHandler(v -> {
+        // The messages buffered by the paused consumer gave their credits back
+        assertFalse(producer.writeQueueFull());
+        testComplete();
+      });
+      consumer.unregister();
+    });
+    await();
+  }
+
+  @Test
+  public void testSenderNoHandlers() {
+    vertx.runOnContext(v -> {
+      // Created on this context so the credits are not handled concurrently with the writes
+      MessageProducer<Integer> producer = eb.sender(ADDRESS1);
+      producer.setWriteQueueMaxSize(10);
+      while (!producer.writeQueueFull()) {
+        producer.write(0);
+      }
+      producer.drainHandler(v2 -> {
+        assertFalse(producer.writeQueueFull());
+        testComplete();
+      });
+    });
+    await();
+  }
+
   @Test
   public void testPublisher() {
     String str = TestUtils.randomUnicodeString(100);
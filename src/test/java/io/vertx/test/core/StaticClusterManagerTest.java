@@ -0,0 +1,294 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * The Apache License v2.0 is available at
+ * http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.test.core;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.impl.VertxInternal;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.net.NetClient;
+import io.vertx.core.net.NetClientOptions;
+import io.vertx.core.spi.cluster.ClusterManager;
+import io.vertx.core.spi.cluster.NodeListener;
+import io.vertx.core.spi.cluster.impl.StaticClusterManager;
+import org.junit.Test;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StaticClusterManagerTest extends VertxTestBase {
+
+  private static final String SECRET = "the-cluster-secret";
+
+  private final List<StaticClusterManager> managers = new ArrayList<>();
+  private int seedPort;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    managers.clear();
+    try (ServerSocket socket = new ServerSocket(0)) {
+      seedPort = socket.getLocalPort();
+    }
+  }
+
+  @Override
+  protected ClusterManager getClusterManager() {
+    // The first node is the seed of the others
+    JsonObject config = config(SECRET);
+    if (managers.isEmpty()) {
+      config.put("port", seedPort);
+    }
+    StaticClusterManager manager = new StaticClusterManager(config);
+    managers.add(manager);
+    return manager;
+  }
+
+  private JsonObject config(String secret) {
+    return new JsonObject().put("seeds", new JsonArray().add("localhost:" + seedPort))
+      .put("failureTimeout", 1000).put("secret", secret);
+  }
+
+  private void stopNode(int pos) {
+    // The node is closed here, not by the tear down
+    Vertx node = vertices[pos];
+    List<Vertx> others = new ArrayList<>(Arrays.asList(vertices));
+    others.remove(pos);
+    vertices = others.toArray(new Vertx[others.size()]);
+    node.close();
+  }
+
+  @Test
+  public void testMembership() {
+    startNodes(3);
+    waitUntil(() -> managers.stream().allMatch(manager -> manager.getNodes().size() == 3));
+    for (StaticClusterManager manager : managers) {
+      assertEquals(managers.get(0).getNodes(), manager.getNodes());
+      assertTrue(manager.getNodes().contains(manager.getNodeID()));
+      assertTrue(manager.isActive());
+    }
+  }
+
+  @Test
+  public void testNodeLeft() {
+    startNodes(3);
+    waitUntil(() -> managers.get(0).getNodes().size() == 3);
+    String leaving = managers.get(2).getNodeID();
+    managers.get(0).nodeListener(new NodeListener() {
+      @Override
+      public void nodeAdded(String nodeID) {
+      }
+      @Override
+      public void nodeLeft(String nodeID) {
+        assertEquals(leaving, nodeID);
+        assertFalse(managers.get(0).getNodes().contains(nodeID));
+        testComplete();
+      }
+    });
+    stopNode(2);
+    await();
+  }
+
+  @Test
+  public void testSendToOtherNode() {
+    startNodes(2);
+    vertices[1].eventBus().<String>consumer("some-address").handler(msg -> {
+      assertEquals("foo", msg.body());
+      msg.reply("bar");
+    }).completionHandler(onSuccess(v -> {
+      vertices[0].eventBus().<String>send("some-address", "foo", onSuccess(reply -> {
+        assertEquals("bar", reply.body());
+        testComplete();
+      }));
+    }));
+    await();
+  }
+
+  @Test
+  public void testUnregisteredOnOtherNode() {
+    startNodes(2);
+    MessageConsumer<String> consumer = vertices[1].eventBus().<String>consumer("some-address")
+      .handler(msg -> fail("Should not receive message"));
+    consumer.completionHandler(onSuccess(v -> {
+      consumer.unregister(onSuccess(v2 -> {
+        vertices[0].eventBus().send("some-address", "foo", ar -> {
+          assertTrue(ar.failed());
+          testComplete();
+        });
+      }));
+    }));
+    await();
+  }
+
+  @Test
+  public void testClusterWideMap() {
+    startNodes(2);
+    vertices[0].sharedData().<String, JsonObject>getClusterWideMap("map", onSuccess(map0 -> {
+      map0.put("foo", new JsonObject().put("bar", 1), onSuccess(v -> {
+        vertices[1].sharedData().<String, JsonObject>getClusterWideMap("map", onSuccess(map1 -> {
+          map1.get("foo", onSuccess(value -> {
+            assertEquals(new JsonObject().put("bar", 1), value);
+            map1.putIfAbsent("foo", new JsonObject(), onSuccess(prev -> {
+              assertEquals(value, prev);
+              testComplete();
+            }));
+          }));
+        }));
+      }));
+    }));
+    await();
+  }
+
+  @Test
+  public void testCounter() {
+    startNodes(2);
+    int num = 10;
+    AtomicInteger done = new AtomicInteger();
+    for (int i = 0; i < num; i++) {
+      vertices[i % 2].sharedData().getCounter("counter", onSuccess(counter -> {
+        counter.incrementAndGet(onSuccess(value -> {
+          if (done.incrementAndGet() == num) {
+            counter.get(onSuccess(total -> {
+              assertEquals(num, (long) total);
+              testComplete();
+            }));
+          }
+        }));
+      }));
+    }
+    await();
+  }
+
+  @Test
+  public void testLock() {
+    startNodes(2);
+    vertices[0].sharedData().getLock("lock", onSuccess(lock -> {
+      AtomicBoolean released = new AtomicBoolean();
+      vertices[1].sharedData().getLock("lock", onSuccess(lock2 -> {
+        assertTrue(released.get());
+        lock2.release();
+        testComplete();
+      }));
+      vertices[0].setTimer(500, id -> {
+        released.set(true);
+        lock.release();
+      });
+    }));
+    await();
+  }
+
+  @Test
+  public void testLockTimeout() {
+    startNodes(2);
+    vertices[0].sharedData().getLock("lock", onSuccess(lock -> {
+      vertices[1].sharedData().getLockWithTimeout("lock", 200, ar -> {
+        assertTrue(ar.failed());
+        testComplete();
+      });
+    }));
+    await();
+  }
+
+  @Test
+  public void testLockReleasedWhenOwnerLeaves() throws Exception {
+    startNodes(2);
+    waitUntil(() -> managers.stream().allMatch(manager -> manager.getNodes().size() == 2));
+    // The locks are held by the coordinator, the owner leaving is the other node
+    int owner = managers.get(0).getNodes().get(0).equals(managers.get(0).getNodeID()) ? 1 : 0;
+    CountDownLatch acquired = new CountDownLatch(1);
+    vertices[owner].sharedData().getLock("lock", onSuccess(lock -> acquired.countDown()));
+    awaitLatch(acquired);
+    // Asked from the test thread, the context of the owner's callbacks goes away with it
+    vertices[1 - owner].sharedData().getLock("lock", onSuccess(lock2 -> {
+      lock2.release();
+      testComplete();
+    }));
+    stopNode(owner);
+    await();
+  }
+
+  @Test
+  public void testWrongSecretCannotJoin() {
+    startNodes(1);
+    StaticClusterManager intruder = new StaticClusterManager(config("not-the-secret").put("joinTimeout", 1000));
+    intruder.setVertx((VertxInternal) vertices[0]);
+    intruder.join(ar -> {
+      assertTrue(ar.failed());
+      assertEquals(1, managers.get(0).getNodes().size());
+      intruder.leave(v -> testComplete());
+    });
+    await();
+  }
+
+  @Test
+  public void testLargeFrameBeforeAuthenticationIsRejected() {
+    startNodes(1);
+    NetClient client = vertices[0].createNetClient(new NetClientOptions());
+    client.connect(seedPort, "localhost", onSuccess(socket -> {
+      socket.closeHandler(v -> {
+        client.close();
+        testComplete();
+      });
+      // The frame length is enough, the node does not wait for the frame
+      socket.handler(challenge -> socket.write(Buffer.buffer().appendInt(1024 * 1024)));
+    }));
+    await();
+  }
+
+  @Test
+  public void testConnectionWithoutAuthenticationIsClosed() {
+    startNodes(1);
+    NetClient client = vertices[0].createNetClient(new NetClientOptions());
+    client.connect(seedPort, "localhost", onSuccess(socket -> {
+      socket.closeHandler(v -> {
+        client.close();
+        testComplete();
+      });
+    }));
+    await();
+  }
+
+  @Test
+  public void testOnlyAllowedTypesInClusterWideMap() {
+    startNodes(2);
+    vertices[0].sharedData().<String, Object>getClusterWideMap("map", onSuccess(map -> {
+      try {
+        map.put("foo", new Date(), ar -> fail("Should not store a serializable object"));
+        fail("Should throw exception");
+      } catch (IllegalArgumentException e) {
+        // OK
+      }
+      map.put("foo", 'x', onSuccess(v -> {
+        vertices[1].sharedData().<String, Object>getClusterWideMap("map", onSuccess(map1 -> {
+          map1.get("foo", onSuccess(value -> {
+            assertEquals('x', value);
+            testComplete();
+          }));
+        }));
+      }));
+    }));
+    await();
+  }
+}
@@ -17,6 +17,8 @@
 package io.vertx.test.core;
 
 import io.vertx.core.VertxOptions;
+import io.vertx.core.eventbus.OverflowPolicy;
+import io.vertx.core.eventbus.RoutingPolicy;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.spi.cluster.ClusterManager;
 import io.vertx.test.fakecluster.FakeClusterManager;
@@ -104,6 +106,69 @@ public class VertxOptionsTest extends VertxTestBase {
     } catch (IllegalArgumentException e) {
       assertEquals(randomLong, options.getClusterPingReplyInterval());
     }
+    assertEquals(1, options.getClusterConnectionsPerNode());
+    rand = TestUtils.randomPositiveInt();
+    assertEquals(options, options.setClusterConnectionsPerNode(rand));
+    assertEquals(rand, options.getClusterConnectionsPerNode());
+    try {
+      options.setClusterConnectionsPerNode(0);
+      fail("Should throw exception");
+    } catch (IllegalArgumentException e) {
+      assertEquals(rand, options.getClusterConnectionsPerNode());
+    }
+    assertEquals(RoutingPolicy.ROUND_ROBIN, options.getClusterRoutingPolicy());
+    assertEquals(options, options.setClusterRoutingPolicy(RoutingPolicy.LOCAL_FIRST));
+    assertEquals(RoutingPolicy.LOCAL_FIRST, options.getClusterRoutingPolicy());
+    try {
+      options.setClusterRoutingPolicy(null);
+      fail("Should throw exception");
+    } catch (IllegalArgumentException e) {
+      assertEquals(RoutingPolicy.LOCAL_FIRST, options.getClusterRoutingPolicy());
+    }
+    assertFalse(options.isClusterBinaryJson());
+    assertEquals(options, options.setClusterBinaryJson(true));
+    assertTrue(options.isClusterBinaryJson());
+    assertFalse(options.isClusterSharedMemory());
+    assertEquals(options, options.setClusterSharedMemory(true));
+    assertTrue(options.isClusterSharedMemory());
+    assertEquals(10000, options.getClusterPendingMaxSize());
+    rand = TestUtils.randomPositiveInt();
+    assertEquals(options, options.setClusterPendingMaxSize(rand));
+    assertEquals(rand, options.getClusterPendingMaxSize());
+    try {
+      options.setClusterPendingMaxSize(0);
+      fail("Should throw exception");
+    } catch (IllegalArgumentException e) {
+      assertEquals(rand, options.getClusterPendingMaxSize());
+    }
+    assertEquals(OverflowPolicy.FAIL, options.getClusterOverflowPolicy());
+    assertEquals(options, options.setClusterOverflowPolicy(OverflowPolicy.DROP_OLDEST));
+    assertEquals(OverflowPolicy.DROP_OLDEST, options.getClusterOverflowPolicy());
+    try {
+      options.setClusterOverflowPolicy(null);
+      fail("Should throw exception");
+    } catch (IllegalArgumentException e) {
+      assertEquals(OverflowPolicy.DROP_OLDEST, options.getClusterOverflowPolicy());
+    }
+    assertEquals(3, options.getClusterReconnectAttempts());
+    assertEquals(options, options.setClusterReconnectAttempts(0));
+    assertEquals(0, options.getClusterReconnectAttempts());
+    try {
+      options.setClusterReconnectAttempts(-1);
+      fail("Should throw exception");
+    } catch (IllegalArgumentException e) {
+      assertEquals(0, options.getClusterReconnectAttempts());
+    }
+    assertEquals(100, options.getClusterReconnectInterval());
+    randomLong = TestUtils.randomPositiveLong();
+    assertEquals(options, options.setClusterReconnectInterval(randomLong));
+    assertEquals(randomLong, options.getClusterReconnectInterval());
+    try {
+      options.setClusterReconnectInterval(0);
+      fail("Should throw exception");
+    } catch (IllegalArgumentException e) {
+      assertEquals(randomLong, options.getClusterReconnectInterval());
+    }
     assertEquals(1000, options.getBlockedThreadCheckPeriod());
     rand = TestUtils.randomPositiveInt();
     assertEquals(options, options.setBlockedThreadCheckPeriod(rand));
@@ -189,6 +254,10 @@ public class VertxOptionsTest extends VertxTestBase {
     String clusterHost = TestUtils.randomAlphaString(100);
     long clusterPingInterval = TestUtils.randomPositiveLong();
     long clusterPingReplyInterval = TestUtils.randomPositiveLong();
+    int clusterConnectionsPerNode = TestUtils.randomPositiveInt();
+    int clusterPendingMaxSize = TestUtils.randomPositiveInt();
+    int clusterReconnectAttempts = TestUtils.randomPositiveInt();
+    long clusterReconnectInterval = TestUtils.randomPositiveLong();
     int maxEventLoopExecuteTime = TestUtils.randomPositiveInt();
     int maxWorkerExecuteTime = TestUtils.randomPositiveInt();
     int proxyOperationTimeout = TestUtils.randomPositiveInt();
@@ -207,6 +276,14 @@ public class VertxOptionsTest extends VertxTestBase {
     options.setClusterHost(clusterHost);
     options.setClusterPingInterval(clusterPingInterval);
     options.setClusterPingReplyInterval(clusterPingReplyInterval);
+    options.setClusterConnectionsPerNode(clusterConnectionsPerNode);
+    options.setClusterRoutingPolicy(RoutingPolicy.SAME_HOST_FIRST);
+    options.setClusterBinaryJson(true);
+    options.setClusterSharedMemory(true);
+    options.setClusterPendingMaxSize(clusterPendingMaxSize);
+    options.setClusterOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+    options.setClusterReconnectAttempts(clusterReconnectAttempts);
+    options.setClusterReconnectInterval(clusterReconnectInterval);
     options.setMaxEventLoopExecuteTime(maxEventLoopExecuteTime);
     options.setMaxWorkerExecuteTime(maxWorkerExecuteTime);
     options.setHAEnabled(haEnabled);
@@ -219,6 +296,14 @@ public class VertxOptionsTest extends VertxTestBase {
     assertEquals(clusterPort, options.getClusterPort());
     assertEquals(clusterPingInterval, options.getClusterPingInterval());
     assertEquals(clusterPingReplyInterval, options.getClusterPingReplyInterval());
+    assertEquals(clusterConnectionsPerNode, options.getClusterConnectionsPerNode());
+    assertEquals(RoutingPolicy.SAME_HOST_FIRST, options.getClusterRoutingPolicy());
+    assertTrue(options.isClusterBinaryJson());
+    assertTrue(options.isClusterSharedMemory());
+    assertEquals(clusterPendingMaxSize, options.getClusterPendingMaxSize());
+    assertEquals(OverflowPolicy.DROP_OLDEST, options.getClusterOverflowPolicy());
+    assertEquals(clusterReconnectAttempts, options.getClusterReconnectAttempts());
+    assertEquals(clusterReconnectInterval, options.getClusterReconnectInterval());
     assertEquals(eventLoopPoolSize, options.getEventLoopPoolSize());
     assertEquals(internalBlockingPoolSize, options.getInternalBlockingPoolSize());
     assertEquals(workerPoolSize, options.getWorkerPoolSize());
@@ -244,6 +329,14 @@ public class VertxOptionsTest extends VertxTestBase {
     assertEquals(def.getClusterHost(), json.getClusterHost());
     assertEquals(def.getClusterPingInterval(), json.getClusterPingInterval());
     assertEquals(def.getClusterPingReplyInterval(), json.getClusterPingReplyInterval());
+    assertEquals(def.getClusterConnectionsPerNode(), json.getClusterConnectionsPerNode());
+    assertEquals(def.getClusterRoutingPolicy(), json.getClusterRoutingPolicy());
+    assertEquals(def.isClusterBinaryJson(), json.isClusterBinaryJson());
+    assertEquals(def.isClusterSharedMemory(), json.isClusterSharedMemory());
+    assertEquals(def.getClusterPendingMaxSize(), json.getClusterPendingMaxSize());
+    assertEquals(def.getClusterOverflowPolicy(), json.getClusterOverflowPolicy());
+    assertEquals(def.getClusterReconnectAttempts(), json.getClusterReconnectAttempts());
+    assertEquals(def.getClusterReconnectInterval(), json.getClusterReconnectInterval());
     assertEquals(def.getBlockedThreadCheckPeriod(), json.getBlockedThreadCheckPeriod());
     assertEquals(def.getMaxEventLoopExecuteTime(), json.getMaxEventLoopExecuteTime());
     assertEquals(def.getMaxWorkerExecuteTime(), json.getMaxWorkerExecuteTime());
@@ -260,6 +353,14 @@ public class VertxOptionsTest extends VertxTestBase {
     assertEquals(0, options.getClusterPort());
     assertEquals(20000, options.getClusterPingInterval());
     assertEquals(20000, options.getClusterPingReplyInterval());
+    assertEquals(1, options.getClusterConnectionsPerNode());
+    assertEquals(RoutingPolicy.ROUND_ROBIN, options.getClusterRoutingPolicy());
+    assertFalse(options.isClusterBinaryJson());
+    assertFalse(options.isClusterSharedMemory());
+    assertEquals(10000, options.getClusterPendingMaxSize());
+    assertEquals(OverflowPolicy.FAIL, options.getClusterOverflowPolicy());
+    assertEquals(3, options.getClusterReconnectAttempts());
+    assertEquals(100, options.getClusterReconnectInterval());
     assertEquals(2 * Runtime.getRuntime().availableProcessors(), options.getEventLoopPoolSize());
     assertEquals(20, options.getInternalBlockingPoolSize());
     assertEquals(20, options.getWorkerPoolSize());
@@ -283,6 +384,10 @@ public class VertxOptionsTest extends VertxTestBase {
     String clusterHost = TestUtils.randomAlphaString(100);
     long clusterPingInterval = TestUtils.randomPositiveLong();
     long clusterPingReplyInterval = TestUtils.randomPositiveLong();
+    int clusterConnectionsPerNode = TestUtils.randomPositiveInt();
+    int clusterPendingMaxSize = TestUtils.randomPositiveInt();
+    int clusterReconnectAttempts = TestUtils.randomPositiveInt();
+    long clusterReconnectInterval = TestUtils.randomPositiveLong();
     int maxEventLoopExecuteTime = TestUtils.randomPositiveInt();
     int maxWorkerExecuteTime = TestUtils.randomPositiveInt();
     int proxyOperationTimeout = TestUtils.randomPositiveInt();
@@ -302,6 +407,14 @@ public class VertxOptionsTest extends VertxTestBase {
         put("clusterHost", clusterHost).
         put("clusterPingInterval", clusterPingInterval).
         put("clusterPingReplyInterval", clusterPingReplyInterval).
+        put("clusterConnectionsPerNode", clusterConnectionsPerNode).
+        put("clusterRoutingPolicy", "LEAST_OUTSTANDING").
+        put("clusterBinaryJson", true).
+        put("clusterSharedMemory", true).
+        put("clusterPendingMaxSize", clusterPendingMaxSize).
+        put("clusterOverflowPolicy", "DROP_OLDEST").
+        put("clusterReconnectAttempts", clusterReconnectAttempts).
+        put("clusterReconnectInterval", clusterReconnectInterval).
         put("maxEventLoopExecuteTime", maxEventLoopExecuteTime).
         put("maxWorkerExecuteTime", maxWorkerExecuteTime).
         put("proxyOperationTimeout", proxyOperationTimeout).
@@ -315,6 +428,14 @@ public class VertxOptionsTest extends VertxTestBase {
     assertEquals(clusterPort, options.getClusterPort());
     assertEquals(clusterPingInterval, options.getClusterPingInterval());
     assertEquals(clusterPingReplyInterval, options.getClusterPingReplyInterval());
+    assertEquals(clusterConnectionsPerNode, options.getClusterConnectionsPerNode());
+    assertEquals(RoutingPolicy.LEAST_OUTSTANDING, options.getClusterRoutingPolicy());
+    assertTrue(options.isClusterBinaryJson());
+    assertTrue(options.isClusterSharedMemory());
+    assertEquals(clusterPendingMaxSize, options.getClusterPendingMaxSize());
+    assertEquals(OverflowPolicy.DROP_OLDEST, options.getClusterOverflowPolicy());
+    assertEquals(clusterReconnectAttempts, options.getClusterReconnectAttempts());
+    assertEquals(clusterReconnectInterval, options.getClusterReconnectInterval());
     assertEquals(eventLoopPoolSize, options.getEventLoopPoolSize());
     assertEquals(internalBlockingPoolSize, options.getInternalBlockingPoolSize());
     assertEquals(workerPoolSize, options.getWorkerPoolSize());
@@ -30,10 +30,12 @@ import io.vertx.core.shareddata.impl.AsynchronousLock;
 import io.vertx.core.spi.cluster.AsyncMultiMap;
 import io.vertx.core.spi.cluster.ChoosableIterable;
 import io.vertx.core.spi.cluster.ClusterManager;
+import io.vertx.core.spi.cluster.MultiMapListener;
 import io.vertx.core.spi.cluster.NodeListener;
 import io.vertx.core.spi.cluster.VertxSPI;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -314,6 +316,7 @@ public class FakeClusterManager implements ClusterManager {
   private class FakeAsyncMultiMap<K, V> implements AsyncMultiMap<K, V> {
 
     private ConcurrentMap<K, ChoosableSet<V>> map = new ConcurrentHashMap<>();
+    private List<MultiMapListener<K, V>> listeners = new CopyOnWriteArrayList<>();
 
     @Override
     public void add(final K k, final V v, Handler<AsyncResult<Void>> completionHandler) {
@@ -327,6 +330,30 @@ public class FakeClusterManager implements ClusterManager {
           }
         }
         vals.add(v);
+        for (MultiMapListener<K, V> listener : listeners) {
+          listener.entryAdded(k, v);
+        }
+        return null;
+      }, completionHandler);
+    }
+
+    @Override
+    public void addAll(Collection<K> keys, V v, Handler<AsyncResult<Void>> completionHandler) {
+      vertx.executeBlocking(() -> {
+        for (K k : keys) {
+          ChoosableSet<V> vals = map.get(k);
+          if (vals == null) {
+            vals = new ChoosableSet<>(1);
+            ChoosableSet<V> prevVals = map.putIfAbsent(k, vals);
+            if (prevVals != null) {
+              vals = prevVals;
+            }
+          }
+          vals.add(v);
+          for (MultiMapListener<K, V> listener : listeners) {
+            listener.entryAdded(k, v);
+          }
+        }
         return null;
       }, completionHandler);
     }
@@ -345,11 +372,33 @@ public class FakeClusterManager implements ClusterManager {
             if (vals.isEmpty()) {
               map.remove(k);
             }
+            for (MultiMapListener<K, V> listener : listeners) {
+              listener.entryRemoved(k, v);
+            }
           }
           return null;
         }, completionHandler);
     }
 
+    @Override
+    public void removeAll(Collection<K> keys, V v, Handler<AsyncResult<Void>> completionHandler) {
+      vertx.executeBlocking(() -> {
+        for (K k : keys) {
+          ChoosableSet<V> vals = map.get(k);
+          if (vals != null) {
+            vals.remove(v);
+            if (vals.isEmpty()) {
+              map.remove(k);
+            }
+            for (MultiMapListener<K, V> listener : listeners) {
+              listener.entryRemoved(k, v);
+            }
+          }
+        }
+        return null;
+      }, completionHandler);
+    }
+
     @Override
     public void removeAllForValue(final V v, Handler<AsyncResult<Void>> completionHandler) {
       vertx.executeBlocking(() -> {
@@ -362,6 +411,9 @@ public class FakeClusterManager implements ClusterManager {
             V val = iter.next();
             if (val.equals(v)) {
               iter.remove();
+              for (MultiMapListener<K, V> listener : listeners) {
+                listener.entryRemoved(entry.getKey(), v);
+              }
             }
           }
           if (vals.isEmpty()) {
@@ -371,5 +423,16 @@ public class FakeClusterManager implements ClusterManager {
         return null;
       }, completionHandler);
     }
+
+    @Override
+    public boolean addListener(MultiMapListener<K, V> listener) {
+      listeners.add(listener);
+      return true;
+    }
+
+    @Override
+    public void removeListener(MultiMapListener<K, V> listener) {
+      listeners.remove(listener);
+    }
   }
 }